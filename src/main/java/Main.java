@@ -26,6 +26,10 @@ public class Main {
         for (int i = 0; i < args.length; i++) {
             if ((args[i].equals("-cp") || args[i].equals("--classpath")) && i + 1 < args.length) {
                 classpath = args[++i];
+            } else if (args[i].equals("--no-inline")) {
+                _inlining = false;
+            } else if (args[i].equals("--inline-report")) {
+                _inliningReport = true;
             } else {
                 remaining.add(args[i]);
             }
@@ -87,6 +91,10 @@ public class Main {
             runFile(cargs[1]); // interpreter path (for debugging)
             return;
         }
+        if (cargs.length >= 2 && cargs[0].equals("tiered")) {
+            runFile(cargs[1], new TieredCompiler()); // interpret, emit hot functions in the background
+            return;
+        }
         if (cargs.length >= 2 && cargs[0].equals("compile")) {
             compileFile(cargs[1]);
             return;
@@ -174,6 +182,21 @@ public class Main {
     }
 
     private static String[] _programArgs = new String[0];
+    private static boolean _inlining = true;
+    private static boolean _inliningReport = false;
+
+    private static Compilation newCompilation(SyntaxTree tree, codeanalysis.ModuleRegistry registry, String absPath) {
+        Compilation compilation = new Compilation(tree, registry, absPath);
+        compilation.setInlining(_inlining);
+        return compilation;
+    }
+
+    private static void printInliningReport(Compilation compilation) {
+        if (!_inliningReport) return;
+        for (String line : compilation.getInliningReport()) {
+            System.err.println("[inline] " + line);
+        }
+    }
 
     private static void compileAndRun(String path) {
         try {
@@ -181,7 +204,7 @@ public class Main {
             String source = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(absPath)));
             SyntaxTree tree = SyntaxTree.parse(source);
             codeanalysis.ModuleRegistry registry = new codeanalysis.ModuleRegistry();
-            Compilation compilation = new Compilation(tree, registry, absPath);
+            Compilation compilation = newCompilation(tree, registry, absPath);
 
             String fileName = java.nio.file.Paths.get(path).getFileName().toString();
             String classNameRaw = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
@@ -190,6 +213,7 @@ public class Main {
             final String className = classNameBase.equals("Main") ? "Siyo_Main" : classNameBase;
 
             byte[] bytecode = compilation.compile(className);
+            printInliningReport(compilation);
             if (bytecode == null) {
                 DiagnosticBox diagnostics = tree.diagnostics().addAll(compilation.getGlobalScope().getDiagnostics());
                 String diagFileName = java.nio.file.Paths.get(path).getFileName().toString();
@@ -219,7 +243,7 @@ public class Main {
                         if (name.equals(module.getClassName())) {
                             java.util.Map<codeanalysis.FunctionSymbol, codeanalysis.binding.BoundBlockStatement> loweredBodies = new java.util.HashMap<>();
                             for (var entry : module.getFunctionBodies().entrySet()) {
-                                loweredBodies.put(entry.getKey(), codeanalysis.lowering.Lowerer.lower(entry.getValue()));
+                                loweredBodies.put(entry.getKey(), codeanalysis.lowering.Lowerer.lower(entry.getKey(), entry.getValue()));
                             }
                             // Use module's top-level block so module-level variables become static fields
                             codeanalysis.binding.BoundBlockStatement topLevel = module.getTopLevelBlock() != null
@@ -257,13 +281,14 @@ public class Main {
             String source = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(absPath)));
             SyntaxTree tree = SyntaxTree.parse(source);
             codeanalysis.ModuleRegistry registry = new codeanalysis.ModuleRegistry();
-            Compilation compilation = new Compilation(tree, registry, absPath);
+            Compilation compilation = newCompilation(tree, registry, absPath);
 
             String fileName = java.nio.file.Paths.get(path).getFileName().toString();
             String className = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
             className = Character.toUpperCase(className.charAt(0)) + className.substring(1);
 
             byte[] bytecode = compilation.compile(className);
+            printInliningReport(compilation);
             if (bytecode == null) {
                 DiagnosticBox diagnostics = tree.diagnostics().addAll(compilation.getGlobalScope().getDiagnostics());
                 while (diagnostics.hasNext()) {
@@ -282,7 +307,7 @@ public class Main {
                 // Lower function bodies before emitting
                 java.util.Map<codeanalysis.FunctionSymbol, codeanalysis.binding.BoundBlockStatement> loweredBodies = new java.util.HashMap<>();
                 for (var entry : module.getFunctionBodies().entrySet()) {
-                    loweredBodies.put(entry.getKey(), codeanalysis.lowering.Lowerer.lower(entry.getValue()));
+                    loweredBodies.put(entry.getKey(), codeanalysis.lowering.Lowerer.lower(entry.getKey(), entry.getValue()));
                 }
                 codeanalysis.binding.BoundBlockStatement topLevel = module.getTopLevelBlock() != null
                         ? module.getTopLevelBlock()
@@ -302,14 +327,19 @@ public class Main {
     }
 
     private static void runFile(String path) {
+        runFile(path, null);
+    }
+
+    private static void runFile(String path, TieredCompiler tier) {
         try {
             String absPath = java.nio.file.Paths.get(path).toAbsolutePath().toString();
             String source = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(absPath)));
             SyntaxTree tree = SyntaxTree.parse(source);
             codeanalysis.ModuleRegistry registry = new codeanalysis.ModuleRegistry();
-            Compilation compilation = new Compilation(tree, registry, absPath);
+            Compilation compilation = newCompilation(tree, registry, absPath);
             Map<VariableSymbol, Object> variables = new HashMap<>();
-            EvaluationResult result = compilation.evaluate(variables);
+            EvaluationResult result = compilation.evaluate(variables, tier);
+            printInliningReport(compilation);
 
             if (result.diagnostics().hasNext()) {
                 DiagnosticBox diagnostics = result.diagnostics();
@@ -391,6 +421,7 @@ public class Main {
         System.out.println("  run                 Run the project defined in siyo.toml");
         System.out.println("  test [file]         Run tests (default: src/test.siyo)");
         System.out.println("  compile <file.siyo> Compile to .class without running");
+        System.out.println("  tiered <file.siyo>  Interpret, swapping hot functions to bytecode");
         System.out.println("  new <name>          Create a new project skeleton");
         System.out.println("  repl                Start the interactive REPL");
         System.out.println();
@@ -398,5 +429,7 @@ public class Main {
         System.out.println("  -v, --version       Print version and exit");
         System.out.println("  -h, --help          Print this help and exit");
         System.out.println("  -cp, --classpath    Append to classpath");
+        System.out.println("  --no-inline         Do not inline small functions into their callers");
+        System.out.println("  --inline-report     Print the inlined call sites to stderr");
     }
 }
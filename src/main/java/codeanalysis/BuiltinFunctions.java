@@ -195,12 +195,43 @@ public class BuiltinFunctions {
             SiyoArray.class
     );
 
+    // Internal builtin: view a set as an array (used by for-in desugaring)
+    public static final FunctionSymbol SET_VALUES = new FunctionSymbol(
+            "$setValues",
+            List.of(new ParameterSymbol("set", SiyoSet.class)),
+            SiyoArray.class
+    );
+
     public static final FunctionSymbol NEW_SET = new FunctionSymbol(
             "set",
             List.of(),
             SiyoSet.class
     );
 
+    public static final FunctionSymbol CONCURRENT_MAP = new FunctionSymbol(
+            "concurrentMap",
+            List.of(),
+            SiyoConcurrentMap.class
+    );
+
+    public static final FunctionSymbol ATOMIC_INT = new FunctionSymbol(
+            "atomicInt",
+            List.of(),
+            SiyoAtomicInt.class
+    );
+
+    public static final FunctionSymbol ATOMIC_LONG = new FunctionSymbol(
+            "atomicLong",
+            List.of(),
+            SiyoAtomicLong.class
+    );
+
+    public static final FunctionSymbol COUNTER = new FunctionSymbol(
+            "counter",
+            List.of(),
+            SiyoCounter.class
+    );
+
     public static final FunctionSymbol CHANNEL = new FunctionSymbol(
             "channel",
             List.of(),
@@ -219,6 +250,18 @@ public class BuiltinFunctions {
             null
     );
 
+    public static final FunctionSymbol SORT_NATURAL = new FunctionSymbol(
+            "sort",
+            List.of(new ParameterSymbol("arr", SiyoArray.class)),
+            null
+    );
+
+    public static final FunctionSymbol SORT_BY = new FunctionSymbol(
+            "sortBy",
+            List.of(new ParameterSymbol("arr", SiyoArray.class), new ParameterSymbol("key", SiyoClosure.class)),
+            null
+    );
+
     public static final FunctionSymbol SPLIT = new FunctionSymbol(
             "split",
             List.of(new ParameterSymbol("s", String.class), new ParameterSymbol("delimiter", String.class)),
@@ -237,12 +280,40 @@ public class BuiltinFunctions {
             Object.class
     );
 
+    /** lines(path) reads a file lazily; for-in pulls one line per iteration. See SiyoLines. */
+    public static final FunctionSymbol LINES = new FunctionSymbol(
+            "lines",
+            List.of(new ParameterSymbol("path", String.class)),
+            Object.class
+    );
+
+    /** mmap(path, mode) maps a file for random access, mode "r" or "rw". See SiyoMmap. */
+    public static final FunctionSymbol MMAP = new FunctionSymbol(
+            "mmap",
+            List.of(new ParameterSymbol("path", String.class), new ParameterSymbol("mode", String.class)),
+            SiyoMmap.class
+    );
+
     public static final FunctionSymbol CAN_READ = new FunctionSymbol(
             "canRead",
             List.of(new ParameterSymbol("reader", Object.class)),
             Boolean.class
     );
 
+    /** jsonEncode(value); bound as jsonEncode<T> when the value's struct type is known. */
+    public static final FunctionSymbol JSON_ENCODE = new FunctionSymbol(
+            "jsonEncode",
+            List.of(new ParameterSymbol("value", Object.class)),
+            String.class
+    );
+
+    /** jsonDecode(text) gives plain maps and arrays; jsonDecode<T>(text) gives a T. */
+    public static final FunctionSymbol JSON_DECODE = new FunctionSymbol(
+            "jsonDecode",
+            List.of(new ParameterSymbol("text", String.class)),
+            Object.class
+    );
+
     public static final FunctionSymbol HTTP_GET = new FunctionSymbol(
             "httpGet",
             List.of(new ParameterSymbol("url", String.class)),
@@ -255,13 +326,28 @@ public class BuiltinFunctions {
             String.class
     );
 
+    /** httpServe(port, handler) serves HTTP/1.1 until the process ends; see SiyoHttpServer. */
+    public static final FunctionSymbol HTTP_SERVE = new FunctionSymbol(
+            "httpServe",
+            List.of(new ParameterSymbol("port", Integer.class), new ParameterSymbol("handler", SiyoClosure.class)),
+            null
+    );
+
+    /** sendFile(request, path) builds a cached, conditional file response; see SiyoStaticFiles. */
+    public static final FunctionSymbol SEND_FILE = new FunctionSymbol(
+            "sendFile",
+            List.of(new ParameterSymbol("request", SiyoMap.class), new ParameterSymbol("path", String.class)),
+            SiyoMap.class
+    );
+
     public static List<FunctionSymbol> getAll() {
         return List.of(LEN, TO_STRING, PARSE_INT, PARSE_LONG, PARSE_FLOAT, TO_INT, TO_INT_STR, TO_LONG, TO_FLOAT, TO_DOUBLE,
-                PRINT, PRINTLN, RANGE, PUSH, REMOVE_AT, POP, NEW_MAP, NEW_SET, MAP_KEYS, SORT, CHANNEL, CHANNEL_BUFFERED, SUBSTRING, CONTAINS, INPUT, ERROR, RANDOM,
-                CHR, ORD, INDEX_OF, STARTS_WITH, ENDS_WITH, REPLACE, TRIM, TO_UPPER, TO_LOWER, SPLIT, HTTP_GET, HTTP_POST, CAN_READ, ACTOR_HANDLE);
+                PRINT, PRINTLN, RANGE, PUSH, REMOVE_AT, POP, NEW_MAP, NEW_SET, CONCURRENT_MAP, ATOMIC_INT, ATOMIC_LONG, COUNTER, MAP_KEYS, SET_VALUES, SORT, SORT_NATURAL, SORT_BY, CHANNEL, CHANNEL_BUFFERED, SUBSTRING, CONTAINS, INPUT, ERROR, RANDOM,
+                CHR, ORD, INDEX_OF, STARTS_WITH, ENDS_WITH, REPLACE, TRIM, TO_UPPER, TO_LOWER, SPLIT, JSON_ENCODE, JSON_DECODE, HTTP_GET, HTTP_POST, HTTP_SERVE, SEND_FILE, LINES, MMAP, CAN_READ, ACTOR_HANDLE);
     }
 
     public static boolean isBuiltin(FunctionSymbol function) {
+        if (function.getGeneric() != null) function = function.getGeneric();
         for (FunctionSymbol builtin : getAll()) {
             if (builtin == function) return true; // reference equality, not name-based
         }
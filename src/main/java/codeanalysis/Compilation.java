@@ -1,12 +1,14 @@
 package codeanalysis;
 
 import codeanalysis.binding.*;
+import codeanalysis.lowering.Inliner;
 import codeanalysis.lowering.Lowerer;
 import codeanalysis.syntax.SyntaxTree;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -26,6 +28,8 @@ public class Compilation {
     private final AtomicReference<BoundGlobalScope> _globalScope = new AtomicReference<>(null);
     private ModuleRegistry _registry;
     private String _filePath;
+    private boolean _inlining = true;
+    private List<String> _inliningReport = List.of();
 
     public Compilation(SyntaxTree syntaxTree) {
         this(null, syntaxTree);
@@ -71,6 +75,24 @@ public class Compilation {
         return globalScope;
     }
 
+    /**
+     * Enables or disables inlining of small functions into their callers. Enabled by default.
+     *
+     * @param inlining Whether small functions are inlined.
+     */
+    public void setInlining(boolean inlining) {
+        _inlining = inlining;
+    }
+
+    /**
+     * Gets the call sites inlined by the last evaluation or compilation, one per line.
+     *
+     * @return The inlining report, empty when inlining is disabled.
+     */
+    public List<String> getInliningReport() {
+        return _inliningReport;
+    }
+
     public ModuleRegistry getRegistry() {
         return _registry != null ? _registry : new ModuleRegistry();
     }
@@ -95,6 +117,20 @@ public class Compilation {
      * @throws Exception if an error occurs during the evaluation process.
      */
     public EvaluationResult evaluate(Map<VariableSymbol, Object> variables) throws Exception {
+        return evaluate(variables, null);
+    }
+
+    /**
+     * Evaluates the syntax tree in tiered mode: functions start interpreted and hot ones
+     * are swapped for emitted bytecode by the given compiler.
+     *
+     * @param variables The variables to be used during the evaluation process.
+     * @param tier      The tiered compiler, or null to interpret everything.
+     *
+     * @return The evaluation result.
+     * @throws Exception if an error occurs during the evaluation process.
+     */
+    public EvaluationResult evaluate(Map<VariableSymbol, Object> variables, TieredCompiler tier) throws Exception {
         DiagnosticBox diagnostics = _syntaxTree.diagnostics().addAll(getGlobalScope().getDiagnostics());
         if (diagnostics.hasNext()) {
             return new EvaluationResult(diagnostics, null);
@@ -103,15 +139,39 @@ public class Compilation {
         BoundBlockStatement statement = getStatement();
         Map<FunctionSymbol, BoundBlockStatement> functions = getFunctions();
         Evaluator evaluator = new Evaluator(statement, variables, functions);
+        java.util.Set<String> actorTypeNames = new java.util.HashSet<>();
         for (var entry : getGlobalScope().getStructTypes().entrySet()) {
             if (entry.getValue().isActor()) {
                 evaluator.registerActorType(entry.getKey());
+                actorTypeNames.add(entry.getKey());
             }
         }
+        if (tier != null) {
+            tier.attach(functions, actorTypeNames);
+            evaluator.setTieredCompiler(tier);
+        }
         Object value = evaluator.evaluate();
+        // Files run like compiled programs: top-level declarations first, then init() and main()
+        if (_filePath != null) {
+            for (String entryName : new String[]{"init", "main"}) {
+                FunctionSymbol entry = findEntryPoint(functions, entryName);
+                if (entry != null) {
+                    value = evaluator.invoke(entry);
+                }
+            }
+        }
         return new EvaluationResult(new DiagnosticBox(), value);
     }
 
+    private static FunctionSymbol findEntryPoint(Map<FunctionSymbol, BoundBlockStatement> functions, String name) {
+        for (FunctionSymbol function : functions.keySet()) {
+            if (function.getModuleName() == null && function.getName().equals(name) && function.getParameters().isEmpty()) {
+                return function;
+            }
+        }
+        return null;
+    }
+
     /**
      * Emits the tree representing the compilation unit to the specified print writer.
      *
@@ -181,13 +241,21 @@ public class Compilation {
             if (scope.getFunctionBodies() != null) {
                 for (Map.Entry<FunctionSymbol, BoundBlockStatement> entry : scope.getFunctionBodies().entrySet()) {
                     if (!functions.containsKey(entry.getKey())) {
-                        BoundBlockStatement lowered = loweredCache.computeIfAbsent(entry.getValue(), Lowerer::lower);
+                        FunctionSymbol function = entry.getKey();
+                        BoundBlockStatement lowered = loweredCache.computeIfAbsent(entry.getValue(), body -> Lowerer.lower(function, body));
                         functions.put(entry.getKey(), lowered);
                     }
                 }
             }
             scope = scope.getPrevious();
         }
+        if (!_inlining) {
+            _inliningReport = List.of();
+            return functions;
+        }
+        Inliner inliner = new Inliner();
+        functions = inliner.inline(functions);
+        _inliningReport = inliner.getReport();
         return functions;
     }
 }
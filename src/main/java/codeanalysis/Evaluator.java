@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Stack;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The {@code Evaluator} class is responsible for evaluating an expression syntax tree and computing the result.
@@ -27,6 +28,7 @@ public class Evaluator {
     private Object _lastValue;
     private boolean _returnTriggered = false;
     private Object _returnValue = null;
+    private TieredCompiler _tier = null;
 
     /**
      * Evaluates the expression syntax tree and computes the result.
@@ -75,13 +77,17 @@ public class Evaluator {
                 }
                 case GotoStatement -> {
                     BoundGotoStatement gs = (BoundGotoStatement) s;
-                    index = labelToIndex.get(gs.getLabel());
+                    int target = labelToIndex.get(gs.getLabel());
+                    if (_tier != null && target <= index) recordBackEdge();
+                    index = target;
                 }
                 case ConditionalGotoStatement -> {
                     BoundConditionalGotoStatement cgs = (BoundConditionalGotoStatement) s;
                     boolean condition = (boolean) evaluateExpression(cgs.getCondition());
                     if (condition == cgs.getJumpIfTrue()) {
-                        index = labelToIndex.get(cgs.getLabel());
+                        int target = labelToIndex.get(cgs.getLabel());
+                        if (_tier != null && target <= index) recordBackEdge();
+                        index = target;
                     }
                     else {
                         index++;
@@ -123,6 +129,39 @@ public class Evaluator {
         _functions = functions;
     }
 
+    /**
+     * Enables tiered execution: hot functions are handed to the given compiler and,
+     * once emitted, called as bytecode instead of being interpreted.
+     *
+     * @param tier The tiered compiler collecting counters for this evaluator.
+     */
+    public void setTieredCompiler(TieredCompiler tier) {
+        _tier = tier;
+    }
+
+    /**
+     * Calls a user function with the given arguments, as if from a call expression.
+     *
+     * @param function  The function to call.
+     * @param arguments The argument values.
+     * @return The function's result.
+     * @throws Exception if an error occurs during evaluation.
+     */
+    public Object invoke(FunctionSymbol function, Object... arguments) throws Exception {
+        List<BoundExpression> args = new java.util.ArrayList<>();
+        for (Object argument : arguments) {
+            args.add(new BoundLiteralExpression(argument));
+        }
+        return evaluateCallExpression(new BoundCallExpression(function, args));
+    }
+
+    private void recordBackEdge() {
+        // Closure frames have no function to promote
+        if (!_callStack.isEmpty() && _callStack.peek().getFunction() != null) {
+            _tier.recordBackEdge(_callStack.peek().getFunction());
+        }
+    }
+
     /**
      * Evaluates the specified expression statement syntax node and computes the result.
      *
@@ -406,6 +445,21 @@ public class Evaluator {
             throw new Exception("Function body not found: " + function.getName());
         }
 
+        // Tiered mode: call the emitted version once it is ready, otherwise count this call
+        if (_tier != null) {
+            java.lang.invoke.MethodHandle compiled = _tier.getCompiled(function);
+            if (compiled != null && _tier.acceptsArguments(function, arguments)) {
+                try {
+                    return compiled.invokeWithArguments(arguments);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            }
+            _tier.recordInvocation(function);
+        }
+
         // Create new stack frame
         StackFrame frame = new StackFrame(function);
 
@@ -501,47 +555,41 @@ public class Evaluator {
             c = c.getSuperclass();
         }
 
-        for (Class<?> searchCls : toSearch) {
-            for (var method : searchCls.getMethods()) {
-                if (method.getName().equals(methodName) && method.getParameterCount() == args.length) {
-                    try {
-                        method.setAccessible(true);
-                        // Convert SiyoArray back to Java arrays if method expects array parameter
-                        Object[] convertedArgs = new Object[args.length];
-                        Class<?>[] paramTypes = method.getParameterTypes();
-                        for (int ai = 0; ai < args.length; ai++) {
-                            if (args[ai] instanceof SiyoArray sa && paramTypes[ai].isArray()) {
-                                convertedArgs[ai] = siyoArrayToJavaArray(sa, paramTypes[ai].getComponentType());
-                            } else {
-                                convertedArgs[ai] = args[ai];
+        // First pass prefers overloads whose primitive array parameters match the arrays passed
+        for (boolean strictArrays : new boolean[]{true, false}) {
+            for (Class<?> searchCls : toSearch) {
+                for (var method : searchCls.getMethods()) {
+                    if (method.getName().equals(methodName) && method.getParameterCount() == args.length) {
+                        if (strictArrays && !arrayArgumentsMatch(method.getParameterTypes(), args)) continue;
+                        try {
+                            method.setAccessible(true);
+                            // Convert SiyoArray back to Java arrays if method expects array parameter
+                            Object[] convertedArgs = new Object[args.length];
+                            Class<?>[] paramTypes = method.getParameterTypes();
+                            for (int ai = 0; ai < args.length; ai++) {
+                                if (args[ai] instanceof SiyoArray sa && paramTypes[ai].isArray()) {
+                                    convertedArgs[ai] = siyoArrayToJavaArray(sa, paramTypes[ai].getComponentType());
+                                } else {
+                                    convertedArgs[ai] = args[ai];
+                                }
                             }
-                        }
-                        Object result = method.invoke(target, convertedArgs);
-                        if (result instanceof Long) return result; // preserve as Long
-                        if (result instanceof Short s) return (int) s;
-                        if (result instanceof Byte b) return (int) b;
-                        if (result instanceof Float f) return f.doubleValue();
-                        if (result instanceof Character c2) return String.valueOf(c2);
-                        if (result instanceof Object[] arr) {
-                            return new SiyoArray(java.util.Arrays.asList(arr), Object.class);
-                        }
-                        // Handle primitive arrays (byte[], int[], etc.)
-                        if (result != null && result.getClass().isArray()) {
-                            int len = java.lang.reflect.Array.getLength(result);
-                            java.util.List<Object> elements = new java.util.ArrayList<>();
-                            for (int idx = 0; idx < len; idx++) {
-                                Object elem = java.lang.reflect.Array.get(result, idx);
-                                if (elem instanceof Byte bv) elements.add((int) bv);
-                                else if (elem instanceof Short sv) elements.add((int) sv);
-                                else if (elem instanceof Float fv) elements.add((double) fv);
-                                else if (elem instanceof Character cv) elements.add(String.valueOf(cv));
-                                else elements.add(elem);
+                            Object result = method.invoke(target, convertedArgs);
+                            if (result instanceof Long) return result; // preserve as Long
+                            if (result instanceof Short s) return (int) s;
+                            if (result instanceof Byte b) return (int) b;
+                            if (result instanceof Float f) return f.doubleValue();
+                            if (result instanceof Character c2) return String.valueOf(c2);
+                            if (result instanceof Object[] arr) {
+                                return SiyoArray.of(arr, Object.class);
                             }
-                            return new SiyoArray(elements, Integer.class);
+                            // Primitive arrays (byte[], int[], etc.) wrap as compiled code wraps them
+                            if (result != null && result.getClass().isArray()) {
+                                return SiyoArray.fromJavaArray(result);
+                            }
+                            return result;
+                        } catch (IllegalArgumentException | java.lang.reflect.InaccessibleObjectException e) {
+                            continue;
                         }
-                        return result;
-                    } catch (IllegalArgumentException | java.lang.reflect.InaccessibleObjectException e) {
-                        continue;
                     }
                 }
             }
@@ -562,6 +610,10 @@ public class Evaluator {
             args[i] = evaluateExpression(node.getArguments().get(i));
         }
 
+        return invokeClosure(closure, args);
+    }
+
+    private Object invokeClosure(SiyoClosure closure, Object... args) throws Exception {
         // Create stack frame with captured variables + parameters
         StackFrame frame = new StackFrame(null);
 
@@ -656,6 +708,22 @@ public class Evaluator {
 
     private Object evaluateMatchExpression(codeanalysis.binding.BoundMatchExpression node) throws Exception {
         Object target = evaluateExpression(node.getTarget());
+        java.util.Map<Object, Integer> constantArms = node.getConstantArms();
+        if (constantArms != null) {
+            // All patterns are constants: look the arm up instead of trying each in turn
+            Integer index = target == null ? null : constantArms.get(target);
+            var arms = node.getArms();
+            if (index == null) {
+                var last = arms.get(arms.size() - 1);
+                if (!last.isDefault()) return null;
+                index = arms.size() - 1;
+            }
+            var arm = arms.get(index);
+            if (!arm.preStatements().isEmpty()) {
+                evaluateBlock(new BoundBlockStatement(new java.util.ArrayList<>(arm.preStatements())));
+            }
+            return evaluateExpression(arm.body());
+        }
         Object defaultResult = null;
         for (var arm : node.getArms()) {
             if (arm.isDefault()) {
@@ -835,7 +903,26 @@ public class Evaluator {
         return new SiyoClosure(node.getParameters(), node.getBody(), capturedVars, node.getReturnType());
     }
 
+    private static boolean arrayArgumentsMatch(Class<?>[] paramTypes, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!(args[i] instanceof SiyoArray sa) || !paramTypes[i].isArray()) continue;
+            Class<?> component = paramTypes[i].getComponentType();
+            if (!component.isPrimitive()) continue;
+            boolean matches = sa.getElements() instanceof SiyoBytes ? component == byte.class
+                    : (sa.getElementType() == Integer.class && component == int.class)
+                    || (sa.getElementType() == Long.class && component == long.class)
+                    || (sa.getElementType() == Double.class && component == double.class);
+            if (!matches) return false;
+        }
+        return true;
+    }
+
     private Object siyoArrayToJavaArray(SiyoArray arr, Class<?> componentType) {
+        // Primitive arrays come straight from a matching backing array
+        if (componentType == int.class) return arr.toIntArray();
+        if (componentType == long.class) return arr.toLongArray();
+        if (componentType == double.class) return arr.toDoubleArray();
+        if (componentType == byte.class) return arr.toByteArray();
         Object javaArr = java.lang.reflect.Array.newInstance(componentType, arr.length());
         for (int i = 0; i < arr.length(); i++) {
             Object elem = arr.get(i);
@@ -893,11 +980,11 @@ public class Evaluator {
     }
 
     private Object evaluateArrayLiteralExpression(BoundArrayLiteralExpression node) throws Exception {
-        java.util.List<Object> elements = new java.util.ArrayList<>();
+        SiyoArray array = SiyoArray.withCapacity(node.getElements().size(), node.getElementType());
         for (BoundExpression element : node.getElements()) {
-            elements.add(evaluateExpression(element));
+            array.add(evaluateExpression(element));
         }
-        return new SiyoArray(elements, node.getElementType());
+        return array;
     }
 
     private Object evaluateIndexExpression(BoundIndexExpression node) throws Exception {
@@ -983,11 +1070,7 @@ public class Evaluator {
             return null;
         }
         if (function == BuiltinFunctions.RANGE) {
-            int start = (int) arguments[0];
-            int end = (int) arguments[1];
-            java.util.List<Object> elements = new java.util.ArrayList<>();
-            for (int i = start; i < end; i++) elements.add(i);
-            return new SiyoArray(elements, Integer.class);
+            return SiyoArray.range((int) arguments[0], (int) arguments[1]);
         }
         if (function == BuiltinFunctions.PUSH) {
             SiyoArray arr = (SiyoArray) arguments[0];
@@ -1017,37 +1100,54 @@ public class Evaluator {
             // Sort using closure as comparator
             arr.sort((a, b) -> {
                 try {
-                    // Call closure with (a, b) → int
-                    StackFrame frame = new StackFrame(null);
-                    for (var entry : comparator.getCapturedVars().entrySet()) {
-                        frame.getLocals().put(entry.getKey(), entry.getValue());
-                    }
-                    frame.getLocals().put(comparator.getParameters().get(0), a);
-                    frame.getLocals().put(comparator.getParameters().get(1), b);
-                    _callStack.push(frame);
                     _returnTriggered = false;
-                    evaluateBlock(comparator.getBody());
-                    _callStack.pop();
-                    Object result = _returnTriggered ? _returnValue : _lastValue;
-                    _returnTriggered = false;
-                    _returnValue = null;
-                    return (result instanceof Integer i) ? i : 0;
+                    return invokeClosure(comparator, a, b) instanceof Integer i ? i : 0;
                 } catch (Exception e) {
                     return 0;
                 }
             });
             return null;
         }
+        if (function == BuiltinFunctions.SORT_NATURAL) {
+            ((SiyoArray) arguments[0]).sort();
+            return null;
+        }
+        if (function == BuiltinFunctions.SORT_BY) {
+            SiyoArray arr = (SiyoArray) arguments[0];
+            SiyoClosure key = (SiyoClosure) arguments[1];
+            Object[] keys = new Object[arr.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = invokeClosure(key, arr.get(i));
+            }
+            arr.sortBy(keys);
+            return null;
+        }
         if (function == BuiltinFunctions.MAP_KEYS) {
             SiyoMap map = (SiyoMap) arguments[0];
             return map.keys();
         }
+        if (function == BuiltinFunctions.SET_VALUES) {
+            SiyoSet set = (SiyoSet) arguments[0];
+            return set.values();
+        }
         if (function == BuiltinFunctions.NEW_MAP) {
             return new SiyoMap();
         }
         if (function == BuiltinFunctions.NEW_SET) {
             return new SiyoSet();
         }
+        if (function == BuiltinFunctions.CONCURRENT_MAP) {
+            return new SiyoConcurrentMap();
+        }
+        if (function == BuiltinFunctions.ATOMIC_INT) {
+            return new SiyoAtomicInt();
+        }
+        if (function == BuiltinFunctions.ATOMIC_LONG) {
+            return new SiyoAtomicLong();
+        }
+        if (function == BuiltinFunctions.COUNTER) {
+            return new SiyoCounter();
+        }
         if (function == BuiltinFunctions.CHANNEL) {
             return new SiyoChannel(); // unbuffered (SynchronousQueue)
         }
@@ -1091,8 +1191,7 @@ public class Evaluator {
         }
         if (function == BuiltinFunctions.SPLIT) {
             String[] parts = ((String) arguments[0]).split(java.util.regex.Pattern.quote((String) arguments[1]), -1);
-            SiyoArray arr = new SiyoArray(java.util.Arrays.asList(parts), String.class);
-            return arr;
+            return SiyoArray.of(parts, String.class);
         }
         if (function == BuiltinFunctions.ACTOR_HANDLE) {
             // Extract __handle__ from the struct's fields map
@@ -1111,13 +1210,105 @@ public class Evaluator {
             if (arguments[0] instanceof java.io.Reader r) return r.ready();
             return false;
         }
+        if (function == BuiltinFunctions.JSON_ENCODE || function.getGeneric() == BuiltinFunctions.JSON_ENCODE) {
+            // Struct values already keep their fields in declaration order
+            return SiyoJsonWriter.toJson(arguments[0]);
+        }
+        if (function == BuiltinFunctions.JSON_DECODE) {
+            return SiyoJsonReader.parse((String) arguments[0]);
+        }
+        if (function.getGeneric() == BuiltinFunctions.JSON_DECODE) {
+            SiyoJsonReader reader = new SiyoJsonReader((String) arguments[0]);
+            SiyoStruct value = decodeStruct(reader, reader.next(), function.getTypeArgument());
+            reader.expectEnd();
+            return value;
+        }
         if (function == BuiltinFunctions.HTTP_GET) {
             return SiyoHttp.get((String) arguments[0]);
         }
         if (function == BuiltinFunctions.HTTP_POST) {
             return SiyoHttp.post((String) arguments[0], (String) arguments[1]);
         }
+        if (function == BuiltinFunctions.HTTP_SERVE) {
+            SiyoClosure handler = (SiyoClosure) arguments[1];
+            ReentrantLock lock = new ReentrantLock();
+            SiyoHttpServer.serve((Integer) arguments[0], request -> {
+                // Handlers share the globals (a server keeps its state there), so the
+                // interpreter runs one at a time; connections are still read concurrently.
+                // Not synchronized: a monitor pins the virtual thread to its carrier, and a
+                // handler waiting on httpGet would then starve the client's own threads
+                lock.lock();
+                try {
+                    Evaluator requestEval = new Evaluator(handler.getBody(), _globals, _functions);
+                    requestEval._actorTypeNames = _actorTypeNames;
+                    return requestEval.invokeClosure(handler, request);
+                } finally {
+                    lock.unlock();
+                }
+            });
+            return null;
+        }
+        if (function == BuiltinFunctions.LINES) {
+            return SiyoLines.open((String) arguments[0]);
+        }
+        if (function == BuiltinFunctions.MMAP) {
+            return SiyoMmap.open((String) arguments[0], (String) arguments[1]);
+        }
+        if (function == BuiltinFunctions.SEND_FILE) {
+            return SiyoStaticFiles.send((SiyoMap) arguments[0], (String) arguments[1]);
+        }
         throw new Exception("Unknown built-in function: " + function.getName());
     }
-}
 
+    /**
+     * Reads a struct whose first event has been read. Members the struct doesn't have are
+     * skipped, and fields missing from the JSON get their type's zero value.
+     */
+    private static SiyoStruct decodeStruct(SiyoJsonReader reader, int event, StructSymbol type) {
+        if (!reader.expectObject(event)) return null;
+        Map<String, Object> fields = new java.util.LinkedHashMap<>();
+        for (String field : type.getFieldNames()) {
+            fields.put(field, zeroValue(type.getFieldType(field)));
+        }
+        while (reader.next() == SiyoJsonReader.NAME) {
+            String name = reader.stringValue();
+            Class<?> fieldType = type.getFieldType(name);
+            if (fieldType == null) {
+                reader.skipValue();
+                continue;
+            }
+            fields.put(name, decodeField(reader, type, name, fieldType));
+        }
+        return new SiyoStruct(type, fields);
+    }
+
+    private static Object decodeField(SiyoJsonReader reader, StructSymbol type, String field, Class<?> fieldType) {
+        if (fieldType == Integer.class) return reader.readInt();
+        if (fieldType == Long.class) return reader.readLong();
+        if (fieldType == Double.class) return reader.readDouble();
+        if (fieldType == Boolean.class) return reader.readBoolean();
+        if (fieldType == String.class) return reader.readString();
+        StructSymbol fieldStruct = type.getFieldStruct(field);
+        if (fieldType == SiyoStruct.class && fieldStruct != null) {
+            return decodeStruct(reader, reader.next(), fieldStruct);
+        }
+        if (fieldType == SiyoArray.class && fieldStruct != null) {
+            if (!reader.expectArray(reader.next())) return null;
+            SiyoArray array = SiyoArray.withCapacity(0, Object.class);
+            for (int event = reader.next(); event != SiyoJsonReader.END_ARRAY; event = reader.next()) {
+                array.add(decodeStruct(reader, event, fieldStruct));
+            }
+            return array;
+        }
+        if (fieldType == SiyoArray.class) return reader.readArray(type.getFieldElementType(field));
+        return reader.readValue();
+    }
+
+    private static Object zeroValue(Class<?> type) {
+        if (type == Integer.class) return 0;
+        if (type == Long.class) return 0L;
+        if (type == Double.class) return 0.0;
+        if (type == Boolean.class) return false;
+        return null;
+    }
+}
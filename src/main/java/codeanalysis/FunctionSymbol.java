@@ -16,6 +16,8 @@ public class FunctionSymbol {
     private final Class<?> _returnType;
     private final String _moduleName;
     private String _returnStructName; // if return type is SiyoStruct, which struct
+    private FunctionSymbol _generic; // for jsonDecode<Todo> and the like: the builtin it instantiates
+    private StructSymbol _typeArgument;
 
     public FunctionSymbol(String name, List<ParameterSymbol> parameters, Class<?> returnType) {
         this(name, parameters, returnType, null);
@@ -31,6 +33,25 @@ public class FunctionSymbol {
     public String getModuleName() { return _moduleName; }
     public String getReturnStructName() { return _returnStructName; }
     public void setReturnStructName(String name) { _returnStructName = name; }
+    public FunctionSymbol getGeneric() { return _generic; }
+    public StructSymbol getTypeArgument() { return _typeArgument; }
+
+    /**
+     * Creates this function's instantiation for a struct type argument, as in
+     * {@code jsonDecode<Todo>(s)}. The instantiation is named after the type, so each struct
+     * gets its own symbol, and points back to this function.
+     *
+     * @param typeArgument The struct type.
+     * @param returnType   The instantiation's return type.
+     * @return The instantiated function symbol.
+     */
+    public FunctionSymbol instantiate(StructSymbol typeArgument, Class<?> returnType) {
+        FunctionSymbol instance = new FunctionSymbol(_name + "<" + typeArgument.getName() + ">", _parameters, returnType, _moduleName);
+        instance._generic = this;
+        instance._typeArgument = typeArgument;
+        if (returnType == SiyoStruct.class) instance._returnStructName = typeArgument.getName();
+        return instance;
+    }
 
     /**
      * Gets the name of the function.
@@ -14,6 +14,11 @@ public class JavaTypeMapper {
         if (descriptor.equals("Lcodeanalysis/SiyoArray;")) return SiyoArray.class;
         if (descriptor.equals("Lcodeanalysis/SiyoMap;")) return SiyoMap.class;
         if (descriptor.equals("Lcodeanalysis/SiyoChannel;")) return SiyoChannel.class;
+        if (descriptor.equals("Lcodeanalysis/SiyoConcurrentMap;")) return SiyoConcurrentMap.class;
+        if (descriptor.equals("Lcodeanalysis/SiyoAtomicInt;")) return SiyoAtomicInt.class;
+        if (descriptor.equals("Lcodeanalysis/SiyoAtomicLong;")) return SiyoAtomicLong.class;
+        if (descriptor.equals("Lcodeanalysis/SiyoCounter;")) return SiyoCounter.class;
+        if (descriptor.equals("Lcodeanalysis/SiyoMmap;")) return SiyoMmap.class;
         return switch (descriptor) {
             case "I" -> Integer.class;
             case "Z" -> Boolean.class;
@@ -108,6 +108,11 @@ public class SiyoActor {
         if (val instanceof SiyoActor) return val;
         // SiyoChannel — pass through (channels are shared communication primitives)
         if (val instanceof SiyoChannel) return val;
+        // Concurrent maps and atomics — pass through (made to be shared between tasks)
+        if (val instanceof SiyoConcurrentMap || val instanceof SiyoAtomicInt
+                || val instanceof SiyoAtomicLong || val instanceof SiyoCounter) {
+            return val;
+        }
         // SiyoStruct (LinkedHashMap) — deep copy all fields
         if (val instanceof SiyoStruct struct) {
             java.util.LinkedHashMap<String, Object> copy = new java.util.LinkedHashMap<>();
@@ -134,11 +139,11 @@ public class SiyoActor {
         }
         // SiyoArray — deep copy elements
         if (val instanceof SiyoArray arr) {
-            java.util.List<Object> elements = new java.util.ArrayList<>();
+            SiyoArray copy = SiyoArray.withCapacity(arr.size(), Object.class);
             for (int i = 0; i < arr.size(); i++) {
-                elements.add(deepCopyValue(arr.get(i)));
+                copy.add(deepCopyValue(arr.get(i)));
             }
-            return new SiyoArray(elements, Object.class);
+            return copy;
         }
         // SiyoMap — deep copy entries
         if (val instanceof SiyoMap map) {
@@ -2,6 +2,10 @@ package codeanalysis;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -9,14 +13,70 @@ import java.util.List;
  * Implements List<Object> for JVM interop compatibility.
  */
 public class SiyoArray extends AbstractList<Object> implements List<Object> {
-    private final ArrayList<Object> _elements;
+    private final List<Object> _elements;
     private final Class<?> _elementType;
 
+    /**
+     * Creates an array holding a copy of the given elements. Use {@link #wrap} when the caller
+     * built the list itself and does not keep it.
+     */
     public SiyoArray(List<Object> elements, Class<?> elementType) {
-        _elements = new ArrayList<>(elements);
+        this(elementType, new ArrayList<>(elements));
+    }
+
+    private SiyoArray(Class<?> elementType, List<Object> elements) {
+        _elements = elements;
         _elementType = elementType;
     }
 
+    /**
+     * Creates an array that takes ownership of the given list instead of copying it.
+     * The list must be growable and the caller must not use it afterwards.
+     */
+    public static SiyoArray wrap(List<Object> elements, Class<?> elementType) {
+        return new SiyoArray(elementType, elements);
+    }
+
+    /**
+     * Creates an empty array whose backing list is sized for the given number of elements,
+     * for callers that know the length up front and fill the array with {@link #add(Object)}.
+     * Arrays of ints, longs and floats keep their elements unboxed.
+     */
+    public static SiyoArray withCapacity(int capacity, Class<?> elementType) {
+        List<Object> elements;
+        if (elementType == Integer.class) elements = new SiyoIntArray(capacity);
+        else if (elementType == Long.class) elements = new SiyoLongArray(capacity);
+        else if (elementType == Double.class) elements = new SiyoDoubleArray(capacity);
+        else elements = new ArrayList<>(capacity);
+        return new SiyoArray(elementType, elements);
+    }
+
+    /**
+     * Creates an array with the elements of a Java array, copying them once into a
+     * presized list.
+     */
+    public static SiyoArray of(Object[] elements, Class<?> elementType) {
+        ArrayList<Object> list = new ArrayList<>(elements.length);
+        Collections.addAll(list, elements);
+        return new SiyoArray(elementType, list);
+    }
+
+    /**
+     * Creates the array returned by {@code range(start, end)}. Its elements are not
+     * materialized until the array is modified.
+     */
+    public static SiyoArray range(int start, int end) {
+        return new SiyoArray(Integer.class, new SiyoRange(start, end));
+    }
+
+    /**
+     * Creates an array over the keys, values or elements of a map or set without copying them.
+     * The owner must not modify the collection afterwards.
+     */
+    static SiyoArray view(Collection<Object> source) {
+        return new SiyoArray(Object.class, new SiyoCollectionView(source));
+    }
+
     @Override
     public Object get(int index) {
         return _elements.get(index);
@@ -58,6 +118,143 @@ public class SiyoArray extends AbstractList<Object> implements List<Object> {
         return _elements;
     }
 
+    // ========== Unboxed access ==========
+    // Arrays backed by a primitive list read and write without boxing; any other array
+    // falls back to the boxed element.
+
+    public int getInt(int index) {
+        return _elements instanceof SiyoIntArray ints ? ints.getInt(index) : (Integer) _elements.get(index);
+    }
+
+    public long getLong(int index) {
+        return _elements instanceof SiyoLongArray longs ? longs.getLong(index) : (Long) _elements.get(index);
+    }
+
+    public double getDouble(int index) {
+        return _elements instanceof SiyoDoubleArray doubles ? doubles.getDouble(index) : (Double) _elements.get(index);
+    }
+
+    public int setInt(int index, int value) {
+        return _elements instanceof SiyoIntArray ints ? ints.setInt(index, value) : (Integer) _elements.set(index, value);
+    }
+
+    public long setLong(int index, long value) {
+        return _elements instanceof SiyoLongArray longs ? longs.setLong(index, value) : (Long) _elements.set(index, value);
+    }
+
+    public double setDouble(int index, double value) {
+        return _elements instanceof SiyoDoubleArray doubles ? doubles.setDouble(index, value) : (Double) _elements.set(index, value);
+    }
+
+    public void addInt(int value) {
+        if (_elements instanceof SiyoIntArray ints) ints.addInt(value);
+        else _elements.add(value);
+    }
+
+    public void addLong(long value) {
+        if (_elements instanceof SiyoLongArray longs) longs.addLong(value);
+        else _elements.add(value);
+    }
+
+    public void addDouble(double value) {
+        if (_elements instanceof SiyoDoubleArray doubles) doubles.addDouble(value);
+        else _elements.add(value);
+    }
+
+    // ========== Java arrays ==========
+    // Arrays backed by a matching primitive list hand out their backing array, so Java code
+    // receives it without a copy and its writes are visible to Siyo.
+
+    public int[] toIntArray() {
+        if (_elements instanceof SiyoIntArray ints) return ints.toIntArray();
+        int[] result = new int[_elements.size()];
+        for (int i = 0; i < result.length; i++) result[i] = ((Number) _elements.get(i)).intValue();
+        return result;
+    }
+
+    public long[] toLongArray() {
+        if (_elements instanceof SiyoLongArray longs) return longs.toLongArray();
+        long[] result = new long[_elements.size()];
+        for (int i = 0; i < result.length; i++) result[i] = ((Number) _elements.get(i)).longValue();
+        return result;
+    }
+
+    public double[] toDoubleArray() {
+        if (_elements instanceof SiyoDoubleArray doubles) return doubles.toDoubleArray();
+        double[] result = new double[_elements.size()];
+        for (int i = 0; i < result.length; i++) result[i] = ((Number) _elements.get(i)).doubleValue();
+        return result;
+    }
+
+    public byte[] toByteArray() {
+        if (_elements instanceof SiyoBytes bytes) return bytes.toByteArray();
+        byte[] result = new byte[_elements.size()];
+        for (int i = 0; i < result.length; i++) {
+            if (_elements.get(i) instanceof Number n) result[i] = n.byteValue();
+        }
+        return result;
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        _elements.sort(c);
+        modCount++;
+    }
+
+    /**
+     * Sorts the elements in natural order: numbers by value, strings alphabetically.
+     * Arrays of ints, longs and floats sort their unboxed values directly.
+     */
+    public void sort() {
+        sort(_elements instanceof SiyoPrimitiveArray ? null : SiyoArray::compareValues);
+    }
+
+    /**
+     * Reorders the elements by the given keys, one per element, which the caller computes once
+     * per element instead of once per comparison. Equal keys keep their elements in the current
+     * order. When every key is an int, each key is packed with its position into a long and the
+     * longs are sorted as primitives.
+     */
+    public void sortBy(Object[] keys) {
+        Object[] elements = _elements.toArray();
+        if (keys.length != elements.length) {
+            throw new IllegalArgumentException("Expected " + elements.length + " sort keys, got " + keys.length);
+        }
+        boolean intKeys = true;
+        for (Object key : keys) {
+            if (!(key instanceof Integer)) {
+                intKeys = false;
+                break;
+            }
+        }
+
+        if (intKeys) {
+            long[] order = new long[keys.length];
+            for (int i = 0; i < order.length; i++) order[i] = ((long) (Integer) keys[i] << 32) | i;
+            Arrays.sort(order);
+            for (int i = 0; i < order.length; i++) _elements.set(i, elements[(int) order[i]]);
+        } else {
+            Integer[] order = new Integer[keys.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> compareValues(keys[a], keys[b]));
+            for (int i = 0; i < order.length; i++) _elements.set(i, elements[order[i]]);
+        }
+        modCount++;
+    }
+
+    /** Compares two values in natural order. Numbers of different types compare by value. */
+    @SuppressWarnings("unchecked")
+    static int compareValues(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y && a.getClass() != b.getClass()) {
+            if (x instanceof Double || y instanceof Double) return Double.compare(x.doubleValue(), y.doubleValue());
+            return Long.compare(x.longValue(), y.longValue());
+        }
+        if (a instanceof Comparable<?> c && a.getClass() == (b == null ? null : b.getClass())) {
+            return ((Comparable<Object>) c).compareTo(b);
+        }
+        throw new IllegalArgumentException("Cannot compare " + a + " and " + b);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("[");
@@ -84,12 +281,17 @@ public class SiyoArray extends AbstractList<Object> implements List<Object> {
     /**
      * Convert a Java array (Object[] or primitive[]) to a SiyoArray.
      * Used by the bytecode emitter to wrap Java interop array returns.
+     * int, long, double and byte arrays are wrapped as they are, without copying.
      */
     public static SiyoArray fromJavaArray(Object javaArray) {
-        if (javaArray == null) return new SiyoArray(List.of(), Object.class);
+        if (javaArray == null) return withCapacity(0, Object.class);
         if (javaArray instanceof Object[] arr) {
-            return new SiyoArray(java.util.Arrays.asList(arr), Object.class);
+            return of(arr, Object.class);
         }
+        if (javaArray instanceof int[] ints) return new SiyoArray(Integer.class, new SiyoIntArray(ints));
+        if (javaArray instanceof long[] longs) return new SiyoArray(Long.class, new SiyoLongArray(longs));
+        if (javaArray instanceof double[] doubles) return new SiyoArray(Double.class, new SiyoDoubleArray(doubles));
+        if (javaArray instanceof byte[] bytes) return new SiyoArray(Integer.class, new SiyoBytes(bytes));
         int len = java.lang.reflect.Array.getLength(javaArray);
         ArrayList<Object> elements = new ArrayList<>(len);
         for (int i = 0; i < len; i++) {
@@ -100,6 +302,6 @@ public class SiyoArray extends AbstractList<Object> implements List<Object> {
             else if (elem instanceof Character c) elements.add(String.valueOf(c));
             else elements.add(elem);
         }
-        return new SiyoArray(elements, Object.class);
+        return wrap(elements, Object.class);
     }
 }
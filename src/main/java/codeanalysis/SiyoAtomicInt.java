@@ -0,0 +1,26 @@
+package codeanalysis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Built-in atomic int, created by {@code atomicInt()}. Spawned tasks can share it directly;
+ * every operation is a single atomic instruction instead of an actor round trip.
+ */
+public class SiyoAtomicInt {
+    private final AtomicInteger _value = new AtomicInteger();
+
+    public int get() { return _value.get(); }
+    public void set(int value) { _value.set(value); }
+
+    /** Atomically adds the delta and returns the new value. */
+    public int add(int delta) { return _value.addAndGet(delta); }
+
+    /** Atomically adds 1 and returns the new value. */
+    public int increment() { return _value.incrementAndGet(); }
+
+    /** Atomically sets the value if it currently equals the expected one. Returns true if it was set. */
+    public boolean cas(int expected, int value) { return _value.compareAndSet(expected, value); }
+
+    @Override
+    public String toString() { return Integer.toString(_value.get()); }
+}
@@ -0,0 +1,26 @@
+package codeanalysis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Built-in atomic long, created by {@code atomicLong()}. Spawned tasks can share it directly;
+ * every operation is a single atomic instruction instead of an actor round trip.
+ */
+public class SiyoAtomicLong {
+    private final AtomicLong _value = new AtomicLong();
+
+    public long get() { return _value.get(); }
+    public void set(long value) { _value.set(value); }
+
+    /** Atomically adds the delta and returns the new value. */
+    public long add(long delta) { return _value.addAndGet(delta); }
+
+    /** Atomically adds 1 and returns the new value. */
+    public long increment() { return _value.incrementAndGet(); }
+
+    /** Atomically sets the value if it currently equals the expected one. Returns true if it was set. */
+    public boolean cas(long expected, long value) { return _value.compareAndSet(expected, value); }
+
+    @Override
+    public String toString() { return Long.toString(_value.get()); }
+}
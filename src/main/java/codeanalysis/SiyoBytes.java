@@ -0,0 +1,61 @@
+package codeanalysis;
+
+import java.util.Arrays;
+
+/**
+ * The list behind a byte buffer, such as the array {@code readBytes} returns, holding its
+ * elements in a {@code byte[]}. Elements read as ints from 0 to 255; storing anything outside
+ * that range turns the array into an ordinary one.
+ */
+public class SiyoBytes extends SiyoPrimitiveArray {
+    private byte[] _values;
+
+    /**
+     * Creates a list over the given bytes. The array is used as is, not copied.
+     */
+    public SiyoBytes(byte[] values) {
+        _values = values;
+        _size = values.length;
+    }
+
+    /**
+     * Returns the elements as a {@code byte[]}. The backing array itself is returned, trimmed to
+     * the length first if needed, so changes made through it show up in the list.
+     */
+    public byte[] toByteArray() {
+        if (isGeneric()) {
+            byte[] result = new byte[size()];
+            for (int i = 0; i < result.length; i++) {
+                if (get(i) instanceof Number n) result[i] = n.byteValue();
+            }
+            return result;
+        }
+        if (_values.length != _size) _values = Arrays.copyOf(_values, _size);
+        return _values;
+    }
+
+    @Override
+    protected Object box(int index) {
+        return _values[index] & 0xFF;
+    }
+
+    @Override
+    protected boolean accepts(Object value) {
+        return value instanceof Integer i && i >= 0 && i <= 0xFF;
+    }
+
+    @Override
+    protected void store(int index, Object value) {
+        _values[index] = (byte) (int) (Integer) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > _values.length) _values = Arrays.copyOf(_values, grow(_values.length, capacity));
+    }
+
+    @Override
+    protected void move(int from, int to, int length) {
+        System.arraycopy(_values, from, _values, to, length);
+    }
+}
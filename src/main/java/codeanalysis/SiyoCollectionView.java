@@ -0,0 +1,88 @@
+package codeanalysis;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * A list view over the keys or values of a map, or the elements of a set, used for
+ * {@code keys()}, {@code values()} and for-in loops.
+ * <p>
+ * The owning map or set stops writing to the backing collection once a view has been handed
+ * out (it copies on its next write instead), so the view is a stable snapshot without copying
+ * anything up front. Reading the elements in order, as a for-in loop does, walks a cached
+ * iterator; any other access pattern or a modification copies the elements into an ordinary list.
+ */
+public class SiyoCollectionView extends AbstractList<Object> {
+    private final Collection<Object> _source;
+    private Iterator<Object> _iterator;
+    private int _nextIndex;
+    private ArrayList<Object> _materialized;
+
+    /**
+     * Creates a view over a collection its owner no longer modifies.
+     *
+     * @param source The backing collection.
+     */
+    public SiyoCollectionView(Collection<Object> source) {
+        _source = source;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (_materialized != null) return _materialized.get(index);
+        if (index < 0 || index >= _source.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + _source.size());
+        }
+        if (index == 0 && _nextIndex != 0) {
+            _iterator = null;
+            _nextIndex = 0;
+        }
+        if (index != _nextIndex) return materialize().get(index);
+        if (_iterator == null) _iterator = _source.iterator();
+        _nextIndex++;
+        return _iterator.next();
+    }
+
+    @Override
+    public int size() {
+        return _materialized != null ? _materialized.size() : _source.size();
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return _materialized != null ? _materialized.iterator() : _source.iterator();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return _materialized != null ? _materialized.contains(o) : _source.contains(o);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        return materialize().set(index, element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        materialize().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        Object removed = materialize().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    private ArrayList<Object> materialize() {
+        if (_materialized == null) {
+            _materialized = new ArrayList<>(_source);
+            _iterator = null;
+        }
+        return _materialized;
+    }
+}
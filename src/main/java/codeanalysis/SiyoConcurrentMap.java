@@ -0,0 +1,108 @@
+package codeanalysis;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Built-in map type that spawned tasks can share, created by {@code concurrentMap()}.
+ * <p>
+ * Backed by a {@link ConcurrentHashMap}: reads don't lock and writes lock only the bin they
+ * touch, so many tasks can use the map at once without going through an actor. Unlike
+ * {@link SiyoMap} the entries have no order, and {@code keys()} and {@code values()} are copies
+ * that may or may not include changes made while they are being taken.
+ * <p>
+ * A null value means the key is absent, as in {@link SiyoMap#get}: setting a key to null removes
+ * it. A null key is never present, so reads report it absent and removing it does nothing, but
+ * storing a value under it is an error.
+ */
+public class SiyoConcurrentMap {
+    private final ConcurrentHashMap<Object, Object> _entries = new ConcurrentHashMap<>();
+
+    /** Sets the value for the key. Setting a null value removes the key. */
+    public void set(Object key, Object value) {
+        if (value == null) remove(key);
+        else _entries.put(requireKey(key), value);
+    }
+
+    public Object get(Object key) { return key == null ? null : _entries.get(key); }
+    public boolean has(Object key) { return key != null && _entries.containsKey(key); }
+    public void remove(Object key) { if (key != null) _entries.remove(key); }
+    public int size() { return _entries.size(); }
+
+    public SiyoArray keys() {
+        return SiyoArray.wrap(new ArrayList<>(_entries.keySet()), Object.class);
+    }
+
+    public SiyoArray values() {
+        return SiyoArray.wrap(new ArrayList<>(_entries.values()), Object.class);
+    }
+
+    /**
+     * Atomically adds 1 to the integer value of the key, starting from 0, and returns the new
+     * value. Fails, leaving the value as it was, if the key holds something other than an int.
+     */
+    public int increment(Object key) {
+        return (Integer) _entries.merge(requireKey(key), 1, (old, one) -> {
+            if (old instanceof Integer i) return i + 1;
+            throw new IllegalStateException("concurrentMap.increment: value of key " + key
+                    + " is not an int: " + old);
+        });
+    }
+
+    /**
+     * Returns the value of the key, first setting it to the given value if the key is absent.
+     * When several tasks race, all of them get the value that was set first. A null value
+     * sets nothing, so it returns the current value or null.
+     */
+    public Object getOrSet(Object key, Object value) {
+        if (value == null) return get(key);
+        Object existing = _entries.putIfAbsent(requireKey(key), value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * Atomically sets the key to the new value if its current value equals the expected one,
+     * or if the key is absent and the expected value is null. Returns true if the value was set.
+     * A null new value removes the key.
+     */
+    public boolean compareAndSet(Object key, Object expected, Object value) {
+        if (value == null) {
+            if (expected == null) return !has(key);
+            return key != null && _entries.remove(key, expected);
+        }
+        if (expected == null) return _entries.putIfAbsent(requireKey(key), value) == null;
+        return key != null && _entries.replace(key, expected, value);
+    }
+
+    /** Get integer value, default 0. */
+    public int getInt(Object key) {
+        Object val = get(key);
+        if (val instanceof Integer i) return i;
+        return 0;
+    }
+
+    /** Get string value, default "". */
+    public String getStr(Object key) {
+        Object val = get(key);
+        if (val == null) return "";
+        return val.toString();
+    }
+
+    private static Object requireKey(Object key) {
+        if (key == null) throw new IllegalArgumentException("concurrentMap key cannot be null");
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        boolean first = true;
+        for (var entry : _entries.entrySet()) {
+            if (!first) sb.append(", ");
+            sb.append(entry.getKey()).append(": ").append(entry.getValue());
+            first = false;
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+}
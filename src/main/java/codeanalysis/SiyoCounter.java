@@ -0,0 +1,25 @@
+package codeanalysis;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in counter, created by {@code counter()}, for totals that many tasks bump at once.
+ * Backed by a {@link LongAdder}: concurrent adds go to separate cells instead of contending on
+ * one value, and {@code get()} sums the cells. Use an {@code atomicLong()} instead when the
+ * current value has to be read on every update.
+ */
+public class SiyoCounter {
+    private final LongAdder _cells = new LongAdder();
+
+    public void add(long delta) { _cells.add(delta); }
+    public void increment() { _cells.increment(); }
+
+    /** Returns the current total. Not a snapshot while other tasks are still adding. */
+    public long get() { return _cells.sum(); }
+
+    /** Returns the current total and resets the counter to 0. */
+    public long reset() { return _cells.sumThenReset(); }
+
+    @Override
+    public String toString() { return Long.toString(_cells.sum()); }
+}
@@ -0,0 +1,100 @@
+package codeanalysis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The list behind a {@code float[]} array, holding its elements in a {@code double[]}.
+ */
+public class SiyoDoubleArray extends SiyoPrimitiveArray {
+    private double[] _values;
+
+    /**
+     * Creates an empty list with room for the given number of elements.
+     */
+    public SiyoDoubleArray(int capacity) {
+        _values = new double[capacity];
+    }
+
+    /**
+     * Creates a list over the given array. The array is used as is, not copied.
+     */
+    public SiyoDoubleArray(double[] values) {
+        _values = values;
+        _size = values.length;
+    }
+
+    public double getDouble(int index) {
+        if (isGeneric()) return (Double) generic().get(index);
+        Objects.checkIndex(index, _size);
+        return _values[index];
+    }
+
+    public double setDouble(int index, double value) {
+        if (isGeneric()) return (Double) generic().set(index, value);
+        Objects.checkIndex(index, _size);
+        double old = _values[index];
+        _values[index] = value;
+        return old;
+    }
+
+    public void addDouble(double value) {
+        if (isGeneric()) {
+            add(value);
+            return;
+        }
+        ensureCapacity(_size + 1);
+        _values[_size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Returns the elements as a {@code double[]}. The backing array itself is returned, trimmed to
+     * the length first if needed, so changes made through it show up in the list.
+     */
+    public double[] toDoubleArray() {
+        if (isGeneric()) {
+            double[] result = new double[size()];
+            for (int i = 0; i < result.length; i++) result[i] = ((Number) get(i)).doubleValue();
+            return result;
+        }
+        if (_values.length != _size) _values = Arrays.copyOf(_values, _size);
+        return _values;
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        if (c != null || isGeneric()) {
+            super.sort(c);
+            return;
+        }
+        Arrays.sort(_values, 0, _size);
+        modCount++;
+    }
+
+    @Override
+    protected Object box(int index) {
+        return _values[index];
+    }
+
+    @Override
+    protected boolean accepts(Object value) {
+        return value instanceof Double;
+    }
+
+    @Override
+    protected void store(int index, Object value) {
+        _values[index] = (Double) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > _values.length) _values = Arrays.copyOf(_values, grow(_values.length, capacity));
+    }
+
+    @Override
+    protected void move(int from, int to, int length) {
+        System.arraycopy(_values, from, _values, to, length);
+    }
+}
@@ -1,14 +1,32 @@
 package codeanalysis;
 
 import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Bootstrap methods for invokedynamic in Siyo bytecode.
  * Handles method calls on dynamically-typed values (compile-time Object).
- * First call resolves method via runtime type → MethodHandle cached by JVM.
+ * The methods a name can refer to are looked up once per runtime class and cached,
+ * so repeated calls only pick among the cached candidates.
  */
 public class SiyoDynamic {
 
+    /** Public methods of each runtime class by name, already resolved to a callable declaration. */
+    private static final ClassValue<Map<String, Method[]>> METHODS = new ClassValue<>() {
+        @Override
+        protected Map<String, Method[]> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /** Lifecycle methods callable directly on an actor reference. */
+    private static final Method[] ACTOR_METHODS = SiyoActor.class.getDeclaredMethods();
+
     /**
      * Bootstrap method for dynamic method dispatch.
      * Called by JVM on first invokedynamic execution.
@@ -34,7 +52,6 @@ public class SiyoDynamic {
 
     /**
      * Resolve method at runtime using the actual type of the first argument (target).
-     * After resolution, updates the CallSite with a direct MethodHandle for future calls.
      */
     public static Object resolve(MutableCallSite callSite, String methodName, Object[] args) throws Throwable {
         if (args.length == 0) {
@@ -50,7 +67,7 @@ public class SiyoDynamic {
         // then route user-defined methods through actor.call()
         if (target instanceof SiyoActor actor) {
             // Check if method exists directly on SiyoActor (lifecycle methods)
-            for (var m : SiyoActor.class.getDeclaredMethods()) {
+            for (Method m : ACTOR_METHODS) {
                 if (m.getName().equals(methodName) && m.getParameterCount() == args.length - 1) {
                     Object[] methodArgs = new Object[args.length - 1];
                     System.arraycopy(args, 1, methodArgs, 0, methodArgs.length);
@@ -67,52 +84,39 @@ public class SiyoDynamic {
         Object[] methodArgs = new Object[args.length - 1];
         System.arraycopy(args, 1, methodArgs, 0, methodArgs.length);
 
-        // Find the method on the actual runtime type
-        for (var method : targetClass.getMethods()) {
-            if (method.getName().equals(methodName) && method.getParameterCount() == methodArgs.length) {
-                try {
-                    // Coerce args
-                    Class<?>[] paramTypes = method.getParameterTypes();
-                    for (int i = 0; i < methodArgs.length; i++) {
-                        if (methodArgs[i] instanceof SiyoArray && paramTypes[i].isArray()) {
-                            methodArgs[i] = siyoArrayToJavaArray((SiyoArray) methodArgs[i], paramTypes[i].getComponentType());
-                        }
+        // Pick among the methods of the actual runtime type
+        for (Method method : methodsNamed(targetClass, methodName)) {
+            if (method.getParameterCount() != methodArgs.length) continue;
+            try {
+                // Coerce args
+                Class<?>[] paramTypes = method.getParameterTypes();
+                for (int i = 0; i < methodArgs.length; i++) {
+                    if (methodArgs[i] instanceof SiyoArray && paramTypes[i].isArray()) {
+                        methodArgs[i] = siyoArrayToJavaArray((SiyoArray) methodArgs[i], paramTypes[i].getComponentType());
                     }
+                }
 
-                    Object result;
-                    try {
-                        result = method.invoke(target, methodArgs);
-                    } catch (IllegalAccessException iae) {
-                        // Module-private class (e.g. SocketOutputStream) — find on public superclass/interface
-                        java.lang.reflect.Method accessible = findAccessibleMethod(targetClass, methodName, paramTypes);
-                        if (accessible != null) {
-                            result = accessible.invoke(target, methodArgs);
-                        } else {
-                            method.setAccessible(true);
-                            result = method.invoke(target, methodArgs);
-                        }
-                    }
+                Object result = method.invoke(target, methodArgs);
 
-                    // Convert Java return types to Siyo types
-                    if (result instanceof Long) return result; // preserve as Long
-                    if (result instanceof Short s) return (int) s;
-                    if (result instanceof Byte b) return (int) b;
-                    if (result instanceof Float f) return f.doubleValue();
-                    if (result instanceof Character c) return String.valueOf(c);
-                    if (result != null && result.getClass().isArray()) {
-                        int len = java.lang.reflect.Array.getLength(result);
-                        java.util.List<Object> elements = new java.util.ArrayList<>();
-                        for (int i = 0; i < len; i++) {
-                            Object elem = java.lang.reflect.Array.get(result, i);
-                            if (elem instanceof Byte bv) elements.add((int) bv);
-                            else elements.add(elem);
-                        }
-                        return new SiyoArray(elements, Object.class);
+                // Convert Java return types to Siyo types
+                if (result instanceof Long) return result; // preserve as Long
+                if (result instanceof Short s) return (int) s;
+                if (result instanceof Byte b) return (int) b;
+                if (result instanceof Float f) return f.doubleValue();
+                if (result instanceof Character c) return String.valueOf(c);
+                if (result != null && result.getClass().isArray()) {
+                    int len = java.lang.reflect.Array.getLength(result);
+                    java.util.List<Object> elements = new java.util.ArrayList<>(len);
+                    for (int i = 0; i < len; i++) {
+                        Object elem = java.lang.reflect.Array.get(result, i);
+                        if (elem instanceof Byte bv) elements.add((int) bv);
+                        else elements.add(elem);
                     }
-                    return result;
-                } catch (IllegalArgumentException e) {
-                    continue;
+                    return SiyoArray.wrap(elements, Object.class);
                 }
+                return result;
+            } catch (IllegalArgumentException e) {
+                continue;
             }
         }
 
@@ -120,6 +124,35 @@ public class SiyoDynamic {
                 + " with " + methodArgs.length + " args");
     }
 
+    /** Returns the public methods of the class with the given name, looking them up on first use. */
+    private static Method[] methodsNamed(Class<?> targetClass, String methodName) {
+        Map<String, Method[]> methods = METHODS.get(targetClass);
+        Method[] cached = methods.get(methodName);
+        if (cached != null) return cached;
+        List<Method> found = new ArrayList<>();
+        for (Method method : targetClass.getMethods()) {
+            if (method.getName().equals(methodName)) found.add(callable(targetClass, method));
+        }
+        cached = found.toArray(new Method[0]);
+        methods.putIfAbsent(methodName, cached);
+        return cached;
+    }
+
+    /**
+     * Returns a declaration of the method that can be invoked from here. Methods declared by a
+     * module-private class (e.g. SocketOutputStream) are called through a public supertype.
+     */
+    private static Method callable(Class<?> targetClass, Method method) {
+        Class<?> owner = method.getDeclaringClass();
+        if (Modifier.isPublic(owner.getModifiers()) && owner.getModule().isExported(owner.getPackageName())) {
+            return method;
+        }
+        Method accessible = findAccessibleMethod(targetClass, method.getName(), method.getParameterTypes());
+        if (accessible != null) return accessible;
+        method.trySetAccessible();
+        return method;
+    }
+
     /**
      * Find a method on a public superclass or interface when the declaring class is module-private.
      */
@@ -144,6 +177,11 @@ public class SiyoDynamic {
     }
 
     private static Object siyoArrayToJavaArray(SiyoArray arr, Class<?> componentType) {
+        // Primitive arrays come straight from a matching backing array
+        if (componentType == int.class) return arr.toIntArray();
+        if (componentType == long.class) return arr.toLongArray();
+        if (componentType == double.class) return arr.toDoubleArray();
+        if (componentType == byte.class) return arr.toByteArray();
         Object javaArr = java.lang.reflect.Array.newInstance(componentType, arr.length());
         for (int i = 0; i < arr.length(); i++) {
             Object elem = arr.get(i);
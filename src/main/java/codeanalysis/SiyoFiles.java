@@ -0,0 +1,95 @@
+package codeanalysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Text file runtime for std/io. Whole-file reads and writes go through {@link Files} in one
+ * call, in UTF-8, with the content exactly as on disk.
+ * <p>
+ * {@link #openWriter} gives a buffered writer that stays open across calls, so a program writing
+ * a file piece by piece doesn't reopen it for each piece. Writers still open when the program
+ * exits are flushed then.
+ */
+public class SiyoFiles {
+    private static final int WRITER_BUFFER = 64 * 1024;
+    private static final Set<Writer> OPEN_WRITERS = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Writer writer : OPEN_WRITERS) {
+                try {
+                    writer.flush();
+                } catch (IOException ignored) {
+                }
+            }
+        }, "siyo-flush-writers"));
+    }
+
+    /** Like Files.readString, but bytes that aren't valid UTF-8 become U+FFFD instead of failing. */
+    public static String readString(String path) throws IOException {
+        return new String(Files.readAllBytes(Path.of(path)), StandardCharsets.UTF_8);
+    }
+
+    public static void writeString(String path, String content) throws IOException {
+        Files.writeString(Path.of(path), content, StandardCharsets.UTF_8);
+    }
+
+    public static void appendString(String path, String content) throws IOException {
+        Files.writeString(Path.of(path), content, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /** All lines, without terminators, in an array sized once. */
+    public static SiyoArray readLines(String path) throws IOException {
+        return SiyoArray.of(readString(path).lines().toArray(), String.class);
+    }
+
+    /** Opens a buffered writer, replacing the file or appending to it. */
+    public static Writer openWriter(String path, boolean append) throws IOException {
+        Writer writer = new TrackedWriter(new OutputStreamWriter(Files.newOutputStream(Path.of(path),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8), WRITER_BUFFER);
+        OPEN_WRITERS.add(writer);
+        return writer;
+    }
+
+    public static void write(Object writer, String text) throws IOException {
+        ((Writer) writer).write(text);
+    }
+
+    public static void writeLine(Object writer, String text) throws IOException {
+        Writer w = (Writer) writer;
+        w.write(text);
+        w.write('\n');
+    }
+
+    public static void flush(Object writer) throws IOException {
+        ((Writer) writer).flush();
+    }
+
+    public static void close(Object writer) throws IOException {
+        ((Writer) writer).close();
+    }
+
+    /** A buffered writer that leaves the open set when closed. */
+    private static final class TrackedWriter extends BufferedWriter {
+        TrackedWriter(Writer out, int size) {
+            super(out, size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            OPEN_WRITERS.remove(this);
+            super.close();
+        }
+    }
+}
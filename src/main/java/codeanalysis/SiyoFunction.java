@@ -0,0 +1,74 @@
+package codeanalysis;
+
+/**
+ * Runtime representation of a closure in compiled Siyo code.
+ * <p>
+ * Each lambda is turned into an instance of one of the nested arity interfaces by
+ * {@code LambdaMetafactory}, implemented directly by the lambda's static method, so a call with
+ * a matching number of arguments is a single interface call the JIT can inline. Parameters are
+ * unboxed by the generated class on the way in, so the lambda body works on primitives. Calls
+ * with another number of arguments, and calls from the runtime, go through {@link #call}.
+ * <p>
+ * The interpreter keeps using {@link SiyoClosure}.
+ */
+public interface SiyoFunction {
+
+    /** Calls the function with any number of arguments. */
+    Object call(Object[] args);
+
+    default Object call0() {
+        return call(new Object[0]);
+    }
+
+    default Object call1(Object a) {
+        return call(new Object[]{a});
+    }
+
+    default Object call2(Object a, Object b) {
+        return call(new Object[]{a, b});
+    }
+
+    default Object call3(Object a, Object b, Object c) {
+        return call(new Object[]{a, b, c});
+    }
+
+    interface Arity0 extends SiyoFunction {
+        @Override
+        Object call0();
+
+        @Override
+        default Object call(Object[] args) {
+            return call0();
+        }
+    }
+
+    interface Arity1 extends SiyoFunction {
+        @Override
+        Object call1(Object a);
+
+        @Override
+        default Object call(Object[] args) {
+            return call1(args[0]);
+        }
+    }
+
+    interface Arity2 extends SiyoFunction {
+        @Override
+        Object call2(Object a, Object b);
+
+        @Override
+        default Object call(Object[] args) {
+            return call2(args[0], args[1]);
+        }
+    }
+
+    interface Arity3 extends SiyoFunction {
+        @Override
+        Object call3(Object a, Object b, Object c);
+
+        @Override
+        default Object call(Object[] args) {
+            return call3(args[0], args[1], args[2]);
+        }
+    }
+}
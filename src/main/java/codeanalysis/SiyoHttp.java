@@ -1,48 +1,119 @@
 package codeanalysis;
 
-import java.io.*;
-import java.net.HttpURLConnection;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Built-in HTTP client for Siyo. Used by httpGet() and httpPost() builtins.
+ * Built-in HTTP client for Siyo. Used by httpGet() and httpPost() builtins and by std/net.
+ * <p>
+ * Every request goes through one shared {@link HttpClient} speaking HTTP/1.1. It keeps
+ * connections open after a response and reuses them for the next request to the same host, so
+ * a proxy forwarding many requests to one backend doesn't connect for each. Bodies travel as
+ * bytes: string responses are the received bytes decoded as UTF-8, line endings included.
+ * Connect and request timeouts default to 5 seconds and can be changed with
+ * {@link #setTimeouts(int, int)}. A response with an error status still returns its body.
  */
 public class SiyoHttp {
+    // Shared by every client this class builds; virtual threads leave nothing to shut down when idle
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static volatile Duration _connectTimeout = Duration.ofSeconds(5);
+    private static volatile Duration _requestTimeout = Duration.ofSeconds(5);
+    private static volatile HttpClient _client;
 
     public static String get(String url) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(5000);
-        return readResponse(conn);
+        return request("GET", url, null);
     }
 
     public static String post(String url, String body) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
-        conn.setRequestMethod("POST");
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(5000);
-        conn.setDoOutput(true);
-        conn.setRequestProperty("Content-Type", "application/json");
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(body.getBytes());
+        return request("POST", url, body);
+    }
+
+    /** Sends a request with any method. The body may be a string, a byte array or null. */
+    public static String request(String method, String url, Object body) throws Exception {
+        return decode(client().send(buildRequest(method, url, body), HttpResponse.BodyHandlers.ofByteArray()).body());
+    }
+
+    /** Like {@link #request}, returning the response body as a byte array. */
+    public static SiyoArray requestBytes(String method, String url, Object body) throws Exception {
+        byte[] bytes = client().send(buildRequest(method, url, body), HttpResponse.BodyHandlers.ofByteArray()).body();
+        return SiyoArray.fromJavaArray(bytes);
+    }
+
+    public static CompletableFuture<String> getAsync(String url) {
+        return requestAsync("GET", url, null);
+    }
+
+    public static CompletableFuture<String> postAsync(String url, String body) {
+        return requestAsync("POST", url, body);
+    }
+
+    /** Starts a request and returns right away. The future completes with the response body. */
+    public static CompletableFuture<String> requestAsync(String method, String url, Object body) {
+        return client().sendAsync(buildRequest(method, url, body), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> decode(response.body()));
+    }
+
+    /**
+     * Sets the timeouts for later requests, in milliseconds. The request timeout is set on each
+     * request. The connect timeout belongs to the client, so changing it replaces the client:
+     * the old one is shut down, and requests already sent on it finish first.
+     */
+    public static synchronized void setTimeouts(int connectMillis, int requestMillis) {
+        _requestTimeout = Duration.ofMillis(requestMillis);
+        Duration connectTimeout = Duration.ofMillis(connectMillis);
+        if (connectTimeout.equals(_connectTimeout)) return;
+        _connectTimeout = connectTimeout;
+        HttpClient old = _client;
+        _client = null;
+        if (old != null) old.shutdown();
+    }
+
+    static HttpClient client() {
+        HttpClient client = _client;
+        if (client != null) return client;
+        synchronized (SiyoHttp.class) {
+            if (_client == null) {
+                _client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(_connectTimeout)
+                        .followRedirects(HttpClient.Redirect.NORMAL)
+                        .executor(EXECUTOR)
+                        .build();
+            }
+            return _client;
         }
-        return readResponse(conn);
-    }
-
-    private static String readResponse(HttpURLConnection conn) throws Exception {
-        int status = conn.getResponseCode();
-        InputStream is = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
-        if (is == null) return "";
-        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (sb.length() > 0) sb.append("\n");
-            sb.append(line);
+    }
+
+    private static HttpRequest buildRequest(String method, String url, Object body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(_requestTimeout);
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        byte[] bytes;
+        if (body instanceof String s) {
+            bytes = s.getBytes(StandardCharsets.UTF_8);
+            builder.header("Content-Type", "application/json");
+        } else if (body instanceof SiyoArray array) {
+            bytes = array.toByteArray();
+            builder.header("Content-Type", "application/octet-stream");
+        } else if (body instanceof byte[] raw) {
+            bytes = raw;
+            builder.header("Content-Type", "application/octet-stream");
+        } else {
+            throw new IllegalArgumentException("Cannot send " + body.getClass().getSimpleName() + " as a request body");
         }
-        reader.close();
-        conn.disconnect();
-        return sb.toString();
+        return builder.method(method, HttpRequest.BodyPublishers.ofByteArray(bytes)).build();
+    }
+
+    private static String decode(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8);
     }
 }
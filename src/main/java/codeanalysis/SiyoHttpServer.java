@@ -0,0 +1,567 @@
+package codeanalysis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/1.1 server behind the httpServe(port, handler) builtin.
+ * <p>
+ * Each connection is served on its own virtual thread, so a handler can block on I/O without
+ * holding up other clients. Connections stay open between requests, and requests a client sends
+ * without waiting for answers (pipelining) are answered in order, their responses flushed
+ * together once no further request is buffered. Request bodies may come with a Content-Length
+ * or chunked, but not both; a response whose body is a stream is sent chunked, and one whose
+ * body is a file {@link Path} goes from the file to the socket with
+ * {@link FileChannel#transferTo}, without passing through the heap. A connection reads and
+ * writes through two byte buffers taken from a shared pool and handed back when it closes.
+ * <p>
+ * The handler receives the request as a map with {@code method}, {@code path}, {@code query},
+ * {@code version}, {@code headers} (names lower-cased) and {@code body}. It returns the response
+ * body as a string or byte array, or a map with {@code status}, {@code headers} and {@code body};
+ * null sends 204 No Content. An exception thrown by the handler sends a 500 with its message.
+ */
+public class SiyoHttpServer implements AutoCloseable {
+
+    /** Turns a request map into a response. */
+    public interface Handler {
+        Object handle(SiyoMap request) throws Exception;
+    }
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 256;
+    private static final int MAX_BODY = 16 * 1024 * 1024;
+    private static final int IDLE_TIMEOUT_MILLIS = 30_000;
+    private static final int LINGER_MILLIS = 1_000;
+    private static final int MAX_LINGER_BYTES = 1024 * 1024;
+    private static final int ACCEPT_BACKOFF_MILLIS = 50;
+
+    private static final ConcurrentLinkedQueue<byte[]> BUFFERS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final ServerSocketChannel _channel;
+    private final Handler _handler;
+    private final Set<SocketChannel> _connections = ConcurrentHashMap.newKeySet();
+    private final Thread _acceptor;
+
+    private SiyoHttpServer(ServerSocketChannel channel, Handler handler) {
+        _channel = channel;
+        _handler = handler;
+        _acceptor = Thread.ofVirtual().name("siyo-http-accept").start(this::acceptLoop);
+    }
+
+    /** Starts serving on the port in the background. Port 0 picks a free port. */
+    public static SiyoHttpServer start(int port, Handler handler) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.socket().setReuseAddress(true);
+        channel.bind(new InetSocketAddress(port), 1024);
+        return new SiyoHttpServer(channel, handler);
+    }
+
+    /** Serves on the port until the server socket fails or the calling thread is interrupted. */
+    public static void serve(int port, Handler handler) throws IOException, InterruptedException {
+        try (SiyoHttpServer server = start(port, handler)) {
+            server.join();
+        }
+    }
+
+    public int getPort() {
+        return _channel.socket().getLocalPort();
+    }
+
+    /** Waits until the server stops accepting connections. */
+    public void join() throws InterruptedException {
+        _acceptor.join();
+    }
+
+    /** Stops accepting and closes every open connection. */
+    @Override
+    public void close() {
+        closeQuietly(_channel);
+        for (SocketChannel connection : _connections) closeQuietly(connection);
+    }
+
+    private void acceptLoop() {
+        while (_channel.isOpen()) {
+            try {
+                SocketChannel socket = _channel.accept();
+                socket.socket().setTcpNoDelay(true);
+                _connections.add(socket);
+                Thread.startVirtualThread(() -> serveConnection(socket));
+            } catch (IOException e) {
+                // Out of file descriptors, say: back off instead of spinning until some are freed
+                if (!_channel.isOpen()) return;
+                try {
+                    Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    close();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serveConnection(SocketChannel socket) {
+        Connection connection = null;
+        try {
+            socket.socket().setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            connection = new Connection(socket);
+            while (connection.serveRequest(_handler)) {
+                // Keep-alive: read the next request
+            }
+            connection.finish();
+        } catch (IOException | RuntimeException e) {
+            // The client went away, went idle, or sent something unreadable
+        } finally {
+            if (connection != null) connection.release();
+            _connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static byte[] acquireBuffer() {
+        byte[] buffer = BUFFERS.poll();
+        if (buffer == null) return new byte[BUFFER_SIZE];
+        POOLED.decrementAndGet();
+        return buffer;
+    }
+
+    private static void releaseBuffer(byte[] buffer) {
+        if (POOLED.incrementAndGet() <= MAX_POOLED_BUFFERS) BUFFERS.offer(buffer);
+        else POOLED.decrementAndGet();
+    }
+
+    /** A request the server answers itself with an error status, then closes the connection. */
+    private static final class BadRequest extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequest(int status) {
+            super(reason(status));
+            this.status = status;
+        }
+    }
+
+    /** One client connection: buffered reading of requests and writing of responses. */
+    private static final class Connection {
+        private final SocketChannel _channel;
+        private final InputStream _in;
+        private final OutputStream _out;
+        private byte[] _inBuf = acquireBuffer();
+        private int _inPos;
+        private int _inLimit;
+        private byte[] _outBuf = acquireBuffer();
+        private int _outCount;
+
+        Connection(SocketChannel channel) throws IOException {
+            _channel = channel;
+            // Stream views of the blocking channel; unlike the channel itself they honour SO_TIMEOUT
+            _in = channel.socket().getInputStream();
+            _out = channel.socket().getOutputStream();
+        }
+
+        /** Reads and answers one request. Returns whether the connection stays open. */
+        boolean serveRequest(Handler handler) throws IOException {
+            String requestLine = readLine();
+            if (requestLine == null) return false;
+            if (requestLine.isEmpty()) return true; // stray CRLF between requests
+
+            try {
+                int firstSpace = requestLine.indexOf(' ');
+                int lastSpace = requestLine.lastIndexOf(' ');
+                if (firstSpace <= 0 || lastSpace <= firstSpace + 1) throw new BadRequest(400);
+                String method = requestLine.substring(0, firstSpace);
+                String target = requestLine.substring(firstSpace + 1, lastSpace);
+                String version = requestLine.substring(lastSpace + 1);
+                if (!version.startsWith("HTTP/1.")) throw new BadRequest(505);
+
+                SiyoMap headers = readHeaders();
+                String connectionHeader = (String) headers.get("connection");
+                boolean keepAlive = version.equals("HTTP/1.0")
+                        ? "keep-alive".equalsIgnoreCase(connectionHeader)
+                        : !"close".equalsIgnoreCase(connectionHeader);
+                byte[] body = readBody(headers);
+
+                SiyoMap request = new SiyoMap();
+                int query = target.indexOf('?');
+                request.set("method", method);
+                request.set("path", query < 0 ? target : target.substring(0, query));
+                request.set("query", query < 0 ? "" : target.substring(query + 1));
+                request.set("version", version);
+                request.set("headers", headers);
+                request.set("body", new String(body, StandardCharsets.UTF_8));
+
+                Object response;
+                try {
+                    response = handler.handle(request);
+                } catch (Exception e) {
+                    SiyoMap error = new SiyoMap();
+                    error.set("status", 500);
+                    error.set("body", String.valueOf(e.getMessage()));
+                    response = error;
+                }
+                return writeResponse(response, method.equals("HEAD"), keepAlive, version.equals("HTTP/1.0"));
+            } catch (BadRequest e) {
+                writeError(e.status);
+                return false;
+            }
+        }
+
+        private SiyoMap readHeaders() throws IOException {
+            SiyoMap headers = new SiyoMap();
+            while (true) {
+                String line = readLine();
+                if (line == null) throw new BadRequest(400);
+                if (line.isEmpty()) return headers;
+                int colon = line.indexOf(':');
+                if (colon <= 0) throw new BadRequest(400);
+                String name = line.substring(0, colon).trim().toLowerCase();
+                String value = line.substring(colon + 1).trim();
+                Object previous = headers.get(name);
+                headers.set(name, previous == null ? value : previous + ", " + value);
+            }
+        }
+
+        private byte[] readBody(SiyoMap headers) throws IOException {
+            String transferEncoding = (String) headers.get("transfer-encoding");
+            String contentLength = (String) headers.get("content-length");
+            boolean chunked = transferEncoding != null && transferEncoding.toLowerCase().contains("chunked");
+            if (!chunked && contentLength == null) return new byte[0];
+            // With both, a proxy framing by Content-Length would see a different next request
+            // than this server does (request smuggling), so the message is refused
+            if (chunked && contentLength != null) throw new BadRequest(400);
+
+            long length = 0;
+            if (!chunked) {
+                try {
+                    length = Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    throw new BadRequest(400);
+                }
+                if (length < 0) throw new BadRequest(400);
+                if (length > MAX_BODY) throw new BadRequest(413);
+                if (length == 0) return new byte[0];
+            }
+            if ("100-continue".equalsIgnoreCase((String) headers.get("expect"))) {
+                writeAscii("HTTP/1.1 100 Continue\r\n\r\n");
+            }
+            return chunked ? readChunkedBody() : readFully((int) length);
+        }
+
+        private byte[] readChunkedBody() throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String sizeLine = readLine();
+                if (sizeLine == null) throw new BadRequest(400);
+                int extension = sizeLine.indexOf(';');
+                int size;
+                try {
+                    size = Integer.parseInt((extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new BadRequest(400);
+                }
+                if (size < 0) throw new BadRequest(400);
+                if (size == 0) break;
+                if (body.size() + (long) size > MAX_BODY) throw new BadRequest(413);
+                body.write(readFully(size));
+                if (!"".equals(readLine())) throw new BadRequest(400);
+            }
+            // Trailer fields end with an empty line; they are not kept
+            String trailer;
+            do {
+                trailer = readLine();
+                if (trailer == null) throw new BadRequest(400);
+            } while (!trailer.isEmpty());
+            return body.toByteArray();
+        }
+
+        /** Writes the response. Returns whether the connection stays open. */
+        private boolean writeResponse(Object response, boolean head, boolean keepAlive, boolean http10) throws IOException {
+            int status = 200;
+            SiyoMap headers = null;
+            Object body = response;
+            if (response == null) {
+                status = 204;
+            } else if (response instanceof SiyoMap map) {
+                if (map.get("status") instanceof Number number) status = number.intValue();
+                if (map.get("headers") instanceof SiyoMap extra) headers = extra;
+                body = map.get("body");
+                String invalid = headers == null ? null : invalidHeader(headers);
+                if (invalid != null) {
+                    if (body instanceof InputStream in) closeQuietly(in);
+                    status = 500;
+                    headers = null;
+                    body = invalid;
+                }
+            }
+
+            byte[] bytes = null;
+            InputStream stream = null;
+            Path file = null;
+            long fileLength = 0;
+            String contentType = "application/octet-stream";
+            if (body instanceof Path path) {
+                file = path;
+                fileLength = Files.size(path);
+            }
+            else if (body instanceof InputStream in) stream = in;
+            else if (body instanceof SiyoArray array) bytes = array.toByteArray();
+            else if (body instanceof byte[] raw) bytes = raw;
+            else {
+                bytes = body == null ? new byte[0] : String.valueOf(body).getBytes(StandardCharsets.UTF_8);
+                contentType = "text/plain; charset=utf-8";
+            }
+            boolean chunked = stream != null && !http10;
+            if (stream != null && http10) keepAlive = false;
+
+            writeAscii("HTTP/1.1 " + status + " " + reason(status) + "\r\n");
+            boolean typed = status == 204 || status == 304;
+            if (headers != null) {
+                // Framing headers are the server's; everything else is sent as given
+                for (Object name : headers.keys()) {
+                    String key = String.valueOf(name);
+                    if (key.equalsIgnoreCase("content-length") || key.equalsIgnoreCase("transfer-encoding")
+                            || key.equalsIgnoreCase("connection")) {
+                        continue;
+                    }
+                    if (key.equalsIgnoreCase("content-type")) typed = true;
+                    String line = key + ": " + headers.get(name) + "\r\n";
+                    write(line.getBytes(StandardCharsets.ISO_8859_1), 0, line.length());
+                }
+            }
+            if (!typed) writeAscii("Content-Type: " + contentType + "\r\n");
+            if (chunked) writeAscii("Transfer-Encoding: chunked\r\n");
+            else if (file != null) writeAscii("Content-Length: " + fileLength + "\r\n");
+            else if (bytes != null && status != 204 && status != 304) writeAscii("Content-Length: " + bytes.length + "\r\n");
+            if (!keepAlive) writeAscii("Connection: close\r\n");
+            else if (http10) writeAscii("Connection: keep-alive\r\n");
+            writeAscii("\r\n");
+
+            if (file != null) {
+                if (!head) writeFile(file, fileLength);
+            } else if (stream != null) {
+                try (InputStream in = stream) {
+                    if (!head) writeStream(in, chunked);
+                }
+            } else if (!head && status != 204 && status != 304) {
+                write(bytes, 0, bytes.length);
+            }
+            return keepAlive;
+        }
+
+        /**
+         * Why a handler's headers can't be sent, or null if they can. A CR or LF would let a value
+         * built from request data end the header early and add headers or a second response of its
+         * own, and header bytes are ISO-8859-1, so other characters have no encoding.
+         */
+        private static String invalidHeader(SiyoMap headers) {
+            for (Object name : headers.keys()) {
+                String key = String.valueOf(name);
+                if (key.isEmpty()) return "Invalid response header name: empty";
+                for (int i = 0; i < key.length(); i++) {
+                    char c = key.charAt(i);
+                    if (c <= ' ' || c >= 0x7F || c == ':') return "Invalid response header name: " + quote(key);
+                }
+                String value = String.valueOf(headers.get(name));
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '\r' || c == '\n' || c > 0xFF) return "Invalid value for response header " + quote(key);
+                }
+            }
+            return null;
+        }
+
+        private static String quote(String s) {
+            return "\"" + s.replace("\r", "\\r").replace("\n", "\\n") + "\"";
+        }
+
+        private void writeError(int status) throws IOException {
+            String reason = reason(status);
+            writeAscii("HTTP/1.1 " + status + " " + reason + "\r\n"
+                    + "Content-Type: text/plain; charset=utf-8\r\n"
+                    + "Content-Length: " + reason.length() + "\r\n"
+                    + "Connection: close\r\n\r\n" + reason);
+        }
+
+        /** Sends length bytes of the file straight from its channel; buffered output goes first. */
+        private void writeFile(Path path, long length) throws IOException {
+            flush();
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < length) {
+                    long sent = file.transferTo(position, length - position, _channel);
+                    // The Content-Length is already out, so a file cut short ends the connection
+                    if (sent <= 0 && file.size() <= position) throw new IOException("File shrank while being sent: " + path);
+                    position += sent;
+                }
+            }
+        }
+
+        private void writeStream(InputStream in, boolean chunked) throws IOException {
+            byte[] chunk = acquireBuffer();
+            try {
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    if (chunked) writeAscii(Integer.toHexString(n) + "\r\n");
+                    write(chunk, 0, n);
+                    if (chunked) writeAscii("\r\n");
+                }
+                if (chunked) writeAscii("0\r\n\r\n");
+            } finally {
+                releaseBuffer(chunk);
+            }
+        }
+
+        // ========== Buffers ==========
+
+        /** Reads a line ending in LF (CR removed), or null at the end of input before any byte. */
+        private String readLine() throws IOException {
+            int scanned = 0; // bytes after _inPos already known to hold no LF
+            while (true) {
+                for (int i = _inPos + scanned; i < _inLimit; i++) {
+                    if (_inBuf[i] == '\n') {
+                        int end = i > _inPos && _inBuf[i - 1] == '\r' ? i - 1 : i;
+                        String line = new String(_inBuf, _inPos, end - _inPos, StandardCharsets.ISO_8859_1);
+                        _inPos = i + 1;
+                        return line;
+                    }
+                }
+                scanned = _inLimit - _inPos;
+                if (_inPos == 0 && _inLimit == _inBuf.length) throw new BadRequest(431);
+                if (!fill()) {
+                    if (_inLimit == _inPos) return null;
+                    throw new BadRequest(400);
+                }
+            }
+        }
+
+        private byte[] readFully(int length) throws IOException {
+            byte[] result = new byte[length];
+            int buffered = Math.min(length, _inLimit - _inPos);
+            System.arraycopy(_inBuf, _inPos, result, 0, buffered);
+            _inPos += buffered;
+            int read = buffered;
+            if (read < length) flush();
+            while (read < length) {
+                int n = _in.read(result, read, length - read);
+                if (n < 0) throw new BadRequest(400);
+                read += n;
+            }
+            return result;
+        }
+
+        /**
+         * Moves unread bytes to the front and reads more after them. Pending output is flushed
+         * first, so pipelined responses go out before the connection waits for the client.
+         */
+        private boolean fill() throws IOException {
+            flush();
+            if (_inPos > 0) {
+                System.arraycopy(_inBuf, _inPos, _inBuf, 0, _inLimit - _inPos);
+                _inLimit -= _inPos;
+                _inPos = 0;
+            }
+            int n = _in.read(_inBuf, _inLimit, _inBuf.length - _inLimit);
+            if (n < 0) return false;
+            _inLimit += n;
+            return true;
+        }
+
+        private void writeAscii(String s) throws IOException {
+            int length = s.length();
+            if (_outBuf.length - _outCount < length) flush();
+            if (length > _outBuf.length) {
+                byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+                _out.write(bytes);
+                return;
+            }
+            for (int i = 0; i < length; i++) _outBuf[_outCount++] = (byte) s.charAt(i);
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            if (_outBuf.length - _outCount < length) flush();
+            if (length > _outBuf.length) {
+                _out.write(bytes, offset, length);
+                return;
+            }
+            System.arraycopy(bytes, offset, _outBuf, _outCount, length);
+            _outCount += length;
+        }
+
+        void flush() throws IOException {
+            if (_outCount == 0) return;
+            _out.write(_outBuf, 0, _outCount);
+            _outCount = 0;
+            _out.flush();
+        }
+
+        /**
+         * Sends what's left and half-closes, then discards whatever the client is still
+         * sending. Closing with unread input would reset the connection, and the client could
+         * lose the response (a 413, say) before reading it.
+         */
+        void finish() throws IOException {
+            flush();
+            _channel.shutdownOutput();
+            _channel.socket().setSoTimeout(LINGER_MILLIS);
+            long discarded = 0;
+            int n;
+            while (discarded < MAX_LINGER_BYTES && (n = _in.read(_inBuf)) >= 0) discarded += n;
+        }
+
+        void release() {
+            releaseBuffer(_inBuf);
+            releaseBuffer(_outBuf);
+            _inBuf = null;
+            _outBuf = null;
+        }
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 413 -> "Content Too Large";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 505 -> "HTTP Version Not Supported";
+            default -> "Status " + status;
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package codeanalysis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The list behind an {@code int[]} array, holding its elements in an {@code int[]}.
+ */
+public class SiyoIntArray extends SiyoPrimitiveArray {
+    private int[] _values;
+
+    /**
+     * Creates an empty list with room for the given number of elements.
+     */
+    public SiyoIntArray(int capacity) {
+        _values = new int[capacity];
+    }
+
+    /**
+     * Creates a list over the given array. The array is used as is, not copied.
+     */
+    public SiyoIntArray(int[] values) {
+        _values = values;
+        _size = values.length;
+    }
+
+    public int getInt(int index) {
+        if (isGeneric()) return (Integer) generic().get(index);
+        Objects.checkIndex(index, _size);
+        return _values[index];
+    }
+
+    public int setInt(int index, int value) {
+        if (isGeneric()) return (Integer) generic().set(index, value);
+        Objects.checkIndex(index, _size);
+        int old = _values[index];
+        _values[index] = value;
+        return old;
+    }
+
+    public void addInt(int value) {
+        if (isGeneric()) {
+            add(value);
+            return;
+        }
+        ensureCapacity(_size + 1);
+        _values[_size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Returns the elements as an {@code int[]}. The backing array itself is returned, trimmed to
+     * the length first if needed, so changes made through it show up in the list.
+     */
+    public int[] toIntArray() {
+        if (isGeneric()) {
+            int[] result = new int[size()];
+            for (int i = 0; i < result.length; i++) result[i] = ((Number) get(i)).intValue();
+            return result;
+        }
+        if (_values.length != _size) _values = Arrays.copyOf(_values, _size);
+        return _values;
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        if (c != null || isGeneric()) {
+            super.sort(c);
+            return;
+        }
+        Arrays.sort(_values, 0, _size);
+        modCount++;
+    }
+
+    @Override
+    protected Object box(int index) {
+        return _values[index];
+    }
+
+    @Override
+    protected boolean accepts(Object value) {
+        return value instanceof Integer;
+    }
+
+    @Override
+    protected void store(int index, Object value) {
+        _values[index] = (Integer) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > _values.length) _values = Arrays.copyOf(_values, grow(_values.length, capacity));
+    }
+
+    @Override
+    protected void move(int from, int to, int length) {
+        System.arraycopy(_values, from, _values, to, length);
+    }
+}
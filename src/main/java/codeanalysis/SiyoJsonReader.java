@@ -0,0 +1,602 @@
+package codeanalysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pull parser for JSON text, reading from a string, UTF-8 bytes or a stream.
+ * <p>
+ * {@link #next()} advances to the next token and returns its event: the start or end of an
+ * object or array, an object member's name, or a string, number, boolean or null value. The
+ * token's value is then available from the accessors, so a caller can walk a large document
+ * without building it. {@link #readValue()} builds the next value as Siyo maps and arrays instead.
+ * <p>
+ * Streams are decoded through a fixed buffer, so a document never has to be in memory whole.
+ * Strings without escapes are copied straight out of the buffer, and member names are shared
+ * through a small cache, so documents with the same keys reuse the same key strings.
+ * Malformed input throws an {@link IllegalArgumentException} naming the offset.
+ */
+public class SiyoJsonReader implements AutoCloseable {
+    public static final int END_DOCUMENT = 0;
+    public static final int BEGIN_OBJECT = 1;
+    public static final int END_OBJECT = 2;
+    public static final int BEGIN_ARRAY = 3;
+    public static final int END_ARRAY = 4;
+    public static final int NAME = 5;
+    public static final int STRING = 6;
+    public static final int NUMBER = 7;
+    public static final int BOOLEAN = 8;
+    public static final int NULL = 9;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_DEPTH = 512;
+    private static final int MAX_CACHED_NAME = 64;
+
+    /**
+     * Member names seen recently, indexed by hash. Shared by all readers: slots are replaced
+     * whole and strings are immutable, so a racing reader sees either name and checks it.
+     */
+    private static final String[] NAMES = new String[1024];
+
+    // What the next token may be in each open scope
+    private static final byte EMPTY_DOCUMENT = 0;
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    private static final byte EMPTY_ARRAY = 2;
+    private static final byte NONEMPTY_ARRAY = 3;
+    private static final byte EMPTY_OBJECT = 4;
+    private static final byte DANGLING_NAME = 5;
+    private static final byte NONEMPTY_OBJECT = 6;
+
+    private static final byte NUMBER_INT = 0;
+    private static final byte NUMBER_LONG = 1;
+    private static final byte NUMBER_DOUBLE = 2;
+
+    /** The source of further characters, or null when the whole input is in the buffer. */
+    private final Reader _in;
+    private final char[] _buf;
+    private int _pos;
+    private int _limit;
+    /** Characters that were in the buffer before the current contents, for error offsets. */
+    private long _consumed;
+
+    private byte[] _scopes = new byte[32];
+    private int _depth = 1;
+    private final StringBuilder _text = new StringBuilder();
+
+    private String _string;
+    private boolean _boolean;
+    private byte _numberKind;
+    private long _long;
+    private double _double;
+
+    public SiyoJsonReader(String json) {
+        _in = null;
+        _buf = json.toCharArray();
+        _limit = _buf.length;
+    }
+
+    public SiyoJsonReader(byte[] json) {
+        this(new ByteArrayInputStream(json));
+    }
+
+    public SiyoJsonReader(InputStream in) {
+        _in = new InputStreamReader(in, StandardCharsets.UTF_8);
+        _buf = new char[BUFFER_SIZE];
+    }
+
+    /** Parses a whole document into Siyo values. */
+    public static Object parse(String json) {
+        SiyoJsonReader reader = new SiyoJsonReader(json);
+        Object value = reader.readValue();
+        reader.expectEnd();
+        return value;
+    }
+
+    /** Parses a whole document from a stream into Siyo values. The stream is not closed. */
+    public static Object parse(InputStream in) {
+        SiyoJsonReader reader = new SiyoJsonReader(in);
+        Object value = reader.readValue();
+        reader.expectEnd();
+        return value;
+    }
+
+    // ========== Events ==========
+
+    /** Advances to the next token and returns its event. */
+    public int next() {
+        byte scope = _scopes[_depth - 1];
+        int c = skipWhitespace();
+        switch (scope) {
+            case EMPTY_DOCUMENT -> {
+                if (c < 0) throw error("Empty document");
+                _scopes[_depth - 1] = NONEMPTY_DOCUMENT;
+                return readValueToken(c);
+            }
+            case NONEMPTY_DOCUMENT -> {
+                if (c >= 0) throw error("Unexpected '" + (char) c + "' after the document");
+                return END_DOCUMENT;
+            }
+            case EMPTY_ARRAY, NONEMPTY_ARRAY -> {
+                if (c == ']') {
+                    _pos++;
+                    _depth--;
+                    return END_ARRAY;
+                }
+                if (scope == NONEMPTY_ARRAY) c = expectSeparator(c, ',', "',' or ']'");
+                _scopes[_depth - 1] = NONEMPTY_ARRAY;
+                return readValueToken(c);
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                if (c == '}') {
+                    _pos++;
+                    _depth--;
+                    return END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) c = expectSeparator(c, ',', "',' or '}'");
+                if (c != '"') throw unexpected(c, "a member name");
+                _pos++;
+                _string = readString(true);
+                expectSeparator(skipWhitespace(), ':', "':'");
+                _scopes[_depth - 1] = DANGLING_NAME;
+                return NAME;
+            }
+            default -> {
+                _scopes[_depth - 1] = NONEMPTY_OBJECT;
+                return readValueToken(c);
+            }
+        }
+    }
+
+    /** The member name or string value of the current token. */
+    public String stringValue() {
+        return _string;
+    }
+
+    public boolean booleanValue() {
+        return _boolean;
+    }
+
+    /** The current number as an int, truncating a fraction. */
+    public int intValue() {
+        return _numberKind == NUMBER_DOUBLE ? (int) _double : (int) _long;
+    }
+
+    /** The current number as a long, truncating a fraction. */
+    public long longValue() {
+        return _numberKind == NUMBER_DOUBLE ? (long) _double : _long;
+    }
+
+    public double doubleValue() {
+        return _numberKind == NUMBER_DOUBLE ? _double : _long;
+    }
+
+    /** The current number as an Integer when it fits, a Long when it is whole, else a Double. */
+    public Object numberValue() {
+        return switch (_numberKind) {
+            case NUMBER_INT -> (int) _long;
+            case NUMBER_LONG -> _long;
+            default -> _double;
+        };
+    }
+
+    /** Reads past the next value, including everything nested in it. */
+    public void skipValue() {
+        int depth = 0;
+        do {
+            int event = next();
+            if (event == BEGIN_OBJECT || event == BEGIN_ARRAY) depth++;
+            else if (event == END_OBJECT || event == END_ARRAY) depth--;
+            else if (event == END_DOCUMENT) throw error("Expected a value");
+        } while (depth > 0);
+    }
+
+    /**
+     * Reads the next value as a Siyo value: objects become maps, arrays become arrays, and
+     * numbers become ints, longs or floats.
+     */
+    public Object readValue() {
+        return valueOf(next());
+    }
+
+    // ========== Typed values ==========
+    // Used by struct codecs, which know each member's type: a value of another JSON type is an
+    // error, as is a number with a fraction or out of range for an int or long, and null reads
+    // as the type's zero value.
+
+    public int readInt() {
+        return expectNumber("an int") ? (int) wholeNumber(Integer.MIN_VALUE, Integer.MAX_VALUE, "an int") : 0;
+    }
+
+    public long readLong() {
+        return expectNumber("a long") ? wholeNumber(Long.MIN_VALUE, Long.MAX_VALUE, "a long") : 0L;
+    }
+
+    public double readDouble() {
+        return expectNumber("a float") ? doubleValue() : 0.0;
+    }
+
+    public boolean readBoolean() {
+        return booleanOrFalse(next());
+    }
+
+    /** Reads a string, or null. */
+    public String readString() {
+        return stringOrNull(next());
+    }
+
+    /**
+     * Reads an array, or null. Int, long and float elements go into a primitive-backed array,
+     * and string and bool elements are checked like members of those types; any other element
+     * type takes any value.
+     */
+    public SiyoArray readArray(Class<?> elementType) {
+        if (!expectArray(next())) return null;
+        SiyoArray array = SiyoArray.withCapacity(0, elementType == Integer.class || elementType == Long.class
+                || elementType == Double.class ? elementType : Object.class);
+        while (true) {
+            int event = next();
+            if (event == END_ARRAY) return array;
+            if (elementType == Integer.class) array.addInt(numberOrZero(event, "an int") ? (int) wholeNumber(Integer.MIN_VALUE, Integer.MAX_VALUE, "an int") : 0);
+            else if (elementType == Long.class) array.addLong(numberOrZero(event, "a long") ? wholeNumber(Long.MIN_VALUE, Long.MAX_VALUE, "a long") : 0L);
+            else if (elementType == Double.class) array.addDouble(numberOrZero(event, "a float") ? doubleValue() : 0.0);
+            else if (elementType == String.class) array.add(stringOrNull(event));
+            else if (elementType == Boolean.class) array.add(booleanOrFalse(event));
+            else array.add(valueOf(event));
+        }
+    }
+
+    /** Checks that the event starts an object. Returns false for null. */
+    public boolean expectObject(int event) {
+        if (event == BEGIN_OBJECT) return true;
+        if (event == NULL) return false;
+        throw error("Expected an object");
+    }
+
+    /** Checks that the event starts an array. Returns false for null. */
+    public boolean expectArray(int event) {
+        if (event == BEGIN_ARRAY) return true;
+        if (event == NULL) return false;
+        throw error("Expected an array");
+    }
+
+    private boolean expectNumber(String expected) {
+        return numberOrZero(next(), expected);
+    }
+
+    private boolean numberOrZero(int event, String expected) {
+        if (event == NUMBER) return true;
+        if (event == NULL) return false;
+        throw error("Expected " + expected);
+    }
+
+    /** The current number, which must be whole and within the range. */
+    private long wholeNumber(long min, long max, String expected) {
+        if (_numberKind != NUMBER_DOUBLE) {
+            if (_long >= min && _long <= max) return _long;
+        } else if (_double != Math.rint(_double)) {
+            throw error("Expected " + expected + " but found a fraction");
+        } else if (_double >= min && _double < max + 1.0) {
+            return (long) _double;
+        }
+        throw error("Number out of range for " + expected);
+    }
+
+    private boolean booleanOrFalse(int event) {
+        if (event == BOOLEAN) return _boolean;
+        if (event == NULL) return false;
+        throw error("Expected a bool");
+    }
+
+    private String stringOrNull(int event) {
+        if (event == STRING) return _string;
+        if (event == NULL) return null;
+        throw error("Expected a string");
+    }
+
+    /** Checks that nothing but whitespace follows the value read last. */
+    public void expectEnd() {
+        if (next() != END_DOCUMENT) throw error("Unexpected content after the document");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_in != null) _in.close();
+    }
+
+    private SiyoMap readObject() {
+        SiyoMap map = new SiyoMap();
+        while (next() == NAME) {
+            String name = _string;
+            map.set(name, readValue());
+        }
+        return map;
+    }
+
+    private SiyoArray readArray() {
+        List<Object> elements = new ArrayList<>();
+        for (int event = next(); event != END_ARRAY; event = next()) {
+            elements.add(valueOf(event));
+        }
+        return SiyoArray.wrap(elements, Object.class);
+    }
+
+    /** Builds the value that starts with the event just read. */
+    private Object valueOf(int event) {
+        return switch (event) {
+            case BEGIN_OBJECT -> readObject();
+            case BEGIN_ARRAY -> readArray();
+            case STRING -> _string;
+            case NUMBER -> numberValue();
+            case BOOLEAN -> _boolean;
+            case NULL -> null;
+            default -> throw error("Expected a value");
+        };
+    }
+
+    // ========== Tokens ==========
+
+    private int readValueToken(int c) {
+        switch (c) {
+            case '{' -> {
+                _pos++;
+                push(EMPTY_OBJECT);
+                return BEGIN_OBJECT;
+            }
+            case '[' -> {
+                _pos++;
+                push(EMPTY_ARRAY);
+                return BEGIN_ARRAY;
+            }
+            case '"' -> {
+                _pos++;
+                _string = readString(false);
+                return STRING;
+            }
+            case 't' -> {
+                expectLiteral("true");
+                _boolean = true;
+                return BOOLEAN;
+            }
+            case 'f' -> {
+                expectLiteral("false");
+                _boolean = false;
+                return BOOLEAN;
+            }
+            case 'n' -> {
+                expectLiteral("null");
+                return NULL;
+            }
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber();
+                    return NUMBER;
+                }
+                throw unexpected(c, "a value");
+            }
+        }
+    }
+
+    private void push(byte scope) {
+        if (_depth == MAX_DEPTH) throw error("Nesting deeper than " + MAX_DEPTH);
+        if (_depth == _scopes.length) _scopes = Arrays.copyOf(_scopes, _depth * 2);
+        _scopes[_depth++] = scope;
+    }
+
+    /** Reads a string whose opening quote was consumed. */
+    private String readString(boolean name) {
+        // Fast path: no escapes or control characters, and the closing quote is in the buffer
+        int start = _pos;
+        int hash = 0;
+        while (_pos < _limit) {
+            char c = _buf[_pos];
+            if (c == '"') {
+                int length = _pos - start;
+                _pos++;
+                return name ? cachedName(hash, start, length) : new String(_buf, start, length);
+            }
+            if (c == '\\' || c < ' ') break;
+            hash = 31 * hash + c;
+            _pos++;
+        }
+
+        _text.setLength(0);
+        _text.append(_buf, start, _pos - start);
+        while (true) {
+            int c = read();
+            if (c < 0) throw error("Unterminated string");
+            if (c == '"') break;
+            if (c < ' ') {
+                _pos--;
+                throw error("Unescaped control character in a string");
+            }
+            if (c != '\\') {
+                _text.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case '"', '\\', '/' -> _text.append((char) escaped);
+                case 'n' -> _text.append('\n');
+                case 't' -> _text.append('\t');
+                case 'r' -> _text.append('\r');
+                case 'b' -> _text.append('\b');
+                case 'f' -> _text.append('\f');
+                case 'u' -> _text.append(readHexChar());
+                default -> throw error("Invalid escape '\\" + (escaped < 0 ? "" : (char) escaped) + "'");
+            }
+        }
+        String value = _text.toString();
+        if (!name || value.length() > MAX_CACHED_NAME) return value;
+        int slot = value.hashCode() & (NAMES.length - 1);
+        String cached = NAMES[slot];
+        if (value.equals(cached)) return cached;
+        NAMES[slot] = value;
+        return value;
+    }
+
+    /** Returns the name in the buffer at the given range, reusing a cached string when it matches. */
+    private String cachedName(int hash, int start, int length) {
+        if (length > MAX_CACHED_NAME) return new String(_buf, start, length);
+        int slot = hash & (NAMES.length - 1);
+        String cached = NAMES[slot];
+        if (cached != null && cached.length() == length) {
+            int i = 0;
+            while (i < length && cached.charAt(i) == _buf[start + i]) i++;
+            if (i == length) return cached;
+        }
+        String name = new String(_buf, start, length);
+        NAMES[slot] = name;
+        return name;
+    }
+
+    private char readHexChar() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int c = read();
+            int digit = Character.digit(c < 0 ? -1 : c, 16);
+            if (digit < 0) throw error("Invalid \\u escape");
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    private void readNumber() {
+        // Fast path: a whole number of up to 18 digits followed by a delimiter in the buffer
+        int p = _buf[_pos] == '-' ? _pos + 1 : _pos;
+        int first = p;
+        int end = Math.min(_limit, p + 18);
+        long value = 0;
+        while (p < end && _buf[p] >= '0' && _buf[p] <= '9') value = value * 10 + (_buf[p++] - '0');
+        if (p > first && p < _limit && (p == first + 1 || _buf[first] != '0')) {
+            char next = _buf[p];
+            if (next != '.' && next != 'e' && next != 'E' && (next < '0' || next > '9')) {
+                _long = first != _pos ? -value : value;
+                _numberKind = _long == (int) _long ? NUMBER_INT : NUMBER_LONG;
+                _pos = p;
+                return;
+            }
+        }
+
+        _text.setLength(0);
+        boolean negative = peekChar() == '-';
+        if (negative) _text.append((char) read());
+
+        long magnitude = 0;
+        int digits = appendDigits();
+        if (digits == 0) throw error("Invalid number");
+        if (digits > 1 && _text.charAt(negative ? 1 : 0) == '0') throw error("Leading zero in a number");
+        boolean whole = true;
+        if (peekChar() == '.') {
+            whole = false;
+            _text.append((char) read());
+            if (appendDigits() == 0) throw error("Invalid number");
+        }
+        int c = peekChar();
+        if (c == 'e' || c == 'E') {
+            whole = false;
+            _text.append((char) read());
+            c = peekChar();
+            if (c == '+' || c == '-') _text.append((char) read());
+            if (appendDigits() == 0) throw error("Invalid number");
+        }
+
+        if (whole && digits <= 18) {
+            for (int i = negative ? 1 : 0; i < _text.length(); i++) magnitude = magnitude * 10 + (_text.charAt(i) - '0');
+            _long = negative ? -magnitude : magnitude;
+            _numberKind = _long == (int) _long ? NUMBER_INT : NUMBER_LONG;
+            return;
+        }
+        _double = Double.parseDouble(_text.toString());
+        _numberKind = NUMBER_DOUBLE;
+        // Whole numbers of 19 digits may still fit a long
+        if (whole && _double >= Long.MIN_VALUE && _double <= Long.MAX_VALUE) {
+            try {
+                _long = Long.parseLong(_text.toString());
+                _numberKind = NUMBER_LONG;
+            } catch (NumberFormatException ignored) {
+                // Past the range of a long after all
+            }
+        }
+    }
+
+    private int appendDigits() {
+        int count = 0;
+        int c;
+        while ((c = peekChar()) >= '0' && c <= '9') {
+            _text.append((char) c);
+            _pos++;
+            count++;
+        }
+        return count;
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) throw error("Expected '" + literal + "'");
+        }
+    }
+
+    /** Consumes the expected separator and returns the first character after it and any whitespace. */
+    private int expectSeparator(int c, char separator, String expected) {
+        if (c != separator) throw unexpected(c, expected);
+        _pos++;
+        return skipWhitespace();
+    }
+
+    // ========== Input ==========
+
+    /** Skips whitespace and returns the next character without consuming it, or -1 at the end. */
+    private int skipWhitespace() {
+        while (true) {
+            if (_pos == _limit && !fill()) return -1;
+            char c = _buf[_pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            _pos++;
+        }
+    }
+
+    private int peekChar() {
+        if (_pos == _limit && !fill()) return -1;
+        return _buf[_pos];
+    }
+
+    private int read() {
+        if (_pos == _limit && !fill()) return -1;
+        return _buf[_pos++];
+    }
+
+    /** Replaces the consumed buffer with more input. Returns false at the end of the input. */
+    private boolean fill() {
+        if (_in == null) return false;
+        try {
+            int count;
+            do {
+                count = _in.read(_buf, 0, _buf.length);
+            } while (count == 0);
+            if (count < 0) return false;
+            _consumed += _limit;
+            _pos = 0;
+            _limit = count;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private IllegalArgumentException unexpected(int c, String expected) {
+        if (c < 0) return error("Expected " + expected + " but the input ended");
+        return error("Expected " + expected + " but found '" + (char) c + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + (_consumed + _pos) + ": " + message);
+    }
+}
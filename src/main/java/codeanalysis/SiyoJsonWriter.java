@@ -0,0 +1,342 @@
+package codeanalysis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes JSON as UTF-8, either into a buffer that is turned into a string at the end or
+ * straight to an OutputStream.
+ * <p>
+ * {@link #write(Object)} writes any Siyo value, choosing the JSON type from the value's runtime
+ * type: strings are always quoted, numbers and booleans never are. The token methods
+ * ({@link #beginObject()}, {@link #name(String)}, {@link #value(long)} and so on) write a
+ * document piece by piece and insert the separators themselves. Output goes into one byte
+ * buffer that is flushed to the stream when full and reused by later documents, so writing
+ * a value allocates nothing for ASCII text and whole numbers.
+ */
+public class SiyoJsonWriter {
+    private static final int BUFFER_SIZE = 8192;
+    /** Buffers bigger than this are not kept for the next document. */
+    private static final int MAX_KEPT_BUFFER = 1 << 20;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<SiyoJsonWriter> CACHED = ThreadLocal.withInitial(SiyoJsonWriter::new);
+
+    // What comes before the next token in each open scope
+    private static final byte EMPTY_DOCUMENT = 0;
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    private static final byte EMPTY_ARRAY = 2;
+    private static final byte NONEMPTY_ARRAY = 3;
+    private static final byte EMPTY_OBJECT = 4;
+    private static final byte DANGLING_NAME = 5;
+    private static final byte NONEMPTY_OBJECT = 6;
+
+    /** Where full buffers go, or null to keep everything in the buffer. */
+    private final OutputStream _out;
+    private byte[] _buf = new byte[BUFFER_SIZE];
+    private int _count;
+
+    private byte[] _scopes = new byte[32];
+    private int _depth = 1;
+
+    /** Creates a writer that collects the document for {@link #toString()}. */
+    public SiyoJsonWriter() {
+        _out = null;
+    }
+
+    /** Creates a writer that sends the document to the stream. Call {@link #flush()} at the end. */
+    public SiyoJsonWriter(OutputStream out) {
+        _out = out;
+    }
+
+    /** Returns the value as JSON text, reusing this thread's buffer. */
+    public static String toJson(Object value) {
+        return cached().write(value).finish();
+    }
+
+    /**
+     * Returns this thread's writer, emptied for a new document. Take the text with
+     * {@link #finish()} before the thread writes another document.
+     */
+    public static SiyoJsonWriter cached() {
+        SiyoJsonWriter writer = CACHED.get();
+        writer.reset();
+        return writer;
+    }
+
+    /** Returns the document as text, and drops the buffer if this document made it too big to keep. */
+    public String finish() {
+        String json = toString();
+        if (_buf.length > MAX_KEPT_BUFFER) _buf = new byte[BUFFER_SIZE];
+        return json;
+    }
+
+    /** Writes the value as JSON to the stream and flushes it. The stream is not closed. */
+    public static void writeTo(OutputStream out, Object value) {
+        SiyoJsonWriter writer = new SiyoJsonWriter(out);
+        writer.write(value);
+        writer.flush();
+    }
+
+    // ========== Values ==========
+
+    /** Writes any Siyo value, including everything nested in it. */
+    public SiyoJsonWriter write(Object value) {
+        if (value == null) return nullValue();
+        if (value instanceof String s) return value(s);
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+        if (value instanceof Number n) return value(n.doubleValue());
+        if (value instanceof Boolean b) return value(b.booleanValue());
+        if (value instanceof SiyoMap map) {
+            beginObject();
+            map.forEach((k, v) -> {
+                name(String.valueOf(k));
+                write(v);
+            });
+            return endObject();
+        }
+        if (value instanceof SiyoStruct struct) return write(struct.getFieldsMap());
+        if (value instanceof Map<?, ?> map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                write(entry.getValue());
+            }
+            return endObject();
+        }
+        if (value instanceof SiyoArray array) {
+            beginArray();
+            for (int i = 0; i < array.size(); i++) write(array.get(i));
+            return endArray();
+        }
+        if (value instanceof Collection<?> collection) {
+            beginArray();
+            for (Object element : collection) write(element);
+            return endArray();
+        }
+        if (value instanceof SiyoSet set) return write(set.values());
+        return value(value.toString());
+    }
+
+    public SiyoJsonWriter beginObject() {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        writeByte('{');
+        return this;
+    }
+
+    public SiyoJsonWriter endObject() {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    public SiyoJsonWriter beginArray() {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        writeByte('[');
+        return this;
+    }
+
+    public SiyoJsonWriter endArray() {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /** Writes an object member's name. The member's value must be written next. */
+    public SiyoJsonWriter name(String name) {
+        byte scope = _scopes[_depth - 1];
+        if (scope == NONEMPTY_OBJECT) writeByte(',');
+        else if (scope != EMPTY_OBJECT) throw new IllegalStateException("A name must be inside an object");
+        _scopes[_depth - 1] = DANGLING_NAME;
+        writeString(name);
+        writeByte(':');
+        return this;
+    }
+
+    public SiyoJsonWriter value(String value) {
+        if (value == null) return nullValue();
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public SiyoJsonWriter value(long value) {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return this;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            _buf[_count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) digits++;
+        for (int i = _count + digits - 1; i >= _count; i--) {
+            _buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        _count += digits;
+        return this;
+    }
+
+    /** Writes a float. JSON has no NaN or infinity, so those are written as null. */
+    public SiyoJsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return nullValue();
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    public SiyoJsonWriter value(boolean value) {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    public SiyoJsonWriter nullValue() {
+        beforeValue();
+        writeAscii("null");
+        return this;
+    }
+
+    // ========== Output ==========
+
+    /** Sends buffered output to the stream. */
+    public void flush() {
+        if (_out == null) return;
+        try {
+            _out.write(_buf, 0, _count);
+            _count = 0;
+            _out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Clears the document so the writer can start another one. */
+    public void reset() {
+        _count = 0;
+        _depth = 1;
+        _scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    /** The document written so far, for a writer without a stream. */
+    @Override
+    public String toString() {
+        return new String(_buf, 0, _count, StandardCharsets.UTF_8);
+    }
+
+    private void beforeValue() {
+        byte scope = _scopes[_depth - 1];
+        switch (scope) {
+            case EMPTY_DOCUMENT -> _scopes[_depth - 1] = NONEMPTY_DOCUMENT;
+            case EMPTY_ARRAY -> _scopes[_depth - 1] = NONEMPTY_ARRAY;
+            case NONEMPTY_ARRAY -> writeByte(',');
+            case DANGLING_NAME -> _scopes[_depth - 1] = NONEMPTY_OBJECT;
+            case NONEMPTY_DOCUMENT -> throw new IllegalStateException("A document holds one value");
+            default -> throw new IllegalStateException("An object member needs a name first");
+        }
+    }
+
+    private void push(byte scope) {
+        if (_depth == _scopes.length) _scopes = Arrays.copyOf(_scopes, _depth * 2);
+        _scopes[_depth++] = scope;
+    }
+
+    private SiyoJsonWriter close(byte empty, byte nonempty, char bracket) {
+        byte scope = _scopes[_depth - 1];
+        if (scope != empty && scope != nonempty) throw new IllegalStateException("Nothing to close with '" + bracket + "'");
+        _depth--;
+        writeByte(bracket);
+        return this;
+    }
+
+    private void writeString(String s) {
+        int length = s.length();
+        // Room for the common case: ASCII without escapes, plus the quotes
+        ensureCapacity(length + 2);
+        _buf[_count++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                if (_count == _buf.length) ensureCapacity(length - i + 1);
+                _buf[_count++] = (byte) c;
+            } else {
+                writeSpecial(s, i, c);
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) i++;
+            }
+        }
+        writeByte('"');
+    }
+
+    /** Writes an escaped or non-ASCII character, or a surrogate pair starting at index. */
+    private void writeSpecial(String s, int index, char c) {
+        ensureCapacity(6);
+        switch (c) {
+            case '"' -> { _buf[_count++] = '\\'; _buf[_count++] = '"'; }
+            case '\\' -> { _buf[_count++] = '\\'; _buf[_count++] = '\\'; }
+            case '\n' -> { _buf[_count++] = '\\'; _buf[_count++] = 'n'; }
+            case '\t' -> { _buf[_count++] = '\\'; _buf[_count++] = 't'; }
+            case '\r' -> { _buf[_count++] = '\\'; _buf[_count++] = 'r'; }
+            case '\b' -> { _buf[_count++] = '\\'; _buf[_count++] = 'b'; }
+            case '\f' -> { _buf[_count++] = '\\'; _buf[_count++] = 'f'; }
+            default -> {
+                if (c < 0x20) {
+                    _buf[_count++] = '\\';
+                    _buf[_count++] = 'u';
+                    _buf[_count++] = '0';
+                    _buf[_count++] = '0';
+                    _buf[_count++] = HEX[c >> 4];
+                    _buf[_count++] = HEX[c & 0xF];
+                } else if (c < 0x800) {
+                    _buf[_count++] = (byte) (0xC0 | (c >> 6));
+                    _buf[_count++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(index + 1));
+                    _buf[_count++] = (byte) (0xF0 | (cp >> 18));
+                    _buf[_count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    _buf[_count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    _buf[_count++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    _buf[_count++] = '?';
+                } else {
+                    _buf[_count++] = (byte) (0xE0 | (c >> 12));
+                    _buf[_count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    _buf[_count++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+    }
+
+    private void writeAscii(String s) {
+        int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) _buf[_count++] = (byte) s.charAt(i);
+    }
+
+    private void writeByte(char c) {
+        if (_count == _buf.length) ensureCapacity(1);
+        _buf[_count++] = (byte) c;
+    }
+
+    /** Makes room for the given number of bytes, flushing to the stream or growing the buffer. */
+    private void ensureCapacity(int needed) {
+        if (_buf.length - _count >= needed) return;
+        if (_out != null) {
+            try {
+                _out.write(_buf, 0, _count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            _count = 0;
+            if (_buf.length >= needed) return;
+        }
+        _buf = Arrays.copyOf(_buf, Math.max(_buf.length * 2, _count + needed));
+    }
+}
@@ -0,0 +1,65 @@
+package codeanalysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Lazy line reader behind the lines(path) builtin. {@code for line in lines(path)} pulls one
+ * line per iteration through a buffered reader, so a file is never held in memory whole.
+ * <p>
+ * The file closes when the last line has been read. A loop that breaks out early leaves it
+ * open until the reader is garbage collected, or until {@link #close()} is called.
+ */
+public class SiyoLines implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final BufferedReader _reader;
+    private final Cleaner.Cleanable _cleanable;
+    private boolean _done;
+
+    private SiyoLines(BufferedReader reader) {
+        _reader = reader;
+        _cleanable = CLEANER.register(this, () -> {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    public static SiyoLines open(String path) throws IOException {
+        // Decoding through a stream reader replaces malformed bytes, as readFile does
+        return new SiyoLines(new BufferedReader(
+                new InputStreamReader(Files.newInputStream(Path.of(path)), StandardCharsets.UTF_8)));
+    }
+
+    /** The next line without its terminator, or null after the last one. */
+    public String next() {
+        if (_done) return null;
+        try {
+            String line = _reader.readLine();
+            if (line == null) close();
+            return line;
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        _done = true;
+        _cleanable.clean();
+    }
+
+    @Override
+    public String toString() {
+        return "lines(" + (_done ? "done" : "open") + ")";
+    }
+}
@@ -0,0 +1,100 @@
+package codeanalysis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The list behind a {@code long[]} array, holding its elements in a {@code long[]}.
+ */
+public class SiyoLongArray extends SiyoPrimitiveArray {
+    private long[] _values;
+
+    /**
+     * Creates an empty list with room for the given number of elements.
+     */
+    public SiyoLongArray(int capacity) {
+        _values = new long[capacity];
+    }
+
+    /**
+     * Creates a list over the given array. The array is used as is, not copied.
+     */
+    public SiyoLongArray(long[] values) {
+        _values = values;
+        _size = values.length;
+    }
+
+    public long getLong(int index) {
+        if (isGeneric()) return (Long) generic().get(index);
+        Objects.checkIndex(index, _size);
+        return _values[index];
+    }
+
+    public long setLong(int index, long value) {
+        if (isGeneric()) return (Long) generic().set(index, value);
+        Objects.checkIndex(index, _size);
+        long old = _values[index];
+        _values[index] = value;
+        return old;
+    }
+
+    public void addLong(long value) {
+        if (isGeneric()) {
+            add(value);
+            return;
+        }
+        ensureCapacity(_size + 1);
+        _values[_size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Returns the elements as a {@code long[]}. The backing array itself is returned, trimmed to
+     * the length first if needed, so changes made through it show up in the list.
+     */
+    public long[] toLongArray() {
+        if (isGeneric()) {
+            long[] result = new long[size()];
+            for (int i = 0; i < result.length; i++) result[i] = ((Number) get(i)).longValue();
+            return result;
+        }
+        if (_values.length != _size) _values = Arrays.copyOf(_values, _size);
+        return _values;
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        if (c != null || isGeneric()) {
+            super.sort(c);
+            return;
+        }
+        Arrays.sort(_values, 0, _size);
+        modCount++;
+    }
+
+    @Override
+    protected Object box(int index) {
+        return _values[index];
+    }
+
+    @Override
+    protected boolean accepts(Object value) {
+        return value instanceof Long;
+    }
+
+    @Override
+    protected void store(int index, Object value) {
+        _values[index] = (Long) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > _values.length) _values = Arrays.copyOf(_values, grow(_values.length, capacity));
+    }
+
+    @Override
+    protected void move(int from, int to, int length) {
+        System.arraycopy(_values, from, _values, to, length);
+    }
+}
@@ -1,50 +1,101 @@
 package codeanalysis;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
 
 /**
- * Built-in Map type for Siyo. Any keys, any values.
+ * Built-in Map type for Siyo. Any keys, any values, iterated in insertion order.
+ * <p>
+ * Entries are stored compactly in insertion order in parallel key and value arrays, and an
+ * open-addressing index table maps hashes to entry positions, so an insert allocates no node.
+ * Each index slot also holds the key's hash, so probing past other keys touches only the index.
+ * While every key is an int, a long or a string the keys use a specialized representation:
+ * int and long keys are stored unboxed and compared by value, string keys skip the generic
+ * equality path. The first key of another kind switches the map to boxed object keys.
+ * Removed entries are marked and dropped when the arrays are next rebuilt.
+ * <p>
+ * {@code keys()} and {@code values()} return views of the entries instead of copies. Once a
+ * view exists the next write copies the entries first, so views (and for-in loops, which iterate
+ * {@code keys()}) see the map as it was when they were created, even if the loop body modifies it.
  */
 public class SiyoMap {
-    private final LinkedHashMap<Object, Object> _entries = new LinkedHashMap<>();
+    private static final Object DELETED = new Object();
+    private static final long TOMBSTONE = -1L;
+    private static final int MIN_INDEX_LENGTH = 8;
+
+    private static final byte KIND_EMPTY = 0;
+    private static final byte KIND_INT = 1;
+    private static final byte KIND_LONG = 2;
+    private static final byte KIND_STRING = 3;
+    private static final byte KIND_OBJECT = 4;
+
+    private byte _kind = KIND_EMPTY;
+    /**
+     * Index table. A used slot holds the key's hash in the high half and the entry position + 1
+     * in the low half; free slots are 0 and slots of removed entries {@link #TOMBSTONE}.
+     * Length is a power of two, at least half again the entry capacity.
+     */
+    private long[] _index;
+    /** Keys while the map holds only int or long keys. */
+    private long[] _primitiveKeys;
+    /** Keys while the map holds string or mixed keys. */
+    private Object[] _keys;
+    /** Values per entry; {@link #DELETED} marks a removed entry. */
+    private Object[] _values;
+    private int _count;
+    private int _size;
+    private boolean _shared;
 
     // Object-keyed methods (primary API)
-    public void set(Object key, Object value) { _entries.put(key, value); }
-    public Object get(Object key) { return _entries.getOrDefault(key, null); }
-    public boolean has(Object key) { return _entries.containsKey(key); }
-    public void remove(Object key) { _entries.remove(key); }
-    public int size() { return _entries.size(); }
+    public void set(Object key, Object value) { put(key, value); }
+    public Object get(Object key) { int e = find(key); return e >= 0 ? _values[e] : null; }
+    public boolean has(Object key) { return find(key) >= 0; }
+    public void remove(Object key) { delete(key); }
+    public int size() { return _size; }
 
     // String-keyed overloads for backward compatibility
-    public void set(String key, Object value) { _entries.put(key, value); }
-    public Object get(String key) { return _entries.getOrDefault(key, null); }
-    public boolean has(String key) { return _entries.containsKey(key); }
-    public void remove(String key) { _entries.remove(key); }
+    public void set(String key, Object value) { put(key, value); }
+    public Object get(String key) { int e = find(key); return e >= 0 ? _values[e] : null; }
+    public boolean has(String key) { return find(key) >= 0; }
+    public void remove(String key) { delete(key); }
 
     public SiyoArray keys() {
-        return new SiyoArray(new ArrayList<>(_entries.keySet()), Object.class);
+        _shared = true;
+        return SiyoArray.view(new Snapshot(this, true));
     }
 
     public SiyoArray values() {
-        return new SiyoArray(new ArrayList<>(_entries.values()), Object.class);
+        _shared = true;
+        return SiyoArray.view(new Snapshot(this, false));
+    }
+
+    /**
+     * Calls the action with each key and value in insertion order. Unlike {@link #keys()} this
+     * takes no view, so the next write doesn't have to copy the entries.
+     */
+    void forEach(BiConsumer<Object, Object> action) {
+        for (int e = 0; e < _count; e++) {
+            if (_values[e] != DELETED) action.accept(keyAt(e), _values[e]);
+        }
     }
 
     /** Increment integer value by 1. If key doesn't exist, set to 1. */
     public void increment(Object key) {
-        Object val = _entries.get(key);
-        if (val instanceof Integer i) {
-            _entries.put(key, i + 1);
+        int e = find(key);
+        if (e >= 0 && _values[e] instanceof Integer i) {
+            prepareWrite();
+            _values[e] = i + 1;
         } else {
-            _entries.put(key, 1);
+            put(key, 1);
         }
     }
 
     /** Get integer value, default 0. */
     public int getInt(Object key) {
-        Object val = _entries.get(key);
+        Object val = get(key);
         if (val instanceof Integer i) return i;
         if (val instanceof String s) { try { return Integer.parseInt(s); } catch (Exception e) { return 0; } }
         return 0;
@@ -52,7 +103,7 @@ public class SiyoMap {
 
     /** Get long value, default 0. */
     public long getLong(Object key) {
-        Object val = _entries.get(key);
+        Object val = get(key);
         if (val instanceof Long l) return l;
         if (val instanceof Integer i) return (long) i;
         return 0L;
@@ -60,14 +111,14 @@ public class SiyoMap {
 
     /** Get string value, default "". */
     public String getStr(Object key) {
-        Object val = _entries.get(key);
+        Object val = get(key);
         if (val == null) return "";
         return val.toString();
     }
 
     /** Get boolean value, default false. */
     public boolean getBool(Object key) {
-        Object val = _entries.get(key);
+        Object val = get(key);
         if (val instanceof Boolean b) return b;
         return false;
     }
@@ -76,12 +127,252 @@ public class SiyoMap {
     public String toString() {
         StringBuilder sb = new StringBuilder("{");
         boolean first = true;
-        for (Map.Entry<Object, Object> e : _entries.entrySet()) {
+        for (int e = 0; e < _count; e++) {
+            if (_values[e] == DELETED) continue;
             if (!first) sb.append(", ");
-            sb.append(e.getKey()).append(": ").append(e.getValue());
+            sb.append(keyAt(e)).append(": ").append(_values[e]);
             first = false;
         }
         sb.append("}");
         return sb.toString();
     }
+
+    // ========== Storage ==========
+
+    private static byte kindOf(Object key) {
+        if (key instanceof Integer) return KIND_INT;
+        if (key instanceof Long) return KIND_LONG;
+        if (key instanceof String) return KIND_STRING;
+        return KIND_OBJECT;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Hashes a key the same way whichever representation holds it. */
+    private static int hash(Object key) {
+        if (key instanceof Integer i) return mix(i);
+        if (key instanceof Long l) return mix(Long.hashCode(l));
+        return mix(key == null ? 0 : key.hashCode());
+    }
+
+    private int hashAt(int e) {
+        return switch (_kind) {
+            case KIND_INT -> mix((int) _primitiveKeys[e]);
+            case KIND_LONG -> mix(Long.hashCode(_primitiveKeys[e]));
+            default -> hash(_keys[e]);
+        };
+    }
+
+    private boolean keyEquals(int e, Object key) {
+        return switch (_kind) {
+            case KIND_INT -> key instanceof Integer i && _primitiveKeys[e] == i;
+            case KIND_LONG -> key instanceof Long l && _primitiveKeys[e] == l;
+            case KIND_STRING -> key instanceof String s && (s == _keys[e] || s.equals(_keys[e]));
+            default -> Objects.equals(_keys[e], key);
+        };
+    }
+
+    private Object keyAt(int e) {
+        return switch (_kind) {
+            case KIND_INT -> (int) _primitiveKeys[e];
+            case KIND_LONG -> _primitiveKeys[e];
+            default -> _keys[e];
+        };
+    }
+
+    /** Returns the index slot holding the key, or -1. */
+    private int findSlot(Object key, int hash) {
+        if (_size == 0 || (_kind != KIND_OBJECT && kindOf(key) != _kind)) return -1;
+        int mask = _index.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long entry = _index[slot];
+            if (entry == 0) return -1;
+            if ((int) (entry >>> 32) == hash && entry != TOMBSTONE && keyEquals((int) entry - 1, key)) return slot;
+        }
+    }
+
+    /** Returns the entry position of the key, or -1. */
+    private int find(Object key) {
+        int slot = findSlot(key, hash(key));
+        return slot < 0 ? -1 : (int) _index[slot] - 1;
+    }
+
+    private void put(Object key, Object value) {
+        int hash = hash(key);
+        int slot = findSlot(key, hash);
+        prepareWrite();
+        if (slot >= 0) {
+            _values[(int) _index[slot] - 1] = value;
+            return;
+        }
+
+        byte kind = kindOf(key);
+        if (_kind == KIND_EMPTY) {
+            _kind = kind;
+        } else if (_kind != kind && _kind != KIND_OBJECT) {
+            boxKeys();
+        }
+        if (_index == null || _count == _values.length) rebuild(_size + 1);
+
+        int e = _count++;
+        if (_kind == KIND_INT || _kind == KIND_LONG) {
+            _primitiveKeys[e] = ((Number) key).longValue();
+        } else {
+            _keys[e] = key;
+        }
+        _values[e] = value;
+        _size++;
+        // The key is absent, so the first free or removed slot on its probe path can take it
+        int mask = _index.length - 1;
+        slot = hash & mask;
+        while (_index[slot] != 0 && _index[slot] != TOMBSTONE) slot = (slot + 1) & mask;
+        _index[slot] = ((long) hash << 32) | (e + 1);
+    }
+
+    private void delete(Object key) {
+        int slot = findSlot(key, hash(key));
+        if (slot < 0) return;
+        prepareWrite();
+        int e = (int) _index[slot] - 1;
+        _index[slot] = TOMBSTONE;
+        _values[e] = DELETED;
+        if (_keys != null) _keys[e] = null;
+        if (--_size == 0) {
+            // Start over so an emptied map doesn't keep its old storage
+            _index = null;
+            _primitiveKeys = null;
+            _keys = null;
+            _values = null;
+            _count = 0;
+            _kind = KIND_EMPTY;
+        }
+    }
+
+    /** Copies the storage before a write if a view still refers to it. */
+    private void prepareWrite() {
+        if (!_shared) return;
+        _shared = false;
+        if (_index == null) return;
+        _index = _index.clone();
+        _values = _values.clone();
+        if (_primitiveKeys != null) _primitiveKeys = _primitiveKeys.clone();
+        if (_keys != null) _keys = _keys.clone();
+    }
+
+    /** Switches from unboxed int or long keys to object keys. */
+    private void boxKeys() {
+        Object[] keys = new Object[_values == null ? 0 : _values.length];
+        for (int e = 0; e < _count; e++) {
+            if (_values[e] != DELETED) keys[e] = keyAt(e);
+        }
+        _keys = keys;
+        _primitiveKeys = null;
+        _kind = KIND_OBJECT;
+    }
+
+    /**
+     * Compacts the live entries into arrays with room for at least the given number of entries
+     * and rebuilds the index, which is kept at most two-thirds full. Grows instead of only
+     * compacting when most entries are live.
+     */
+    private void rebuild(int needed) {
+        int length = MIN_INDEX_LENGTH;
+        while (length * 2 / 3 < needed) length <<= 1;
+        if (_values != null && length * 2 / 3 <= _values.length && _size * 2 > _count) length <<= 1;
+        int capacity = length * 2 / 3;
+
+        Object[] values = new Object[capacity];
+        long[] primitiveKeys = _kind == KIND_INT || _kind == KIND_LONG ? new long[capacity] : null;
+        Object[] keys = primitiveKeys == null ? new Object[capacity] : null;
+        long[] index = new long[length];
+        int mask = length - 1;
+
+        int count = 0;
+        for (int e = 0; e < _count; e++) {
+            if (_values[e] == DELETED) continue;
+            values[count] = _values[e];
+            if (primitiveKeys != null) primitiveKeys[count] = _primitiveKeys[e];
+            else keys[count] = _keys[e];
+            int hash = hashAt(e);
+            int slot = hash & mask;
+            while (index[slot] != 0) slot = (slot + 1) & mask;
+            index[slot] = ((long) hash << 32) | ++count;
+        }
+
+        _index = index;
+        _values = values;
+        _primitiveKeys = primitiveKeys;
+        _keys = keys;
+        _count = count;
+    }
+
+    /**
+     * The keys or values of the map at the time the view was taken. The map copies its
+     * storage before changing it again, so the arrays here never change.
+     */
+    private static final class Snapshot extends AbstractCollection<Object> {
+        private final byte _kind;
+        private final long[] _primitiveKeys;
+        private final Object[] _keys;
+        private final Object[] _values;
+        private final int _count;
+        private final int _size;
+        private final boolean _ofKeys;
+
+        Snapshot(SiyoMap map, boolean ofKeys) {
+            _kind = map._kind;
+            _primitiveKeys = map._primitiveKeys;
+            _keys = map._keys;
+            _values = map._values;
+            _count = map._count;
+            _size = map._size;
+            _ofKeys = ofKeys;
+        }
+
+        @Override
+        public int size() {
+            return _size;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<>() {
+                private int _next = skipDeleted(0);
+
+                @Override
+                public boolean hasNext() {
+                    return _next < _count;
+                }
+
+                @Override
+                public Object next() {
+                    if (_next >= _count) throw new NoSuchElementException();
+                    int e = _next;
+                    _next = skipDeleted(e + 1);
+                    if (!_ofKeys) return _values[e];
+                    return switch (_kind) {
+                        case KIND_INT -> (int) _primitiveKeys[e];
+                        case KIND_LONG -> _primitiveKeys[e];
+                        default -> _keys[e];
+                    };
+                }
+            };
+        }
+
+        private int skipDeleted(int e) {
+            while (e < _count && _values[e] == DELETED) e++;
+            return e;
+        }
+
+        @Override
+        public Object[] toArray() {
+            Object[] result = new Object[_size];
+            int i = 0;
+            for (Object element : this) result[i++] = element;
+            return result;
+        }
+    }
 }
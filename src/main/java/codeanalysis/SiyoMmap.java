@@ -0,0 +1,224 @@
+package codeanalysis;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped file behind the mmap(path, mode) builtin. Reads and writes at byte offsets go
+ * straight to the OS page cache, so a large file can be scanned or updated in place without
+ * loading it.
+ * <p>
+ * Mode "r" maps the file read-only; "rw" maps it for writing and creates it if missing (empty,
+ * until {@link #resize}). Ints, longs and doubles are big-endian. Byte arrays move in and out
+ * as Siyo's byte-backed arrays. {@link #slice} gives a view of a range that shares the mapping,
+ * with offsets relative to its start, and {@link #force} writes changes back to the device.
+ * <p>
+ * A mapped buffer holds at most 2GB, so larger files are mapped in 1GB chunks. Each chunk
+ * overlaps the next by 8 bytes, so any int, long or double lies within a single chunk.
+ */
+public class SiyoMmap implements AutoCloseable {
+    private static final long CHUNK = 1L << 30;
+    private static final int OVERLAP = Long.BYTES;
+
+    private final FileChannel _channel; // null for slices, which don't own the file
+    private final boolean _writable;
+    private MappedByteBuffer[] _chunks;
+    private final long _base;
+    private long _size;
+
+    private SiyoMmap(FileChannel channel, boolean writable, MappedByteBuffer[] chunks, long base, long size) {
+        _channel = channel;
+        _writable = writable;
+        _chunks = chunks;
+        _base = base;
+        _size = size;
+    }
+
+    public static SiyoMmap open(String path, String mode) throws IOException {
+        boolean writable = switch (mode) {
+            case "r" -> false;
+            case "rw" -> true;
+            default -> throw new IllegalArgumentException("mmap mode must be \"r\" or \"rw\", got \"" + mode + "\"");
+        };
+        FileChannel channel = writable
+                ? FileChannel.open(Path.of(path), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+                : FileChannel.open(Path.of(path), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            return new SiyoMmap(channel, writable, map(channel, writable, size), 0, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, boolean writable, long size) throws IOException {
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) Math.max(1, (size + CHUNK - 1) / CHUNK)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = i * CHUNK;
+            chunks[i] = channel.map(mode, start, Math.min(size - start, CHUNK + OVERLAP));
+        }
+        return chunks;
+    }
+
+    public long size() {
+        return _size;
+    }
+
+    public boolean isWritable() {
+        return _writable;
+    }
+
+    // ========== Typed access ==========
+
+    public int getByte(long offset) {
+        long at = check(offset, 1);
+        return chunk(at).get(index(at)) & 0xFF;
+    }
+
+    public void putByte(long offset, int value) {
+        long at = checkWrite(offset, 1);
+        chunk(at).put(index(at), (byte) value);
+    }
+
+    public int getInt(long offset) {
+        long at = check(offset, Integer.BYTES);
+        return chunk(at).getInt(index(at));
+    }
+
+    public void putInt(long offset, int value) {
+        long at = checkWrite(offset, Integer.BYTES);
+        chunk(at).putInt(index(at), value);
+    }
+
+    public long getLong(long offset) {
+        long at = check(offset, Long.BYTES);
+        return chunk(at).getLong(index(at));
+    }
+
+    public void putLong(long offset, long value) {
+        long at = checkWrite(offset, Long.BYTES);
+        chunk(at).putLong(index(at), value);
+    }
+
+    public double getDouble(long offset) {
+        long at = check(offset, Double.BYTES);
+        return chunk(at).getDouble(index(at));
+    }
+
+    public void putDouble(long offset, double value) {
+        long at = checkWrite(offset, Double.BYTES);
+        chunk(at).putDouble(index(at), value);
+    }
+
+    /** Copies length bytes out; in Siyo the result is a byte-backed array. */
+    public byte[] getBytes(long offset, int length) {
+        long at = check(offset, length);
+        byte[] bytes = new byte[length];
+        int done = 0;
+        while (done < length) {
+            int n = (int) Math.min(length - done, CHUNK - (at + done) % CHUNK);
+            chunk(at + done).get(index(at + done), bytes, done, n);
+            done += n;
+        }
+        return bytes;
+    }
+
+    public void putBytes(long offset, byte[] bytes) {
+        long at = checkWrite(offset, bytes.length);
+        int done = 0;
+        while (done < bytes.length) {
+            int n = (int) Math.min(bytes.length - done, CHUNK - (at + done) % CHUNK);
+            chunk(at + done).put(index(at + done), bytes, done, n);
+            done += n;
+        }
+    }
+
+    /** Decodes length bytes as UTF-8. */
+    public String getString(long offset, int length) {
+        return new String(getBytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    /** Offset of the first byte equal to value at or after from, or -1. Scans without copying. */
+    public long indexOf(int value, long from) {
+        byte target = (byte) value;
+        long i = Math.max(from, 0);
+        while (i < _size) {
+            long at = _base + i;
+            MappedByteBuffer chunk = chunk(at);
+            int start = index(at);
+            int end = (int) Math.min(CHUNK, start + (_size - i));
+            for (int j = start; j < end; j++) {
+                if (chunk.get(j) == target) return i + (j - start);
+            }
+            i += end - start;
+        }
+        return -1;
+    }
+
+    // ========== Views and file ==========
+
+    /** A view of length bytes from offset, sharing this mapping. */
+    public SiyoMmap slice(long offset, long length) {
+        check(offset, length);
+        return new SiyoMmap(null, _writable, _chunks, _base + offset, length);
+    }
+
+    /**
+     * Sets the file's size and maps it again; "rw" only, and not on a slice. Slices taken
+     * before keep the old mapping, which must not be used past the new end after shrinking.
+     */
+    public void resize(long size) throws IOException {
+        if (_channel == null) throw new IllegalStateException("Cannot resize a slice");
+        if (!_writable) throw new IllegalStateException("Cannot resize a read-only mapping");
+        if (size < _channel.size()) _channel.truncate(size);
+        else if (size > _channel.size()) _channel.write(java.nio.ByteBuffer.wrap(new byte[1]), size - 1);
+        _chunks = map(_channel, true, size);
+        _size = size;
+    }
+
+    /** Writes changes in this mapping back to the storage device. */
+    public void force() {
+        if (!_writable) return;
+        for (MappedByteBuffer chunk : _chunks) chunk.force();
+    }
+
+    /**
+     * Closes the file. The mapping itself stays valid until it is garbage collected, as Java
+     * offers no way to unmap it sooner.
+     */
+    @Override
+    public void close() throws IOException {
+        if (_channel != null) _channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "mmap(" + _size + " bytes, " + (_writable ? "rw" : "r") + ")";
+    }
+
+    private long check(long offset, long width) {
+        if (offset < 0 || width < 0 || offset > _size - width) {
+            throw new IndexOutOfBoundsException("mmap offset " + offset + " + " + width + " is outside 0.." + _size);
+        }
+        return _base + offset;
+    }
+
+    private long checkWrite(long offset, long width) {
+        if (!_writable) throw new IllegalStateException("mmap is read-only");
+        return check(offset, width);
+    }
+
+    private MappedByteBuffer chunk(long at) {
+        return _chunks[(int) (at / CHUNK)];
+    }
+
+    private static int index(long at) {
+        return (int) (at % CHUNK);
+    }
+}
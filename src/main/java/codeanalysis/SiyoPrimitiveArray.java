@@ -0,0 +1,120 @@
+package codeanalysis;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Base class for the lists behind arrays whose element type is known to be a primitive.
+ * Elements live unboxed in a growable primitive array; {@link #get(int)} boxes on the way out
+ * and the typed accessors of the subclasses don't box at all.
+ * <p>
+ * Storing a value the primitive array can't hold (a string into an {@code int[]}, say) copies
+ * the elements into an ordinary list, which backs the array from then on.
+ */
+public abstract class SiyoPrimitiveArray extends AbstractList<Object> implements RandomAccess {
+    protected int _size;
+    private ArrayList<Object> _generic;
+
+    /** Returns the element at the given in-bounds index, boxed. */
+    protected abstract Object box(int index);
+
+    /** Returns true if the value can be stored in the primitive array. */
+    protected abstract boolean accepts(Object value);
+
+    /** Stores an accepted value at the given index, which is within the capacity. */
+    protected abstract void store(int index, Object value);
+
+    /** Grows the primitive array to hold at least the given number of elements. */
+    protected abstract void ensureCapacity(int capacity);
+
+    /** Copies a range of the primitive array within itself. */
+    protected abstract void move(int from, int to, int length);
+
+    /** Returns true once the elements have moved to an ordinary list. */
+    protected final boolean isGeneric() {
+        return _generic != null;
+    }
+
+    /** Returns the ordinary list holding the elements, or null while they are unboxed. */
+    protected final List<Object> generic() {
+        return _generic;
+    }
+
+    /** Returns the capacity to grow to when at least the given capacity is needed. */
+    protected static int grow(int current, int needed) {
+        return Math.max(needed, current < 8 ? 8 : current + (current >> 1));
+    }
+
+    @Override
+    public Object get(int index) {
+        if (_generic != null) return _generic.get(index);
+        Objects.checkIndex(index, _size);
+        return box(index);
+    }
+
+    @Override
+    public int size() {
+        return _generic != null ? _generic.size() : _size;
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        if (_generic != null) return _generic.set(index, element);
+        Objects.checkIndex(index, _size);
+        if (!accepts(element)) return materialize().set(index, element);
+        Object old = box(index);
+        store(index, element);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        if (_generic == null && (index < 0 || index > _size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+        if (_generic != null || !accepts(element)) {
+            materialize().add(index, element);
+        } else {
+            ensureCapacity(_size + 1);
+            move(index, index + 1, _size - index);
+            store(index, element);
+            _size++;
+        }
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        if (_generic != null) {
+            modCount++;
+            return _generic.remove(index);
+        }
+        Objects.checkIndex(index, _size);
+        Object old = box(index);
+        move(index + 1, index, _size - index - 1);
+        _size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        if (_generic != null) _generic.clear();
+        _size = 0;
+        modCount++;
+    }
+
+    private ArrayList<Object> materialize() {
+        if (_generic == null) {
+            ArrayList<Object> elements = new ArrayList<>(Math.max(_size + 1, 10));
+            for (int i = 0; i < _size; i++) {
+                elements.add(box(i));
+            }
+            _generic = elements;
+        }
+        return _generic;
+    }
+}
@@ -0,0 +1,88 @@
+package codeanalysis;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.RandomAccess;
+
+/**
+ * The list behind {@code range(start, end)} when a range is used as a value.
+ * Elements are computed from the bounds, so the range takes constant memory until it is
+ * modified; the first mutation copies it into an ordinary list.
+ */
+public class SiyoRange extends AbstractList<Object> implements RandomAccess {
+    private final int _start;
+    private final int _size;
+    private ArrayList<Object> _materialized;
+
+    /**
+     * Creates the range {@code [start, end)}. The range is empty if end is not after start.
+     *
+     * @param start The first element.
+     * @param end   The bound after the last element.
+     */
+    public SiyoRange(int start, int end) {
+        _start = start;
+        _size = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, (long) end - start));
+    }
+
+    @Override
+    public Object get(int index) {
+        if (_materialized != null) return _materialized.get(index);
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + _size);
+        }
+        return _start + index;
+    }
+
+    @Override
+    public int size() {
+        return _materialized != null ? _materialized.size() : _size;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (_materialized != null) return _materialized.indexOf(o);
+        if (!(o instanceof Integer value)) return -1;
+        long index = (long) value - _start;
+        return index >= 0 && index < _size ? (int) index : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return _materialized != null ? _materialized.lastIndexOf(o) : indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        return materialize().set(index, element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        materialize().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        Object removed = materialize().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    private ArrayList<Object> materialize() {
+        if (_materialized == null) {
+            ArrayList<Object> elements = new ArrayList<>(_size);
+            for (int i = 0; i < _size; i++) {
+                elements.add(_start + i);
+            }
+            _materialized = elements;
+        }
+        return _materialized;
+    }
+}
@@ -1,26 +1,39 @@
 package codeanalysis;
 
 import java.util.LinkedHashSet;
-import java.util.ArrayList;
 
 /**
  * Built-in Set type for Siyo. Any-type elements, ordered.
+ * <p>
+ * Like {@link SiyoMap}, {@code values()} returns a view and the set copies its elements on the
+ * next write, so a for-in loop sees the set as it was when the loop started.
  */
 public class SiyoSet {
-    private final LinkedHashSet<Object> _elements = new LinkedHashSet<>();
+    private LinkedHashSet<Object> _elements = new LinkedHashSet<>();
+    private boolean _shared;
 
-    public void add(Object value) { _elements.add(value); }
+    public void add(Object value) { elementsForWrite().add(value); }
     public boolean has(Object value) { return _elements.contains(value); }
-    public void remove(Object value) { _elements.remove(value); }
+    public void remove(Object value) { elementsForWrite().remove(value); }
     public int size() { return _elements.size(); }
 
     // String-keyed overloads for backward compat
-    public void add(String value) { _elements.add(value); }
+    public void add(String value) { elementsForWrite().add(value); }
     public boolean has(String value) { return _elements.contains(value); }
-    public void remove(String value) { _elements.remove(value); }
+    public void remove(String value) { elementsForWrite().remove(value); }
 
     public SiyoArray values() {
-        return new SiyoArray(new ArrayList<>(_elements), Object.class);
+        _shared = true;
+        return SiyoArray.view(_elements);
+    }
+
+    /** Returns the elements to modify, copying them first if a view still refers to them. */
+    private LinkedHashSet<Object> elementsForWrite() {
+        if (_shared) {
+            _elements = new LinkedHashSet<>(_elements);
+            _shared = false;
+        }
+        return _elements;
     }
 
     @Override
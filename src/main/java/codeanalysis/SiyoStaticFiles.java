@@ -0,0 +1,145 @@
+package codeanalysis;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Static file responses for httpServe handlers, behind the sendFile(request, path) builtin.
+ * <p>
+ * The response carries an ETag and Last-Modified built from the file's size and modification
+ * time, and answers a matching If-None-Match or If-Modified-Since with 304 Not Modified. Small
+ * files are kept in memory once read, and served from there while their size and modification
+ * time stay the same; larger files are sent by the server from the file to the socket with
+ * {@code FileChannel.transferTo}, never read into the heap.
+ */
+public class SiyoStaticFiles {
+    private static final int MAX_CACHED_FILE = 64 * 1024;
+    private static final long MAX_CACHE_BYTES = 16L * 1024 * 1024;
+
+    private record Entry(long size, long modified, String etag, String lastModified, String contentType, byte[] bytes) {}
+
+    // Least recently used first; guarded by itself
+    private static final LinkedHashMap<Path, Entry> CACHE = new LinkedHashMap<>(64, 0.75f, true);
+    private static long _cachedBytes;
+
+    /** Builds the response for the file at path, or a 404 if there is no such file. */
+    public static SiyoMap send(SiyoMap request, String path) throws IOException {
+        Path file = Path.of(path).toAbsolutePath().normalize();
+        Entry entry;
+        try {
+            entry = entry(file);
+        } catch (NoSuchFileException e) {
+            entry = null;
+        }
+        if (entry == null) return response(404, null, "Not Found");
+
+        SiyoMap headers = new SiyoMap();
+        headers.set("ETag", entry.etag);
+        headers.set("Last-Modified", entry.lastModified);
+        if (notModified(request, entry)) return response(304, headers, null);
+
+        headers.set("Content-Type", entry.contentType);
+        return response(200, headers, entry.bytes != null ? entry.bytes : file);
+    }
+
+    private static Entry entry(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) return null;
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        synchronized (CACHE) {
+            Entry cached = CACHE.get(file);
+            if (cached != null && cached.size == size && cached.modified == modified) return cached;
+        }
+
+        byte[] bytes = size <= MAX_CACHED_FILE ? Files.readAllBytes(file) : null;
+        if (bytes != null && bytes.length != size) bytes = null; // changed while reading; try again next time
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified) + "\"";
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(modified), ZoneOffset.UTC));
+        Entry entry = new Entry(size, modified, etag, lastModified, contentType(file), bytes);
+        if (bytes != null) cache(file, entry);
+        return entry;
+    }
+
+    private static void cache(Path file, Entry entry) {
+        synchronized (CACHE) {
+            Entry previous = CACHE.put(file, entry);
+            if (previous != null) _cachedBytes -= previous.size;
+            _cachedBytes += entry.size;
+            var eldest = CACHE.entrySet().iterator();
+            while (_cachedBytes > MAX_CACHE_BYTES && eldest.hasNext()) {
+                _cachedBytes -= eldest.next().getValue().size;
+                eldest.remove();
+            }
+        }
+    }
+
+    private static boolean notModified(SiyoMap request, Entry entry) {
+        if (!(request.get("headers") instanceof SiyoMap headers)) return false;
+        if (headers.get("if-none-match") instanceof String tags) {
+            // If-None-Match wins over If-Modified-Since when both are sent
+            for (String tag : tags.split(",")) {
+                String t = tag.trim();
+                if (t.startsWith("W/")) t = t.substring(2);
+                if (t.equals(entry.etag) || t.equals("*")) return true;
+            }
+            return false;
+        }
+        if (headers.get("if-modified-since") instanceof String since) {
+            try {
+                long sinceMillis = ZonedDateTime.parse(since, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return entry.modified / 1000 <= sinceMillis / 1000; // HTTP dates have whole seconds
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static SiyoMap response(int status, SiyoMap headers, Object body) {
+        SiyoMap response = new SiyoMap();
+        response.set("status", status);
+        if (headers != null) response.set("headers", headers);
+        response.set("body", body);
+        return response;
+    }
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=utf-8"),
+            Map.entry("htm", "text/html; charset=utf-8"),
+            Map.entry("css", "text/css; charset=utf-8"),
+            Map.entry("js", "text/javascript; charset=utf-8"),
+            Map.entry("json", "application/json"),
+            Map.entry("txt", "text/plain; charset=utf-8"),
+            Map.entry("md", "text/markdown; charset=utf-8"),
+            Map.entry("xml", "application/xml"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff2", "font/woff2"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("wasm", "application/wasm")
+    );
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String type = dot < 0 ? null : CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase());
+        return type != null ? type : "application/octet-stream";
+    }
+}
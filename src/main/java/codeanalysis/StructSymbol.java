@@ -11,6 +11,8 @@ public class StructSymbol {
     private final String _name;
     private final LinkedHashMap<String, Class<?>> _fields;
     private final LinkedHashMap<String, String> _fieldTypeNames;
+    private final Map<String, StructSymbol> _fieldStructs = new java.util.HashMap<>();
+    private final Map<String, Class<?>> _fieldElementTypes = new java.util.HashMap<>();
     private boolean _isActor = false;
 
     public StructSymbol(String name, LinkedHashMap<String, Class<?>> fields) {
@@ -30,6 +32,25 @@ public class StructSymbol {
         return _fieldTypeNames.get(fieldName);
     }
 
+    /** The struct a field of struct or struct array type holds, once linked by the binder. */
+    public StructSymbol getFieldStruct(String fieldName) {
+        return _fieldStructs.get(fieldName);
+    }
+
+    /** The element type of an array field, once linked by the binder. */
+    public Class<?> getFieldElementType(String fieldName) {
+        return _fieldElementTypes.get(fieldName);
+    }
+
+    /**
+     * Records what a field's type name resolved to. Struct types are registered one by one,
+     * so this is filled in afterwards, when something like a JSON codec needs the whole shape.
+     */
+    public void linkField(String fieldName, StructSymbol struct, Class<?> elementType) {
+        if (struct != null) _fieldStructs.put(fieldName, struct);
+        if (elementType != null) _fieldElementTypes.put(fieldName, elementType);
+    }
+
     public String getName() {
         return _name;
     }
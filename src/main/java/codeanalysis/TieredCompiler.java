@@ -0,0 +1,425 @@
+package codeanalysis;
+
+import codeanalysis.binding.*;
+import codeanalysis.emitting.Emitter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Second execution tier for the {@link Evaluator}.
+ * <p>
+ * Every function starts out interpreted. The evaluator reports each invocation and each
+ * backward jump (loop back-edge) here; once a function's counters cross the thresholds it is
+ * handed to a background thread that emits it — together with the user functions it calls —
+ * into its own class with the {@link Emitter}. When the class is loaded the function's
+ * {@link MethodHandle} is published and the evaluator dispatches subsequent calls to it.
+ * <p>
+ * Only self-contained functions are promoted: bodies that touch globals, structs, closures,
+ * actors, spawn, try/catch, Java interop or stdin stay interpreted, because their interpreter
+ * and bytecode runtime representations differ. There is no on-stack replacement — a hot loop
+ * speeds up from the next call of its function onward.
+ */
+public class TieredCompiler {
+    public static final int DEFAULT_INVOCATION_THRESHOLD = 1000;
+    public static final int DEFAULT_BACK_EDGE_THRESHOLD = 10000;
+
+    private static final AtomicInteger _classCounter = new AtomicInteger();
+
+    private final int _invocationThreshold;
+    private final int _backEdgeThreshold;
+    private Map<FunctionSymbol, BoundBlockStatement> _functions = Map.of();
+    private Set<String> _actorTypeNames = Set.of();
+
+    private final Map<FunctionSymbol, AtomicInteger> _invocations = new ConcurrentHashMap<>();
+    private final Map<FunctionSymbol, AtomicInteger> _backEdges = new ConcurrentHashMap<>();
+    private final Map<FunctionSymbol, MethodHandle> _compiled = new ConcurrentHashMap<>();
+    private final Set<FunctionSymbol> _queued = ConcurrentHashMap.newKeySet();
+    private final Map<FunctionSymbol, Boolean> _eligible = new ConcurrentHashMap<>();
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "siyo-tier-compiler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public TieredCompiler() {
+        this(DEFAULT_INVOCATION_THRESHOLD, DEFAULT_BACK_EDGE_THRESHOLD);
+    }
+
+    public TieredCompiler(int invocationThreshold, int backEdgeThreshold) {
+        _invocationThreshold = invocationThreshold;
+        _backEdgeThreshold = backEdgeThreshold;
+    }
+
+    /**
+     * Supplies the lowered function bodies of the program being evaluated.
+     *
+     * @param functions      The lowered function bodies, as handed to the evaluator.
+     * @param actorTypeNames The actor type names; their methods always stay interpreted.
+     */
+    public void attach(Map<FunctionSymbol, BoundBlockStatement> functions, Set<String> actorTypeNames) {
+        _functions = functions;
+        _actorTypeNames = actorTypeNames;
+    }
+
+    /**
+     * Returns the compiled entry point for a function, or null while it is still interpreted.
+     */
+    public MethodHandle getCompiled(FunctionSymbol function) {
+        return _compiled.isEmpty() ? null : _compiled.get(function);
+    }
+
+    /** Records one interpreted invocation of a function. */
+    public void recordInvocation(FunctionSymbol function) {
+        int count = _invocations.computeIfAbsent(function, f -> new AtomicInteger()).incrementAndGet();
+        if (count == _invocationThreshold) {
+            promote(function);
+        }
+    }
+
+    /** Records one backward jump taken inside an interpreted function body. */
+    public void recordBackEdge(FunctionSymbol function) {
+        int count = _backEdges.computeIfAbsent(function, f -> new AtomicInteger()).incrementAndGet();
+        if (count == _backEdgeThreshold) {
+            promote(function);
+        }
+    }
+
+    /**
+     * Checks whether the runtime arguments can cross into bytecode. Structs, closures and
+     * actors have a different shape there; nulls cannot be unboxed into primitive parameters.
+     */
+    public boolean acceptsArguments(FunctionSymbol function, Object[] arguments) {
+        for (int i = 0; i < arguments.length; i++) {
+            Object arg = arguments[i];
+            if (arg == null) {
+                Class<?> type = function.getParameters().get(i).getType();
+                if (type == Integer.class || type == Long.class || type == Double.class || type == Boolean.class) {
+                    return false;
+                }
+            } else if (arg instanceof SiyoStruct || arg instanceof SiyoClosure || arg instanceof SiyoActor) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Names of the functions that currently run as bytecode. */
+    public Set<String> getCompiledFunctionNames() {
+        Set<String> names = new HashSet<>();
+        for (FunctionSymbol function : _compiled.keySet()) names.add(function.getName());
+        return names;
+    }
+
+    /** Names of the functions handed to the background compiler, whether or not they compiled. */
+    public Set<String> getPromotedFunctionNames() {
+        Set<String> names = new HashSet<>();
+        for (FunctionSymbol function : _queued) names.add(function.getName());
+        return names;
+    }
+
+    /**
+     * Waits until every queued compilation has finished. Used by tests and diagnostics.
+     */
+    public void awaitPending() throws InterruptedException {
+        // The executor is single-threaded, so an empty task completes after everything queued before it
+        try {
+            _executor.submit(() -> { }).get(30, TimeUnit.SECONDS);
+        } catch (java.util.concurrent.ExecutionException | java.util.concurrent.TimeoutException e) {
+            // an empty task cannot fail; on timeout we simply stop waiting
+        }
+    }
+
+    private void promote(FunctionSymbol function) {
+        if (!isEligible(function) || !_queued.add(function)) return;
+        _executor.execute(() -> compile(function));
+    }
+
+    private void compile(FunctionSymbol function) {
+        try {
+            // Emit the hot function with every user function it can reach
+            Map<FunctionSymbol, BoundBlockStatement> unit = new LinkedHashMap<>();
+            collectUnit(function, unit);
+
+            String className = "SiyoTier$" + _classCounter.incrementAndGet();
+            Emitter emitter = new Emitter(new BoundBlockStatement(new ArrayList<>()), unit);
+            emitter.setModuleClass(true);
+            for (String actor : _actorTypeNames) emitter.registerActorType(actor);
+            byte[] bytes = emitter.emit(className);
+
+            Class<?> cls = new TierClassLoader(className, bytes).loadClass(className);
+            for (FunctionSymbol member : unit.keySet()) {
+                Method method = findMethod(cls, member);
+                if (method != null) {
+                    _compiled.putIfAbsent(member, MethodHandles.lookup().unreflect(method));
+                }
+            }
+        } catch (Throwable e) {
+            // Emission problems only cost speed — the function keeps running interpreted
+            if (System.getenv("SIYO_DEBUG") != null) {
+                System.err.println("[tier] failed to compile " + function.getName() + ": " + e);
+            }
+        }
+    }
+
+    private void collectUnit(FunctionSymbol function, Map<FunctionSymbol, BoundBlockStatement> unit) {
+        if (unit.containsKey(function)) return;
+        BoundBlockStatement body = _functions.get(function);
+        unit.put(function, body);
+        for (FunctionSymbol callee : calleesOf(body)) {
+            collectUnit(callee, unit);
+        }
+    }
+
+    private static Method findMethod(Class<?> cls, FunctionSymbol function) {
+        String name = function.getName().replace('.', '$');
+        for (Method method : cls.getDeclaredMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == function.getParameters().size()) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    // ========== Eligibility ==========
+
+    private boolean isEligible(FunctionSymbol function) {
+        Boolean cached = _eligible.get(function);
+        if (cached != null) return cached;
+        boolean result = checkEligible(function, new HashSet<>());
+        _eligible.put(function, result);
+        return result;
+    }
+
+    private boolean checkEligible(FunctionSymbol function, Set<FunctionSymbol> visiting) {
+        if (!visiting.add(function)) return true; // recursion is fine — same class
+        if (BuiltinFunctions.isBuiltin(function) || function.getModuleName() != null) return false;
+        if (function.getName().equals("init") && function.getParameters().isEmpty()) return false;
+        if (function.getName().contains(".")) {
+            String typeName = function.getName().substring(0, function.getName().indexOf('.'));
+            if (_actorTypeNames.contains(typeName)) return false;
+        }
+        if (!isTierableType(function.getReturnType())) return false;
+        for (ParameterSymbol param : function.getParameters()) {
+            if (!isTierableType(param.getType())) return false;
+        }
+        BoundBlockStatement body = _functions.get(function);
+        if (body == null) return false;
+
+        Set<VariableSymbol> locals = java.util.Collections.newSetFromMap(new IdentityHashMap<>());
+        locals.addAll(function.getParameters());
+        if (!scanStatement(body, locals)) return false;
+
+        for (FunctionSymbol callee : calleesOf(body)) {
+            if (!checkEligible(callee, visiting)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isTierableType(Class<?> type) {
+        return type != SiyoStruct.class && type != SiyoClosure.class && type != SiyoChannel.class;
+    }
+
+    private boolean scanStatement(BoundStatement node, Set<VariableSymbol> locals) {
+        if (node == null) return true;
+        switch (node.getType()) {
+            case BlockStatement -> {
+                for (BoundStatement s : ((BoundBlockStatement) node).getStatements()) {
+                    if (!scanStatement(s, locals)) return false;
+                }
+                return true;
+            }
+            case VariableDeclaration -> {
+                BoundVariableDeclaration decl = (BoundVariableDeclaration) node;
+                if (!isTierableType(decl.getVariable().getType())) return false;
+                locals.add(decl.getVariable());
+                return scanExpression(decl.getInitializer(), locals);
+            }
+            case ExpressionStatement -> {
+                return scanExpression(((BoundExpressionStatement) node).getExpression(), locals);
+            }
+            case ReturnStatement -> {
+                return scanExpression(((BoundReturnStatement) node).getExpression(), locals);
+            }
+            case ConditionalGotoStatement -> {
+                return scanExpression(((BoundConditionalGotoStatement) node).getCondition(), locals);
+            }
+            case IfStatement -> {
+                BoundIfStatement s = (BoundIfStatement) node;
+                return scanExpression(s.getCondition(), locals)
+                        && scanStatement(s.getThenStatement(), locals)
+                        && scanStatement(s.getElseStatement(), locals);
+            }
+            case WhileStatement -> {
+                BoundWhileStatement s = (BoundWhileStatement) node;
+                return scanExpression(s.getCondition(), locals) && scanStatement(s.getBody(), locals);
+            }
+            case ForStatement -> {
+                BoundForStatement s = (BoundForStatement) node;
+                return scanStatement(s.getInitializer(), locals)
+                        && scanExpression(s.getCondition(), locals)
+                        && scanExpression(s.getIterator(), locals)
+                        && scanStatement(s.getBody(), locals);
+            }
+            case GotoStatement, LabelStatement, BreakStatement, ContinueStatement -> {
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private boolean scanExpression(BoundExpression node, Set<VariableSymbol> locals) {
+        if (node == null) return true;
+        switch (node.getType()) {
+            case LiteralExpression -> {
+                return true;
+            }
+            case VariableExpression -> {
+                return locals.contains(((BoundVariableExpression) node).getVariable());
+            }
+            case AssignmentExpression -> {
+                BoundAssignmentExpression a = (BoundAssignmentExpression) node;
+                return locals.contains(a.getVariable()) && scanExpression(a.getExpression(), locals);
+            }
+            case UnaryExpression -> {
+                return scanExpression(((BoundUnaryExpression) node).getOperand(), locals);
+            }
+            case BinaryExpression -> {
+                BoundBinaryExpression b = (BoundBinaryExpression) node;
+                return scanExpression(b.getLeft(), locals) && scanExpression(b.getRight(), locals);
+            }
+            case CallExpression -> {
+                BoundCallExpression c = (BoundCallExpression) node;
+                FunctionSymbol f = c.getFunction();
+                if (BuiltinFunctions.isBuiltin(f) && !isTierableBuiltin(f)) return false;
+                for (BoundExpression arg : c.getArguments()) {
+                    if (!scanExpression(arg, locals)) return false;
+                }
+                return true;
+            }
+            case ArrayLiteralExpression -> {
+                for (BoundExpression e : ((BoundArrayLiteralExpression) node).getElements()) {
+                    if (!scanExpression(e, locals)) return false;
+                }
+                return true;
+            }
+            case MapLiteralExpression -> {
+                BoundMapLiteralExpression m = (BoundMapLiteralExpression) node;
+                for (BoundExpression e : m.getKeys()) if (!scanExpression(e, locals)) return false;
+                for (BoundExpression e : m.getValues()) if (!scanExpression(e, locals)) return false;
+                return true;
+            }
+            case IndexExpression -> {
+                BoundIndexExpression i = (BoundIndexExpression) node;
+                return scanExpression(i.getTarget(), locals) && scanExpression(i.getIndex(), locals);
+            }
+            case IndexAssignmentExpression -> {
+                BoundIndexAssignmentExpression i = (BoundIndexAssignmentExpression) node;
+                return scanExpression(i.getTarget(), locals) && scanExpression(i.getIndex(), locals)
+                        && scanExpression(i.getValue(), locals);
+            }
+            case MatchExpression -> {
+                BoundMatchExpression m = (BoundMatchExpression) node;
+                if (!scanExpression(m.getTarget(), locals)) return false;
+                for (BoundMatchExpression.BoundMatchArm arm : m.getArms()) {
+                    if (arm.preStatements() != null) {
+                        for (BoundStatement s : arm.preStatements()) {
+                            if (!scanStatement(s, locals)) return false;
+                        }
+                    }
+                    if (!scanExpression(arm.pattern(), locals) || !scanExpression(arm.body(), locals)) return false;
+                }
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private static boolean isTierableBuiltin(FunctionSymbol function) {
+        return function.getGeneric() == null
+                && function != BuiltinFunctions.INPUT
+                && function != BuiltinFunctions.CAN_READ
+                && function != BuiltinFunctions.SORT
+                && function != BuiltinFunctions.SORT_BY
+                && function != BuiltinFunctions.HTTP_SERVE
+                && function != BuiltinFunctions.ACTOR_HANDLE
+                && function != BuiltinFunctions.CHANNEL
+                && function != BuiltinFunctions.CHANNEL_BUFFERED;
+    }
+
+    private static List<FunctionSymbol> calleesOf(BoundStatement body) {
+        List<FunctionSymbol> callees = new ArrayList<>();
+        collectCallees(body, callees);
+        return callees;
+    }
+
+    private static void collectCallees(BoundNode node, List<FunctionSymbol> callees) {
+        if (node == null) return;
+        if (node instanceof BoundCallExpression c && !BuiltinFunctions.isBuiltin(c.getFunction())) {
+            callees.add(c.getFunction());
+        }
+        // Not every node exposes its children through the iterator, so descend by hand where needed
+        if (node instanceof BoundBlockStatement b) {
+            for (BoundStatement s : b.getStatements()) collectCallees(s, callees);
+        } else if (node instanceof BoundCallExpression c) {
+            for (BoundExpression arg : c.getArguments()) collectCallees(arg, callees);
+        } else if (node instanceof BoundArrayLiteralExpression a) {
+            for (BoundExpression e : a.getElements()) collectCallees(e, callees);
+        } else if (node instanceof BoundIndexExpression i) {
+            collectCallees(i.getTarget(), callees);
+            collectCallees(i.getIndex(), callees);
+        } else if (node instanceof BoundIndexAssignmentExpression i) {
+            collectCallees(i.getTarget(), callees);
+            collectCallees(i.getIndex(), callees);
+            collectCallees(i.getValue(), callees);
+        } else if (node instanceof BoundMatchExpression m) {
+            collectCallees(m.getTarget(), callees);
+            for (BoundMatchExpression.BoundMatchArm arm : m.getArms()) {
+                if (arm.preStatements() != null) {
+                    for (BoundStatement s : arm.preStatements()) collectCallees(s, callees);
+                }
+                collectCallees(arm.pattern(), callees);
+                collectCallees(arm.body(), callees);
+            }
+        } else {
+            var children = node.getChildren();
+            while (children.hasNext()) collectCallees(children.next(), callees);
+        }
+    }
+
+    private static class TierClassLoader extends ClassLoader {
+        private final String _name;
+        private final byte[] _bytes;
+
+        TierClassLoader(String name, byte[] bytes) {
+            super(TieredCompiler.class.getClassLoader());
+            _name = name;
+            _bytes = bytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(_name)) {
+                return defineClass(name, _bytes, 0, _bytes.length);
+            }
+            return super.findClass(name);
+        }
+    }
+}
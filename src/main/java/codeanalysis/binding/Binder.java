@@ -8,8 +8,12 @@ import codeanalysis.FunctionSymbol;
 import codeanalysis.LabelSymbol;
 import codeanalysis.ParameterSymbol;
 import codeanalysis.SiyoArray;
+import codeanalysis.SiyoAtomicInt;
+import codeanalysis.SiyoAtomicLong;
 import codeanalysis.SiyoChannel;
 import codeanalysis.SiyoClosure;
+import codeanalysis.SiyoConcurrentMap;
+import codeanalysis.SiyoCounter;
 import codeanalysis.SiyoMap;
 import codeanalysis.SiyoSet;
 import codeanalysis.SiyoStruct;
@@ -550,18 +554,24 @@ public class Binder {
      *   mut _ch = ch
      *   while true { mut msg = _ch.receive(); if msg == null { break }; body }
      */
-    private BoundStatement bindChannelForIn(ForInStatementSyntax syntax, BoundExpression channel, String itemName) {
+    /**
+     * Binds a for-in over a source pulled until it returns null: a channel's receive() or a line
+     * reader's next(). The loop is {@code while true { item = _src.pull(); if item == null break; body }}.
+     */
+    private BoundStatement bindPullForIn(ForInStatementSyntax syntax, BoundExpression source, Class<?> sourceType,
+                                         codeanalysis.JavaClassInfo sourceClass, String pullMethod, Class<?> itemType,
+                                         String itemName) {
         int uid = _labelCounter++;
         _scope = new BoundScope(_scope);
         _moduleHandler.setScope(_scope);
 
-        // Store channel in local
-        VariableSymbol chVar = new VariableSymbol("_ch" + uid, true, SiyoChannel.class);
+        // Store source in local
+        VariableSymbol chVar = new VariableSymbol("_ch" + uid, true, sourceType);
         _scope.tryDeclare(chVar);
-        BoundVariableDeclaration chDecl = new BoundVariableDeclaration(chVar, channel);
+        BoundVariableDeclaration chDecl = new BoundVariableDeclaration(chVar, source);
 
-        // Item variable (Object type — receive returns Object)
-        VariableSymbol itemVar = new VariableSymbol(itemName, true, Object.class);
+        // Item variable, typed as the pull method returns
+        VariableSymbol itemVar = new VariableSymbol(itemName, true, itemType);
         _scope = new BoundScope(_scope);
         _moduleHandler.setScope(_scope);
         _scope.tryDeclare(itemVar);
@@ -574,10 +584,9 @@ public class Binder {
         _loopStack.pop();
 
         // Build: msg = _ch.receive()
-        codeanalysis.JavaClassInfo chClass = _typeResolver.resolveJavaClassForSiyoType(SiyoChannel.class);
-        codeanalysis.JavaMethodSignature recvSig = chClass != null ? chClass.resolveMethod("receive", 0) : null;
-        BoundExpression recvCall = new BoundJavaMethodCallExpression(chClass, new BoundVariableExpression(chVar),
-                "receive", java.util.List.of(), recvSig, null);
+        codeanalysis.JavaMethodSignature recvSig = sourceClass != null ? sourceClass.resolveMethod(pullMethod, 0) : null;
+        BoundExpression recvCall = new BoundJavaMethodCallExpression(sourceClass, new BoundVariableExpression(chVar),
+                pullMethod, java.util.List.of(), recvSig, null);
         BoundVariableDeclaration itemDecl = new BoundVariableDeclaration(itemVar, recvCall);
 
         // Build: if msg == null { break }
@@ -620,6 +629,12 @@ public class Binder {
         return structType != null && structType.isActor();
     }
 
+    /** Types made to be shared between tasks, which spawn blocks may capture even when mut. */
+    private static boolean isThreadSafeType(Class<?> type) {
+        return type == SiyoChannel.class || type == SiyoConcurrentMap.class || type == SiyoAtomicInt.class
+                || type == SiyoAtomicLong.class || type == SiyoCounter.class;
+    }
+
     private boolean isMutableContainerType(Class<?> type) {
         return type == SiyoArray.class || type == SiyoMap.class
                 || type == SiyoSet.class || type == SiyoStruct.class;
@@ -1052,6 +1067,9 @@ public class Binder {
      * @return The bound call expression.
      */
     private BoundExpression bindCallExpression(CallExpressionSyntax syntax) {
+        if (syntax.getTypeArgument() != null) {
+            return bindGenericCallExpression(syntax);
+        }
         String name = syntax.getIdentifier().getData();
 
         // Check if calling a closure variable: f(args)
@@ -1102,22 +1120,105 @@ public class Binder {
             }
         }
 
+        // jsonEncode of a value whose struct type is known uses that struct's codec
+        if (function == BuiltinFunctions.JSON_ENCODE) {
+            StructSymbol structType = _typeResolver.resolveStructType(boundArguments.get(0));
+            if (structType != null && !structType.isActor()) {
+                function = instantiateJsonCodec(function, structType);
+            }
+        }
+
         return new BoundCallExpression(function, boundArguments);
     }
 
+    /**
+     * Binds a call with a struct type argument: jsonDecode<Todo>(body) or jsonEncode<Todo>(todo).
+     * These are the only generic functions, so the call binds to the builtin's instantiation for the struct.
+     */
+    private BoundExpression bindGenericCallExpression(CallExpressionSyntax syntax) {
+        String name = syntax.getIdentifier().getData();
+        String typeName = syntax.getTypeArgument().getData();
+
+        List<BoundExpression> boundArguments = new ArrayList<>();
+        for (ExpressionSyntax argumentSyntax : syntax.getArguments()) {
+            boundArguments.add(bindExpression(argumentSyntax));
+        }
+
+        FunctionSymbol generic = null;
+        if (name.equals(BuiltinFunctions.JSON_DECODE.getName())) generic = BuiltinFunctions.JSON_DECODE;
+        else if (name.equals(BuiltinFunctions.JSON_ENCODE.getName())) generic = BuiltinFunctions.JSON_ENCODE;
+        if (generic == null) {
+            _diagnostics.reportError(syntax.getIdentifier().getSpan(), "Function '" + name + "' does not take a type argument");
+            return new BoundLiteralExpression(0);
+        }
+
+        StructSymbol structType = _structTypes.get(typeName);
+        if (structType == null || structType.isActor()) {
+            _diagnostics.reportUndefinedType(syntax.getTypeArgument().getSpan(), typeName);
+            return new BoundLiteralExpression(0);
+        }
+
+        if (boundArguments.size() != 1) {
+            _diagnostics.reportWrongArgumentCount(syntax.getSpan(), name, 1, boundArguments.size());
+            return new BoundLiteralExpression(0);
+        }
+        ParameterSymbol parameter = generic.getParameters().get(0);
+        Class<?> argumentType = boundArguments.get(0).getClassType();
+        if (parameter.getType() != Object.class && argumentType != Object.class && argumentType != parameter.getType()) {
+            _diagnostics.reportWrongArgumentType(syntax.getArguments().get(0).getSpan(), parameter.getName(), parameter.getType(), argumentType);
+        }
+
+        return new BoundCallExpression(instantiateJsonCodec(generic, structType), boundArguments);
+    }
+
+    private FunctionSymbol instantiateJsonCodec(FunctionSymbol generic, StructSymbol structType) {
+        linkFieldTypes(structType, new java.util.HashSet<>());
+        return generic.instantiate(structType, generic == BuiltinFunctions.JSON_DECODE ? SiyoStruct.class : String.class);
+    }
+
+    /** Resolves the struct and array element types of the struct's fields, and of the structs they hold. */
+    private void linkFieldTypes(StructSymbol structType, java.util.Set<StructSymbol> linked) {
+        if (!linked.add(structType)) return;
+        for (String field : structType.getFieldNames()) {
+            String typeName = structType.getFieldTypeName(field);
+            if (typeName == null) continue;
+            String baseName = typeName.endsWith("[]") ? typeName.substring(0, typeName.length() - 2) : typeName;
+            StructSymbol fieldStruct = _structTypes.get(baseName);
+            structType.linkField(field, fieldStruct, _typeResolver.lookupElementType(typeName));
+            if (fieldStruct != null) linkFieldTypes(fieldStruct, linked);
+        }
+    }
+
     private BoundStatement bindForInStatement(ForInStatementSyntax syntax) {
         BoundExpression collection = bindExpression(syntax.getCollection());
         String itemName = syntax.getItemName().getData();
 
         // Channel iteration: for msg in ch { ... } → while (true) { msg = ch.receive(); if msg == null break; body }
         if (collection.getClassType() == SiyoChannel.class) {
-            return bindChannelForIn(syntax, collection, itemName);
+            return bindPullForIn(syntax, collection, SiyoChannel.class,
+                    _typeResolver.resolveJavaClassForSiyoType(SiyoChannel.class), "receive", Object.class, itemName);
+        }
+
+        // Line iteration: for line in lines(path) { ... } → same loop over SiyoLines.next(), one line at a time
+        if (collection instanceof BoundCallExpression call && call.getFunction() == BuiltinFunctions.LINES) {
+            return bindPullForIn(syntax, collection, Object.class,
+                    _typeResolver.getOrLoadJavaClass("SiyoLines", "codeanalysis.SiyoLines"), "next", String.class, itemName);
+        }
+
+        // Range iteration: for i in range(a, b) { ... } → counting loop, no list is built
+        if (collection instanceof BoundCallExpression call && call.getFunction() == BuiltinFunctions.RANGE) {
+            return bindRangeForIn(syntax, call, itemName);
         }
 
         // Map iteration: for key in map { ... } → for key in map.keys() { ... }
+        // Set iteration: for x in set { ... } → for x in set.values() { ... }
+        // Both are views the loop walks in order; the map or set copies itself if the body writes to it
         if (collection.getClassType() == SiyoMap.class) {
             collection = new BoundCallExpression(BuiltinFunctions.MAP_KEYS,
                     java.util.List.of(collection));
+        } else if (collection.getClassType() == SiyoSet.class) {
+            collection = new BoundCallExpression(BuiltinFunctions.SET_VALUES,
+                    java.util.List.of(collection));
         }
 
         int uid = _labelCounter++; // unique id to avoid variable name collisions
@@ -1205,6 +1306,75 @@ public class Binder {
         return new BoundBlockStatement(outerStatements);
     }
 
+    /**
+     * Binds {@code for i in range(a, b)} as a counting loop over a primitive index:
+     * {@code mut _idx = a; imut _end = b; for ; _idx < _end; _idx = _idx + 1 { mut i = _idx; body }}.
+     * Both bounds are evaluated once, in order, before the first iteration, as the call would.
+     */
+    private BoundStatement bindRangeForIn(ForInStatementSyntax syntax, BoundCallExpression range, String itemName) {
+        int uid = _labelCounter++;
+
+        _scope = new BoundScope(_scope);
+        _moduleHandler.setScope(_scope);
+        VariableSymbol indexVar = new VariableSymbol("_idx" + uid, false, Integer.class);
+        VariableSymbol endVar = new VariableSymbol("_end" + uid, true, Integer.class);
+        _scope.tryDeclare(indexVar);
+        _scope.tryDeclare(endVar);
+
+        BoundVariableDeclaration indexDecl = new BoundVariableDeclaration(indexVar, range.getArguments().get(0));
+        BoundVariableDeclaration endDecl = new BoundVariableDeclaration(endVar, range.getArguments().get(1));
+
+        BoundExpression condition = new BoundBinaryExpression(
+                new BoundVariableExpression(indexVar),
+                BoundBinaryOperator.bind(codeanalysis.syntax.SyntaxType.LessToken, Integer.class, Integer.class),
+                new BoundVariableExpression(endVar)
+        );
+        BoundExpression increment = new BoundAssignmentExpression(indexVar,
+                new BoundBinaryExpression(
+                        new BoundVariableExpression(indexVar),
+                        BoundBinaryOperator.bind(codeanalysis.syntax.SyntaxType.PlusToken, Integer.class, Integer.class),
+                        new BoundLiteralExpression(1)
+                )
+        );
+
+        // The item is a copy, so assigning to it in the body does not change the iteration
+        VariableSymbol itemVar = new VariableSymbol(itemName, false, Integer.class);
+        _scope = new BoundScope(_scope);
+        _moduleHandler.setScope(_scope);
+        _scope.tryDeclare(itemVar);
+        BoundVariableDeclaration itemDecl = new BoundVariableDeclaration(itemVar, new BoundVariableExpression(indexVar));
+
+        LabelSymbol breakLabel = generateLabel("break");
+        LabelSymbol continueLabel = generateLabel("continue");
+        _loopStack.push(new LoopLabels(breakLabel, continueLabel));
+
+        BoundStatement boundBody = bindStatement(syntax.getBody());
+
+        _loopStack.pop();
+        _scope = _scope.getParent();
+        _moduleHandler.setScope(_scope);
+
+        ArrayList<BoundStatement> bodyStatements = new ArrayList<>();
+        bodyStatements.add(itemDecl);
+        if (boundBody instanceof BoundBlockStatement block) {
+            bodyStatements.addAll(block.getStatements());
+        } else {
+            bodyStatements.add(boundBody);
+        }
+
+        BoundForStatement forStmt = new BoundForStatement(new BoundBlockStatement(new ArrayList<>()), condition, increment,
+                new BoundBlockStatement(bodyStatements), breakLabel, continueLabel);
+
+        ArrayList<BoundStatement> outerStatements = new ArrayList<>();
+        outerStatements.add(indexDecl);
+        outerStatements.add(endDecl);
+        outerStatements.add(forStmt);
+
+        _scope = _scope.getParent();
+        _moduleHandler.setScope(_scope);
+        return new BoundBlockStatement(outerStatements);
+    }
+
     private BoundStatement bindBreakStatement(BreakStatementSyntax syntax) {
         if (_loopStack.isEmpty()) {
             _diagnostics.reportBreakOutsideLoop(syntax.getKeyword().getSpan());
@@ -1487,8 +1657,8 @@ public class Binder {
             VariableSymbol var = varExpr.getVariable();
             if (!localVarNames.contains(var.getName())) {
                 captured.add(var);
-                // Reject mutable variables (except channels, actor handles, Object/dynamic types, and synthetic loop vars)
-                if (!var.isReadOnly() && var.getType() != SiyoChannel.class
+                // Reject mutable variables (except thread-safe types, actor handles, Object/dynamic types, and synthetic loop vars)
+                if (!var.isReadOnly() && !isThreadSafeType(var.getType())
                         && var.getType() != Object.class
                         && !var.getName().startsWith("_idx") && !var.getName().startsWith("_col")
                         && !isActorHandle(var)) {
@@ -1639,6 +1809,13 @@ public class Binder {
                 captured.add(assignExpr.getVariable());
             }
         }
+        // Method calls and member access don't list their target and arguments as children
+        if (node instanceof BoundJavaMethodCallExpression javaCall) {
+            if (javaCall.getTarget() != null) collectExternalRefs(javaCall.getTarget(), localNames, captured);
+            for (BoundExpression arg : javaCall.getArguments()) collectExternalRefs(arg, localNames, captured);
+        } else if (node instanceof BoundMemberAccessExpression memberExpr) {
+            collectExternalRefs(memberExpr.getTarget(), localNames, captured);
+        }
         for (var it = node.getChildren(); it.hasNext(); ) {
             collectExternalRefs(it.next(), localNames, captured);
         }
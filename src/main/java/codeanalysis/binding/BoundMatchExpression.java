@@ -1,7 +1,9 @@
 package codeanalysis.binding;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -11,6 +13,8 @@ public class BoundMatchExpression extends BoundExpression {
     private final BoundExpression _target;
     private final List<BoundMatchArm> _arms;
     private final Class<?> _type;
+    private Map<Object, Integer> _constantArms;
+    private boolean _constantArmsComputed;
 
     public record BoundMatchArm(BoundExpression pattern, BoundExpression body, boolean isDefault,
                                     List<BoundStatement> preStatements) {
@@ -28,6 +32,39 @@ public class BoundMatchExpression extends BoundExpression {
     public BoundExpression getTarget() { return _target; }
     public List<BoundMatchArm> getArms() { return _arms; }
 
+    /**
+     * Maps each pattern value to the index of the first arm it selects, when every pattern is an
+     * int (or enum) literal or every pattern is a string literal, and a default arm, if any, comes
+     * last. Such a match can dispatch with a switch or a hash lookup instead of comparing the
+     * target against each arm in turn. Returns null for any other match.
+     */
+    public synchronized Map<Object, Integer> getConstantArms() {
+        if (!_constantArmsComputed) {
+            _constantArms = computeConstantArms();
+            _constantArmsComputed = true;
+        }
+        return _constantArms;
+    }
+
+    private Map<Object, Integer> computeConstantArms() {
+        Map<Object, Integer> constants = new LinkedHashMap<>();
+        Class<?> kind = null;
+        for (int i = 0; i < _arms.size(); i++) {
+            BoundMatchArm arm = _arms.get(i);
+            if (arm.isDefault()) {
+                if (i != _arms.size() - 1) return null;
+                continue;
+            }
+            if (!(arm.pattern() instanceof BoundLiteralExpression literal)) return null;
+            Object value = literal.getValue();
+            if (!(value instanceof Integer || value instanceof String)) return null;
+            if (kind == null) kind = value.getClass();
+            else if (kind != value.getClass()) return null;
+            constants.putIfAbsent(value, i);
+        }
+        return constants.isEmpty() ? null : constants;
+    }
+
     @Override
     public BoundNodeType getType() { return BoundNodeType.MatchExpression; }
 
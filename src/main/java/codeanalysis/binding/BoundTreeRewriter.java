@@ -83,7 +83,7 @@ public abstract class BoundTreeRewriter {
      * @param node The variable declaration statement to rewrite.
      * @return The rewritten variable declaration statement.
      */
-    private BoundStatement rewriteVariableDeclaration(BoundVariableDeclaration node) {
+    protected BoundStatement rewriteVariableDeclaration(BoundVariableDeclaration node) {
         BoundExpression initializer = rewriteExpression(node.getInitializer());
         if (initializer == node.getInitializer()) {
             return node;
@@ -123,7 +123,7 @@ public abstract class BoundTreeRewriter {
         if (condition == node.getCondition() && body == node.getBody()) {
             return node;
         }
-        return new BoundWhileStatement(condition, body);
+        return new BoundWhileStatement(condition, body, node.getBreakLabel(), node.getContinueLabel());
     }
 
     /**
@@ -245,6 +245,21 @@ public class TypeResolver {
         if (type == SiyoSet.class) {
             return getOrLoadJavaClass("SiyoSet", "codeanalysis.SiyoSet");
         }
+        if (type == SiyoConcurrentMap.class) {
+            return getOrLoadJavaClass("SiyoConcurrentMap", "codeanalysis.SiyoConcurrentMap");
+        }
+        if (type == SiyoAtomicInt.class) {
+            return getOrLoadJavaClass("SiyoAtomicInt", "codeanalysis.SiyoAtomicInt");
+        }
+        if (type == SiyoAtomicLong.class) {
+            return getOrLoadJavaClass("SiyoAtomicLong", "codeanalysis.SiyoAtomicLong");
+        }
+        if (type == SiyoCounter.class) {
+            return getOrLoadJavaClass("SiyoCounter", "codeanalysis.SiyoCounter");
+        }
+        if (type == SiyoMmap.class) {
+            return getOrLoadJavaClass("SiyoMmap", "codeanalysis.SiyoMmap");
+        }
         return null;
     }
 
@@ -307,6 +322,11 @@ public class TypeResolver {
             case "channel" -> SiyoChannel.class;
             case "map" -> SiyoMap.class;
             case "set" -> SiyoSet.class;
+            case "concurrentMap" -> SiyoConcurrentMap.class;
+            case "atomicInt" -> SiyoAtomicInt.class;
+            case "atomicLong" -> SiyoAtomicLong.class;
+            case "counter" -> SiyoCounter.class;
+            case "mmap" -> SiyoMmap.class;
             case "object", "any" -> Object.class;
             default -> _structTypes.containsKey(name) ? SiyoStruct.class : null;
         };
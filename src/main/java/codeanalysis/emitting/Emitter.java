@@ -45,6 +45,10 @@ public class Emitter {
     private final java.util.List<BoundSpawnExpression> _spawns = new java.util.ArrayList<>();
     private ClassWriter _classWriter; // keep reference for lambda method emission
 
+    // Structs that need JSON codec methods in this class ($jsonRead$T / $jsonWrite$T), by name
+    private final Map<String, StructSymbol> _jsonReaders = new java.util.LinkedHashMap<>();
+    private final Map<String, StructSymbol> _jsonWriters = new java.util.LinkedHashMap<>();
+
     public Emitter(BoundBlockStatement statement, Map<FunctionSymbol, BoundBlockStatement> functions) {
         _statement = statement;
         _functions = functions;
@@ -142,9 +146,9 @@ public class Emitter {
             emitSpawnMethod(cw, i, _spawns.get(i));
         }
 
-        // Generate closure dispatch method
-        if (!_lambdas.isEmpty()) {
-            emitClosureDispatch(cw);
+        // Generate adapters for lambdas the metafactory can't bind directly
+        for (int i = 0; i < _lambdas.size(); i++) {
+            if (needsLambdaAdapter(_lambdas.get(i))) emitLambdaAdapter(cw, i, _lambdas.get(i));
         }
 
         // Generate spawn wrapper methods
@@ -157,6 +161,14 @@ public class Emitter {
             emitActorStartMethod(cw);
         }
 
+        // Generate JSON codecs for the structs that jsonDecode<T> / jsonEncode<T> were used with
+        for (StructSymbol type : _jsonReaders.values()) {
+            emitJsonReadMethod(cw, type);
+        }
+        for (StructSymbol type : _jsonWriters.values()) {
+            emitJsonWriteMethod(cw, type);
+        }
+
         // Emit helper methods if needed
         if (_needsRangeHelper) {
             emitRangeHelper(cw);
@@ -635,7 +647,14 @@ public class Emitter {
             else if (var.getType() == Boolean.class) emitUnboxIfNeeded(Boolean.class);
             else if (var.getType() == String.class) _mv.visitTypeInsn(CHECKCAST, "java/lang/String");
             else if (var.getType() == SiyoArray.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoArray");
+            else if (var.getType() == SiyoMap.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoMap");
+            else if (var.getType() == SiyoSet.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoSet");
             else if (var.getType() == SiyoChannel.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoChannel");
+            else if (var.getType() == SiyoConcurrentMap.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoConcurrentMap");
+            else if (var.getType() == SiyoAtomicInt.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoAtomicInt");
+            else if (var.getType() == SiyoAtomicLong.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoAtomicLong");
+            else if (var.getType() == SiyoCounter.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoCounter");
+            else if (var.getType() == SiyoMmap.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoMmap");
             // Other reference types stay as Object
             return;
         }
@@ -703,7 +722,7 @@ public class Emitter {
         Class<?> type = node.getLeft().getClassType();
 
         // String concatenation (String + any or any + String)
-        if (node.getOperator().getType() == BoundBinaryOperatorType.Addition && node.getOperator().getResultType() == String.class) {
+        if (isStringConcat(node)) {
             emitStringConcat(node);
             return;
         }
@@ -1029,6 +1048,11 @@ public class Emitter {
     }
 
     private void emitMatchExpression(BoundMatchExpression node) {
+        java.util.Map<Object, Integer> constantArms = node.getConstantArms();
+        if (constantArms != null) {
+            emitSwitchMatch(node, constantArms);
+            return;
+        }
         // Evaluate target once, store in local
         emitExpression(node.getTarget());
         emitBoxIfNeeded(node.getTarget().getClassType());
@@ -1071,6 +1095,120 @@ public class Emitter {
         _mv.visitLabel(endLabel);
     }
 
+    /**
+     * Emits a match whose patterns are all int or all string constants as a switch. Int arms
+     * become a tableswitch or lookupswitch; string arms switch on the hash code and then compare
+     * the few strings sharing it, as javac does. A target that isn't an int or a string at run
+     * time (including null) takes the default arm.
+     */
+    private void emitSwitchMatch(BoundMatchExpression node, java.util.Map<Object, Integer> constantArms) {
+        var arms = node.getArms();
+        boolean strings = constantArms.keySet().iterator().next() instanceof String;
+        Class<?> targetType = node.getTarget().getClassType();
+
+        Label endLabel = new Label();
+        Label defaultLabel = new Label();
+        Label[] armLabels = new Label[arms.size()];
+        for (int index : constantArms.values()) armLabels[index] = new Label();
+
+        emitExpression(node.getTarget());
+        if (!strings && targetType == Integer.class) {
+            emitIntSwitch(constantArms, armLabels, defaultLabel);
+        } else {
+            emitBoxIfNeeded(targetType);
+            int targetSlot = _nextLocal++;
+            _mv.visitVarInsn(ASTORE, targetSlot);
+            String owner = strings ? "java/lang/String" : "java/lang/Integer";
+            _mv.visitVarInsn(ALOAD, targetSlot);
+            _mv.visitTypeInsn(INSTANCEOF, owner);
+            _mv.visitJumpInsn(IFEQ, defaultLabel);
+            _mv.visitVarInsn(ALOAD, targetSlot);
+            _mv.visitTypeInsn(CHECKCAST, owner);
+            if (strings) {
+                emitStringSwitch(targetSlot, constantArms, armLabels, defaultLabel);
+            } else {
+                _mv.visitMethodInsn(INVOKEVIRTUAL, owner, "intValue", "()I", false);
+                emitIntSwitch(constantArms, armLabels, defaultLabel);
+            }
+        }
+
+        for (int i = 0; i < arms.size(); i++) {
+            // Arms whose pattern repeats an earlier one can never be selected
+            if (armLabels[i] == null) continue;
+            _mv.visitLabel(armLabels[i]);
+            emitMatchArmPreStatements(arms.get(i).preStatements());
+            emitExpression(arms.get(i).body());
+            _mv.visitJumpInsn(GOTO, endLabel);
+        }
+
+        _mv.visitLabel(defaultLabel);
+        var last = arms.get(arms.size() - 1);
+        if (last.isDefault()) {
+            emitMatchArmPreStatements(last.preStatements());
+            emitExpression(last.body());
+        } else {
+            _mv.visitInsn(ACONST_NULL);
+        }
+        _mv.visitLabel(endLabel);
+    }
+
+    /** Switches on the int on the stack, jumping to the label of the arm each key selects. */
+    private void emitIntSwitch(java.util.Map<Object, Integer> constantArms, Label[] armLabels, Label defaultLabel) {
+        java.util.TreeMap<Integer, Label> cases = new java.util.TreeMap<>();
+        for (var entry : constantArms.entrySet()) cases.put((Integer) entry.getKey(), armLabels[entry.getValue()]);
+        emitSwitch(cases, defaultLabel);
+    }
+
+    /**
+     * Switches on the hash code of the string in the given local (already on the stack), then
+     * compares it with each constant of that hash before jumping to the arm's label.
+     */
+    private void emitStringSwitch(int targetSlot, java.util.Map<Object, Integer> constantArms, Label[] armLabels,
+                                  Label defaultLabel) {
+        java.util.TreeMap<Integer, java.util.List<String>> byHash = new java.util.TreeMap<>();
+        for (Object key : constantArms.keySet()) {
+            byHash.computeIfAbsent(key.hashCode(), h -> new java.util.ArrayList<>()).add((String) key);
+        }
+        java.util.TreeMap<Integer, Label> cases = new java.util.TreeMap<>();
+        for (int hash : byHash.keySet()) cases.put(hash, new Label());
+
+        _mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false);
+        emitSwitch(cases, defaultLabel);
+        for (var entry : byHash.entrySet()) {
+            _mv.visitLabel(cases.get(entry.getKey()));
+            for (String key : entry.getValue()) {
+                _mv.visitVarInsn(ALOAD, targetSlot);
+                _mv.visitLdcInsn(key);
+                _mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Object", "equals", "(Ljava/lang/Object;)Z", false);
+                _mv.visitJumpInsn(IFNE, armLabels[constantArms.get(key)]);
+            }
+            _mv.visitJumpInsn(GOTO, defaultLabel);
+        }
+    }
+
+    /** Emits a tableswitch when the keys are dense enough, a lookupswitch otherwise (javac's rule). */
+    private void emitSwitch(java.util.TreeMap<Integer, Label> cases, Label defaultLabel) {
+        int low = cases.firstKey();
+        int high = cases.lastKey();
+        long tableCost = 4 + ((long) high - low + 1) + 3 * 3;
+        long lookupCost = 3 + 2L * cases.size() + 3L * cases.size();
+        if (tableCost <= lookupCost) {
+            Label[] labels = new Label[high - low + 1];
+            java.util.Arrays.fill(labels, defaultLabel);
+            for (var entry : cases.entrySet()) labels[entry.getKey() - low] = entry.getValue();
+            _mv.visitTableSwitchInsn(low, high, defaultLabel, labels);
+        } else {
+            int[] keys = new int[cases.size()];
+            Label[] labels = new Label[cases.size()];
+            int i = 0;
+            for (var entry : cases.entrySet()) {
+                keys[i] = entry.getKey();
+                labels[i++] = entry.getValue();
+            }
+            _mv.visitLookupSwitchInsn(defaultLabel, keys, labels);
+        }
+    }
+
     private void emitMatchArmPreStatements(java.util.List<BoundStatement> preStatements) {
         if (preStatements.isEmpty()) return;
         // Lower pre-statements (if/while/for → labels + gotos) before emitting
@@ -1081,104 +1219,132 @@ public class Emitter {
         }
     }
 
+    private static final org.objectweb.asm.Handle STRING_CONCAT_BOOTSTRAP = new org.objectweb.asm.Handle(
+            H_INVOKESTATIC, "java/lang/invoke/StringConcatFactory", "makeConcatWithConstants",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;",
+            false);
+    // A call site takes at most 200 argument slots; long and double take two
+    private static final int MAX_CONCAT_SLOTS = 200;
+
+    /**
+     * Emits a whole chain of string concatenations ({@code a + b + c}, and the chains string
+     * interpolation desugars to) as one makeConcatWithConstants call. String literals go into
+     * the recipe and primitive operands are passed unboxed, so no builder or intermediate
+     * string is created.
+     */
     private void emitStringConcat(BoundBinaryExpression node) {
-        _mv.visitTypeInsn(NEW, "java/lang/StringBuilder");
-        _mv.visitInsn(DUP);
-        _mv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V", false);
-        emitExpression(node.getLeft());
-        emitStringAppend(node.getLeft().getClassType());
-        emitExpression(node.getRight());
-        emitStringAppend(node.getRight().getClassType());
-        _mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+        java.util.List<BoundExpression> operands = new java.util.ArrayList<>();
+        collectConcatOperands(node, operands);
+
+        StringBuilder recipe = new StringBuilder();
+        StringBuilder desc = new StringBuilder("(");
+        int slots = 0;
+        for (BoundExpression operand : operands) {
+            if (operand instanceof BoundLiteralExpression literal && literal.getValue() instanceof String text
+                    && text.indexOf('\1') < 0 && text.indexOf('\2') < 0) {
+                recipe.append(text);
+                continue;
+            }
+            Class<?> type = operand.getClassType();
+            int size = type == Long.class || type == Double.class ? 2 : 1;
+            if (slots + size > MAX_CONCAT_SLOTS) {
+                // Concatenate what we have and pass the result on as the first argument
+                _mv.visitInvokeDynamicInsn("concat", desc + ")Ljava/lang/String;", STRING_CONCAT_BOOTSTRAP, recipe.toString());
+                recipe = new StringBuilder("\1");
+                desc = new StringBuilder("(Ljava/lang/String;");
+                slots = 1;
+            }
+            emitExpression(operand);
+            recipe.append('\1');
+            desc.append(concatArgumentDescriptor(type));
+            slots += size;
+        }
+        _mv.visitInvokeDynamicInsn("concat", desc + ")Ljava/lang/String;", STRING_CONCAT_BOOTSTRAP, recipe.toString());
     }
 
-    private void emitStringAppend(Class<?> type) {
-        String appendDesc;
-        if (type == Integer.class || type == Boolean.class) {
-            appendDesc = "(I)Ljava/lang/StringBuilder;";
-            if (type == Boolean.class) appendDesc = "(Z)Ljava/lang/StringBuilder;";
-        } else if (type == Long.class) {
-            appendDesc = "(J)Ljava/lang/StringBuilder;";
-        } else if (type == Double.class) {
-            appendDesc = "(D)Ljava/lang/StringBuilder;";
-        } else if (type == String.class) {
-            appendDesc = "(Ljava/lang/String;)Ljava/lang/StringBuilder;";
+    /** Collects the operands of nested string concatenations in evaluation order. */
+    private static void collectConcatOperands(BoundExpression expr, java.util.List<BoundExpression> operands) {
+        if (expr instanceof BoundBinaryExpression binary && isStringConcat(binary)) {
+            collectConcatOperands(binary.getLeft(), operands);
+            collectConcatOperands(binary.getRight(), operands);
         } else {
-            // Object - box if needed first
-            emitBoxIfNeeded(type);
-            appendDesc = "(Ljava/lang/Object;)Ljava/lang/StringBuilder;";
+            operands.add(expr);
         }
-        _mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", appendDesc, false);
+    }
+
+    private static boolean isStringConcat(BoundBinaryExpression node) {
+        return node.getOperator().getType() == BoundBinaryOperatorType.Addition
+                && node.getOperator().getResultType() == String.class;
+    }
+
+    private static String concatArgumentDescriptor(Class<?> type) {
+        if (type == Integer.class) return "I";
+        if (type == Boolean.class) return "Z";
+        if (type == Long.class) return "J";
+        if (type == Double.class) return "D";
+        if (type == String.class) return "Ljava/lang/String;";
+        return "Ljava/lang/Object;";
     }
 
     // ========== Lambda/Spawn Expression Emission ==========
 
+    private static final org.objectweb.asm.Handle LAMBDA_BOOTSTRAP = new org.objectweb.asm.Handle(
+            H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+            false);
+    // Arities with their own SiyoFunction interface; larger ones implement SiyoFunction.call(Object[])
+    private static final int MAX_DIRECT_ARITY = 3;
+
     private void emitLambdaCreation(BoundLambdaExpression node) {
         int index = _lambdas.indexOf(node);
         if (index < 0) { _lambdas.add(node); index = _lambdas.size() - 1; }
 
-        // Create Object[3] = {Integer(lambdaId), Object[]{captured}, String(className)}
-        _mv.visitLdcInsn(3);
-        _mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
-
-        // [0] = lambdaId
-        _mv.visitInsn(DUP);
-        _mv.visitLdcInsn(0);
-        _mv.visitLdcInsn(index);
-        _mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
-        _mv.visitInsn(AASTORE);
-
-        // [1] = captured array
-        _mv.visitInsn(DUP);
-        _mv.visitLdcInsn(1);
-        int capturedSize = node.getCapturedVariables().size();
-        _mv.visitLdcInsn(capturedSize);
-        _mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
-        int ci = 0;
+        // Captured values become the fields of the function object
+        StringBuilder capturedDesc = new StringBuilder();
         for (VariableSymbol var : node.getCapturedVariables()) {
-            _mv.visitInsn(DUP);
-            _mv.visitLdcInsn(ci++);
             emitVariableLoad(var);
             emitBoxIfNeeded(var.getType());
-            _mv.visitInsn(AASTORE);
+            capturedDesc.append("Ljava/lang/Object;");
+        }
+
+        int arity = node.getParameters().size();
+        boolean direct = arity <= MAX_DIRECT_ARITY;
+        String samDesc = closureCallDescriptor(arity);
+        org.objectweb.asm.Handle impl;
+        String instantiatedDesc;
+        if (needsLambdaAdapter(node)) {
+            impl = new org.objectweb.asm.Handle(H_INVOKESTATIC, _className, "lambda$" + index + "$adapter",
+                    "(" + capturedDesc + samDesc.substring(1), false);
+            instantiatedDesc = samDesc;
+        } else {
+            // The metafactory casts and unboxes the arguments and boxes the result itself
+            impl = new org.objectweb.asm.Handle(H_INVOKESTATIC, _className, "lambda$" + index,
+                    lambdaDescriptor(node), false);
+            StringBuilder desc = new StringBuilder("(");
+            for (ParameterSymbol param : node.getParameters()) desc.append(boxedDescriptor(param.getType()));
+            instantiatedDesc = desc.append(")Ljava/lang/Object;").toString();
         }
-        _mv.visitInsn(AASTORE);
-
-        // [2] = origin class name (for cross-module closure dispatch)
-        _mv.visitInsn(DUP);
-        _mv.visitLdcInsn(2);
-        _mv.visitLdcInsn(_className);
-        _mv.visitInsn(AASTORE);
-        // Stack: Object[3] (the closure representation)
+        String iface = direct ? "codeanalysis/SiyoFunction$Arity" + arity : "codeanalysis/SiyoFunction";
+        _mv.visitInvokeDynamicInsn(direct ? "call" + arity : "call", "(" + capturedDesc + ")L" + iface + ";",
+                LAMBDA_BOOTSTRAP,
+                org.objectweb.asm.Type.getType(samDesc),
+                impl,
+                org.objectweb.asm.Type.getType(instantiatedDesc));
     }
 
     private void emitClosureCall(BoundClosureCallExpression node) {
-        // closure is Object[3] = {Integer(lambdaId), Object[]{captured}, String(className)}
         emitExpression(node.getClosure());
-        int closureLocal = _nextLocal++;
-        _mv.visitVarInsn(ASTORE, closureLocal);
-
-        // Extract lambdaId
-        _mv.visitVarInsn(ALOAD, closureLocal);
-        _mv.visitTypeInsn(CHECKCAST, "[Ljava/lang/Object;");
-        _mv.visitLdcInsn(0);
-        _mv.visitInsn(AALOAD);
-        _mv.visitTypeInsn(CHECKCAST, "java/lang/Integer");
-        _mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I", false);
-        int lambdaIdLocal = _nextLocal++;
-        _mv.visitVarInsn(ISTORE, lambdaIdLocal);
-
-        // Extract captured array
-        _mv.visitVarInsn(ALOAD, closureLocal);
-        _mv.visitTypeInsn(CHECKCAST, "[Ljava/lang/Object;");
-        _mv.visitLdcInsn(1);
-        _mv.visitInsn(AALOAD);
-        _mv.visitTypeInsn(CHECKCAST, "[Ljava/lang/Object;");
-        int capturedLocal = _nextLocal++;
-        _mv.visitVarInsn(ASTORE, capturedLocal);
-
-        // Build args array
+        _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoFunction");
         int argCount = node.getArguments().size();
+        if (argCount <= MAX_DIRECT_ARITY) {
+            for (BoundExpression arg : node.getArguments()) {
+                emitExpression(arg);
+                emitBoxIfNeeded(arg.getClassType());
+            }
+            _mv.visitMethodInsn(INVOKEINTERFACE, "codeanalysis/SiyoFunction", "call" + argCount,
+                    closureCallDescriptor(argCount), true);
+            return;
+        }
         _mv.visitLdcInsn(argCount);
         _mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
         for (int i = 0; i < argCount; i++) {
@@ -1188,41 +1354,40 @@ public class Emitter {
             emitBoxIfNeeded(node.getArguments().get(i).getClassType());
             _mv.visitInsn(AASTORE);
         }
-        int argsLocal = _nextLocal++;
-        _mv.visitVarInsn(ASTORE, argsLocal);
-
-        // Check if closure has origin class info (cross-module dispatch)
-        // closure[2] contains the class name string if present
-        _mv.visitVarInsn(ALOAD, closureLocal);
-        _mv.visitTypeInsn(CHECKCAST, "[Ljava/lang/Object;");
-        _mv.visitInsn(ARRAYLENGTH);
-        _mv.visitLdcInsn(3);
-        Label sameClassLabel = new Label();
-        _mv.visitJumpInsn(IF_ICMPLT, sameClassLabel);
-
-        // Cross-module: use SiyoRuntime.dispatchClosure
-        _mv.visitVarInsn(ALOAD, closureLocal);
-        _mv.visitTypeInsn(CHECKCAST, "[Ljava/lang/Object;");
-        _mv.visitLdcInsn(2);
-        _mv.visitInsn(AALOAD);
-        _mv.visitTypeInsn(CHECKCAST, "java/lang/String");
-        _mv.visitVarInsn(ILOAD, lambdaIdLocal);
-        _mv.visitVarInsn(ALOAD, capturedLocal);
-        _mv.visitVarInsn(ALOAD, argsLocal);
-        _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoRuntime", "dispatchClosure",
-                "(Ljava/lang/String;I[Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", false);
-        Label endLabel = new Label();
-        _mv.visitJumpInsn(GOTO, endLabel);
+        _mv.visitMethodInsn(INVOKEINTERFACE, "codeanalysis/SiyoFunction", "call",
+                closureCallDescriptor(argCount), true);
+    }
 
-        // Same-class: direct static call (fast path)
-        _mv.visitLabel(sameClassLabel);
-        _mv.visitVarInsn(ILOAD, lambdaIdLocal);
-        _mv.visitVarInsn(ALOAD, capturedLocal);
-        _mv.visitVarInsn(ALOAD, argsLocal);
-        _mv.visitMethodInsn(INVOKESTATIC, _className, "closureDispatch$",
-                "(I[Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", false);
+    /** Descriptor of the SiyoFunction method called with the given number of arguments. */
+    private static String closureCallDescriptor(int arity) {
+        if (arity > MAX_DIRECT_ARITY) return "([Ljava/lang/Object;)Ljava/lang/Object;";
+        return "(" + "Ljava/lang/Object;".repeat(arity) + ")Ljava/lang/Object;";
+    }
 
-        _mv.visitLabel(endLabel);
+    /**
+     * The metafactory can't turn a void method into one returning Object or spread an argument
+     * array, so those lambdas get an adapter with the interface method's signature.
+     */
+    private static boolean needsLambdaAdapter(BoundLambdaExpression lambda) {
+        return lambda.getReturnType() == null || lambda.getParameters().size() > MAX_DIRECT_ARITY;
+    }
+
+    private String lambdaDescriptor(BoundLambdaExpression lambda) {
+        // lambda$N(captured0, captured1, ..., param0, param1, ...) -> return type
+        StringBuilder desc = new StringBuilder("(");
+        for (int c = 0; c < lambda.getCapturedVariables().size(); c++) desc.append("Ljava/lang/Object;");
+        for (ParameterSymbol param : lambda.getParameters()) desc.append(getTypeDescriptor(param.getType()));
+        desc.append(")");
+        desc.append(lambda.getReturnType() != null ? getTypeDescriptor(lambda.getReturnType()) : "V");
+        return desc.toString();
+    }
+
+    private String boxedDescriptor(Class<?> type) {
+        if (type == Integer.class) return "Ljava/lang/Integer;";
+        if (type == Long.class) return "Ljava/lang/Long;";
+        if (type == Boolean.class) return "Ljava/lang/Boolean;";
+        if (type == Double.class) return "Ljava/lang/Double;";
+        return getTypeDescriptor(type);
     }
 
     private void emitScope(BoundScopeExpression node) {
@@ -1438,18 +1603,7 @@ public class Emitter {
     }
 
     private void emitLambdaMethod(ClassWriter cw, int index, BoundLambdaExpression lambda) {
-        // Method signature: lambda$N(captured0, captured1, ..., param0, param1, ...) -> Object
-        StringBuilder desc = new StringBuilder("(");
-        for (VariableSymbol captured : lambda.getCapturedVariables()) {
-            desc.append("Ljava/lang/Object;");
-        }
-        for (ParameterSymbol param : lambda.getParameters()) {
-            desc.append(getTypeDescriptor(param.getType()));
-        }
-        desc.append(")");
-        desc.append(lambda.getReturnType() != null ? getTypeDescriptor(lambda.getReturnType()) : "V");
-
-        _mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "lambda$" + index, desc.toString(), null, null);
+        _mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "lambda$" + index, lambdaDescriptor(lambda), null, null);
         _mv.visitCode();
         _locals.clear();
         _labels.clear();
@@ -1519,59 +1673,42 @@ public class Emitter {
         _inIsolatedMethod = false;
     }
 
-    private void emitClosureDispatch(ClassWriter cw) {
-        // closureDispatch(int lambdaId, Object[] captured, Object[] args) -> Object
-        _mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "closureDispatch$",
-                "(I[Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+    /**
+     * Emits lambda$N$adapter(captured..., args) -> Object, which unboxes the arguments, calls
+     * lambda$N and returns its result boxed, or null for a void lambda.
+     */
+    private void emitLambdaAdapter(ClassWriter cw, int index, BoundLambdaExpression lambda) {
+        int capturedCount = lambda.getCapturedVariables().size();
+        int arity = lambda.getParameters().size();
+        String desc = "(" + "Ljava/lang/Object;".repeat(capturedCount) + closureCallDescriptor(arity).substring(1);
+        _mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC | ACC_SYNTHETIC, "lambda$" + index + "$adapter", desc, null, null);
         _mv.visitCode();
 
-        Label defaultLabel = new Label();
-        Label[] labels = new Label[_lambdas.size()];
-        for (int i = 0; i < labels.length; i++) labels[i] = new Label();
-
-        _mv.visitVarInsn(ILOAD, 0); // lambdaId
-        _mv.visitTableSwitchInsn(0, _lambdas.size() - 1, defaultLabel, labels);
-
-        for (int i = 0; i < _lambdas.size(); i++) {
-            _mv.visitLabel(labels[i]);
-            BoundLambdaExpression lambda = _lambdas.get(i);
-
-            // Push captured vars from array
-            int argIdx = 0;
-            for (VariableSymbol captured : lambda.getCapturedVariables()) {
-                _mv.visitVarInsn(ALOAD, 1); // captured array
-                _mv.visitLdcInsn(argIdx++);
-                _mv.visitInsn(AALOAD);
-            }
-            // Push params from args array
-            int paramIdx = 0;
-            for (ParameterSymbol param : lambda.getParameters()) {
-                _mv.visitVarInsn(ALOAD, 2); // args array
-                _mv.visitLdcInsn(paramIdx++);
+        for (int c = 0; c < capturedCount; c++) {
+            _mv.visitVarInsn(ALOAD, c);
+        }
+        for (int i = 0; i < arity; i++) {
+            if (arity > MAX_DIRECT_ARITY) {
+                _mv.visitVarInsn(ALOAD, capturedCount); // args array
+                _mv.visitLdcInsn(i);
                 _mv.visitInsn(AALOAD);
-                emitUnboxIfNeeded(param.getType());
-            }
-
-            // Build descriptor
-            StringBuilder desc = new StringBuilder("(");
-            for (int c = 0; c < lambda.getCapturedVariables().size(); c++) desc.append("Ljava/lang/Object;");
-            for (ParameterSymbol param : lambda.getParameters()) desc.append(getTypeDescriptor(param.getType()));
-            desc.append(")");
-            desc.append(lambda.getReturnType() != null ? getTypeDescriptor(lambda.getReturnType()) : "V");
-
-            _mv.visitMethodInsn(INVOKESTATIC, _className, "lambda$" + i, desc.toString(), false);
-
-            if (lambda.getReturnType() != null) {
-                emitBoxIfNeeded(lambda.getReturnType());
-                _mv.visitInsn(ARETURN);
             } else {
-                _mv.visitInsn(ACONST_NULL);
-                _mv.visitInsn(ARETURN);
+                _mv.visitVarInsn(ALOAD, capturedCount + i);
+            }
+            Class<?> type = lambda.getParameters().get(i).getType();
+            emitUnboxIfNeeded(type);
+            String typeDesc = getTypeDescriptor(type);
+            if (type != String.class && typeDesc.startsWith("L") && !typeDesc.equals("Ljava/lang/Object;")) {
+                _mv.visitTypeInsn(CHECKCAST, typeDesc.substring(1, typeDesc.length() - 1));
             }
         }
+        _mv.visitMethodInsn(INVOKESTATIC, _className, "lambda$" + index, lambdaDescriptor(lambda), false);
 
-        _mv.visitLabel(defaultLabel);
-        _mv.visitInsn(ACONST_NULL);
+        if (lambda.getReturnType() != null) {
+            emitBoxIfNeeded(lambda.getReturnType());
+        } else {
+            _mv.visitInsn(ACONST_NULL);
+        }
         _mv.visitInsn(ARETURN);
         _mv.visitMaxs(0, 0);
         _mv.visitEnd();
@@ -1652,6 +1789,9 @@ public class Emitter {
         else if (ret.equals("C")) _mv.visitInsn(I2C);      // keep as int (char → int)
     }
 
+    private static final java.util.Map<String, String> JAVA_ARRAY_CONVERSIONS = java.util.Map.of(
+            "[I", "toIntArray", "[J", "toLongArray", "[D", "toDoubleArray", "[B", "toByteArray");
+
     private void emitJavaArgs(java.util.List<BoundExpression> arguments, JavaMethodSignature sig) {
         String[] paramDescs = sig.getParamDescriptors();
         for (int i = 0; i < arguments.size(); i++) {
@@ -1675,6 +1815,10 @@ public class Emitter {
                 // double → double
             } else if (argType == Double.class && paramDesc.equals("F")) {
                 _mv.visitInsn(D2F); // double → float
+            } else if (argType == SiyoArray.class && JAVA_ARRAY_CONVERSIONS.containsKey(paramDesc)) {
+                // Primitive array parameter: pass the backing array of a matching SiyoArray as is
+                _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoArray");
+                _mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoArray", JAVA_ARRAY_CONVERSIONS.get(paramDesc), "()" + paramDesc, false);
             } else if (paramDesc.startsWith("L") || paramDesc.startsWith("[")) {
                 // Reference type parameter
                 if (argType == Integer.class || argType == Long.class || argType == Boolean.class || argType == Double.class) {
@@ -1692,27 +1836,25 @@ public class Emitter {
     // ========== Composite Type Emission ==========
 
     private void emitArrayLiteralExpression(BoundArrayLiteralExpression node) {
-        // Create temp ArrayList with elements
-        _mv.visitTypeInsn(NEW, "java/util/ArrayList");
-        _mv.visitInsn(DUP);
-        _mv.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V", false);
+        // SiyoArray presized for the literal, filled in place; int, long and float
+        // literals get a primitive backing and are added unboxed
+        Class<?> elementType = node.getElementType();
+        String typedAccess = typedArrayAccess(elementType);
+        emitIntConstant(node.getElements().size());
+        _mv.visitLdcInsn(org.objectweb.asm.Type.getType(typedAccess != null ? elementType : Object.class));
+        _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoArray", "withCapacity", "(ILjava/lang/Class;)Lcodeanalysis/SiyoArray;", false);
 
         for (BoundExpression element : node.getElements()) {
             _mv.visitInsn(DUP);
             emitExpression(element);
+            if (typedAccess != null && element.getClassType() == elementType) {
+                _mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoArray", "add" + typedAccess, "(" + getTypeDescriptor(elementType) + ")V", false);
+                continue;
+            }
             emitBoxIfNeeded(element.getClassType());
-            _mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "add", "(Ljava/lang/Object;)Z", true);
+            _mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoArray", "add", "(Ljava/lang/Object;)Z", false);
             _mv.visitInsn(POP);
         }
-
-        // Wrap in SiyoArray for type consistency
-        int tempListSlot = _nextLocal++;
-        _mv.visitVarInsn(ASTORE, tempListSlot);
-        _mv.visitTypeInsn(NEW, "codeanalysis/SiyoArray");
-        _mv.visitInsn(DUP);
-        _mv.visitVarInsn(ALOAD, tempListSlot);
-        _mv.visitLdcInsn(org.objectweb.asm.Type.getType(Object.class));
-        _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoArray", "<init>", "(Ljava/util/List;Ljava/lang/Class;)V", false);
         // SiyoArray on stack
     }
 
@@ -1751,15 +1893,41 @@ public class Emitter {
             _mv.visitTypeInsn(CHECKCAST, "java/util/List");
         }
         emitExpression(node.getIndex());
+        String typedAccess = typedArrayAccess(node.getClassType());
+        if (typedAccess != null) {
+            // Unboxed read from a primitive-backed array
+            String desc = getTypeDescriptor(node.getClassType());
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoRuntime", "get" + typedAccess + "At", "(Ljava/util/List;I)" + desc, false);
+            return;
+        }
         _mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "get", "(I)Ljava/lang/Object;", true);
         emitUnboxIfNeeded(node.getClassType());
     }
 
+    /**
+     * Returns the name part of the helpers that access array elements of the given type unboxed
+     * ("Int" for SiyoRuntime.getIntAt/setIntAt and SiyoArray.addInt, ...), or null if elements
+     * of that type are boxed.
+     */
+    private static String typedArrayAccess(Class<?> elementType) {
+        if (elementType == Integer.class) return "Int";
+        if (elementType == Long.class) return "Long";
+        if (elementType == Double.class) return "Double";
+        return null;
+    }
+
     private void emitIndexAssignmentExpression(BoundIndexAssignmentExpression node) {
         // list.set(index, value) -> returns old value
         emitExpression(node.getTarget());
         emitExpression(node.getIndex());
         emitExpression(node.getValue());
+        String typedAccess = typedArrayAccess(node.getValue().getClassType());
+        if (typedAccess != null && node.getTarget().getClassType() == SiyoArray.class) {
+            // Unboxed write to a primitive-backed array
+            String desc = getTypeDescriptor(node.getValue().getClassType());
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoRuntime", "set" + typedAccess + "At", "(Ljava/util/List;I" + desc + ")" + desc, false);
+            return;
+        }
         emitBoxIfNeeded(node.getValue().getClassType());
         _mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "set", "(ILjava/lang/Object;)Ljava/lang/Object;", true);
         // set() returns old value as Object, unbox to match expected type
@@ -1918,8 +2086,7 @@ public class Emitter {
         }
 
         if (function == BuiltinFunctions.RANGE) {
-            // Create ArrayList with range values - emit as helper static method call
-            // For now, inline: new ArrayList(); for(int i=start;i<end;i++) list.add(i)
+            // Lazy range list; for-in over range() never gets here, the binder turns it into a counting loop
             emitExpression(node.getArguments().get(0)); // start
             emitExpression(node.getArguments().get(1)); // end
             _mv.visitMethodInsn(INVOKESTATIC, _className, "$range", "(II)Ljava/util/List;", false);
@@ -1932,6 +2099,12 @@ public class Emitter {
                     "()Lcodeanalysis/SiyoArray;", false);
             return;
         }
+        if (function == BuiltinFunctions.SET_VALUES) {
+            emitCoerceArg(node.getArguments().get(0), SiyoSet.class);
+            _mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoSet", "values",
+                    "()Lcodeanalysis/SiyoArray;", false);
+            return;
+        }
         if (function == BuiltinFunctions.NEW_MAP) {
             _mv.visitTypeInsn(NEW, "codeanalysis/SiyoMap");
             _mv.visitInsn(DUP);
@@ -1944,6 +2117,30 @@ public class Emitter {
             _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoSet", "<init>", "()V", false);
             return;
         }
+        if (function == BuiltinFunctions.CONCURRENT_MAP) {
+            _mv.visitTypeInsn(NEW, "codeanalysis/SiyoConcurrentMap");
+            _mv.visitInsn(DUP);
+            _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoConcurrentMap", "<init>", "()V", false);
+            return;
+        }
+        if (function == BuiltinFunctions.ATOMIC_INT) {
+            _mv.visitTypeInsn(NEW, "codeanalysis/SiyoAtomicInt");
+            _mv.visitInsn(DUP);
+            _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoAtomicInt", "<init>", "()V", false);
+            return;
+        }
+        if (function == BuiltinFunctions.ATOMIC_LONG) {
+            _mv.visitTypeInsn(NEW, "codeanalysis/SiyoAtomicLong");
+            _mv.visitInsn(DUP);
+            _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoAtomicLong", "<init>", "()V", false);
+            return;
+        }
+        if (function == BuiltinFunctions.COUNTER) {
+            _mv.visitTypeInsn(NEW, "codeanalysis/SiyoCounter");
+            _mv.visitInsn(DUP);
+            _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoCounter", "<init>", "()V", false);
+            return;
+        }
         if (function == BuiltinFunctions.CHANNEL) {
             _mv.visitTypeInsn(NEW, "codeanalysis/SiyoChannel");
             _mv.visitInsn(DUP);
@@ -1997,6 +2194,19 @@ public class Emitter {
                     "(Ljava/util/List;Ljava/lang/Object;)V", false);
             return;
         }
+        if (function == BuiltinFunctions.SORT_NATURAL) {
+            emitExpression(node.getArguments().get(0)); // list
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoRuntime", "sortNatural",
+                    "(Ljava/util/List;)V", false);
+            return;
+        }
+        if (function == BuiltinFunctions.SORT_BY) {
+            emitExpression(node.getArguments().get(0)); // list
+            emitExpression(node.getArguments().get(1)); // key (closure)
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoRuntime", "sortBy",
+                    "(Ljava/util/List;Ljava/lang/Object;)V", false);
+            return;
+        }
         if (function == BuiltinFunctions.SUBSTRING) {
             emitCoerceArg(node.getArguments().get(0), String.class);
             emitCoerceArg(node.getArguments().get(1), Integer.class);
@@ -2068,15 +2278,9 @@ public class Emitter {
             _mv.visitMethodInsn(INVOKESTATIC, "java/util/regex/Pattern", "quote", "(Ljava/lang/String;)Ljava/lang/String;", false);
             _mv.visitInsn(ICONST_M1);
             _mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "split", "(Ljava/lang/String;I)[Ljava/lang/String;", false);
-            // String[] → List → SiyoArray
-            _mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "asList", "([Ljava/lang/Object;)Ljava/util/List;", false);
-            int listSlot = _nextLocal++;
-            _mv.visitVarInsn(ASTORE, listSlot);
-            _mv.visitTypeInsn(NEW, "codeanalysis/SiyoArray");
-            _mv.visitInsn(DUP);
-            _mv.visitVarInsn(ALOAD, listSlot);
+            // String[] → SiyoArray
             _mv.visitLdcInsn(org.objectweb.asm.Type.getType(String.class));
-            _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoArray", "<init>", "(Ljava/util/List;Ljava/lang/Class;)V", false);
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoArray", "of", "([Ljava/lang/Object;Ljava/lang/Class;)Lcodeanalysis/SiyoArray;", false);
             return;
         }
 
@@ -2095,6 +2299,49 @@ public class Emitter {
             _mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/Reader", "ready", "()Z", false);
             return;
         }
+        if (function == BuiltinFunctions.JSON_ENCODE) {
+            emitExpression(node.getArguments().get(0));
+            emitBoxIfNeeded(node.getArguments().get(0).getClassType());
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoJsonWriter", "toJson",
+                    "(Ljava/lang/Object;)Ljava/lang/String;", false);
+            return;
+        }
+        if (function == BuiltinFunctions.JSON_DECODE) {
+            emitCoerceArg(node.getArguments().get(0), String.class);
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoJsonReader", "parse",
+                    "(Ljava/lang/String;)Ljava/lang/Object;", false);
+            return;
+        }
+        if (function.getGeneric() == BuiltinFunctions.JSON_ENCODE) {
+            // SiyoJsonWriter.cached() → $jsonWrite$T(writer, value) → writer.finish()
+            StructSymbol type = function.getTypeArgument();
+            addJsonCodec(_jsonWriters, type);
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoJsonWriter", "cached",
+                    "()Lcodeanalysis/SiyoJsonWriter;", false);
+            _mv.visitInsn(DUP);
+            emitExpression(node.getArguments().get(0));
+            _mv.visitMethodInsn(INVOKESTATIC, _className, "$jsonWrite$" + type.getName(),
+                    "(Lcodeanalysis/SiyoJsonWriter;Ljava/lang/Object;)V", false);
+            _mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonWriter", "finish", "()Ljava/lang/String;", false);
+            return;
+        }
+        if (function.getGeneric() == BuiltinFunctions.JSON_DECODE) {
+            // reader = new SiyoJsonReader(text); value = $jsonRead$T(reader, reader.next()); reader.expectEnd()
+            StructSymbol type = function.getTypeArgument();
+            addJsonCodec(_jsonReaders, type);
+            _mv.visitTypeInsn(NEW, "codeanalysis/SiyoJsonReader");
+            _mv.visitInsn(DUP);
+            emitCoerceArg(node.getArguments().get(0), String.class);
+            _mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoJsonReader", "<init>", "(Ljava/lang/String;)V", false);
+            _mv.visitInsn(DUP);
+            _mv.visitInsn(DUP);
+            _mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "next", "()I", false);
+            _mv.visitMethodInsn(INVOKESTATIC, _className, "$jsonRead$" + type.getName(),
+                    "(Lcodeanalysis/SiyoJsonReader;I)Ljava/util/Map;", false);
+            _mv.visitInsn(SWAP);
+            _mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "expectEnd", "()V", false);
+            return;
+        }
         if (function == BuiltinFunctions.HTTP_GET) {
             emitExpression(node.getArguments().get(0));
             _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoHttp", "get",
@@ -2108,6 +2355,33 @@ public class Emitter {
                     "(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;", false);
             return;
         }
+        if (function == BuiltinFunctions.HTTP_SERVE) {
+            emitCoerceArg(node.getArguments().get(0), Integer.class);
+            emitExpression(node.getArguments().get(1)); // handler (closure)
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoRuntime", "httpServe",
+                    "(ILjava/lang/Object;)V", false);
+            return;
+        }
+        if (function == BuiltinFunctions.LINES) {
+            emitCoerceArg(node.getArguments().get(0), String.class);
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoLines", "open",
+                    "(Ljava/lang/String;)Lcodeanalysis/SiyoLines;", false);
+            return;
+        }
+        if (function == BuiltinFunctions.MMAP) {
+            emitCoerceArg(node.getArguments().get(0), String.class);
+            emitCoerceArg(node.getArguments().get(1), String.class);
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoMmap", "open",
+                    "(Ljava/lang/String;Ljava/lang/String;)Lcodeanalysis/SiyoMmap;", false);
+            return;
+        }
+        if (function == BuiltinFunctions.SEND_FILE) {
+            emitCoerceArg(node.getArguments().get(0), SiyoMap.class);
+            emitCoerceArg(node.getArguments().get(1), String.class);
+            _mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoStaticFiles", "send",
+                    "(Lcodeanalysis/SiyoMap;Ljava/lang/String;)Lcodeanalysis/SiyoMap;", false);
+            return;
+        }
 
         // Actor method interception: TypeName.method(self, args) → self.call("method", args)
         // Skip when calling own type's methods from within the same actor (self is raw struct)
@@ -2323,29 +2597,14 @@ public class Emitter {
     }
 
     private void emitRangeHelper(ClassWriter cw) {
+        // Lazy list: elements are computed from the bounds until the range is modified
         MethodVisitor mv = cw.visitMethod(ACC_PRIVATE | ACC_STATIC, "$range", "(II)Ljava/util/List;", null, null);
         mv.visitCode();
-        mv.visitTypeInsn(NEW, "java/util/ArrayList");
+        mv.visitTypeInsn(NEW, "codeanalysis/SiyoRange");
         mv.visitInsn(DUP);
-        mv.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V", false);
-        mv.visitVarInsn(ASTORE, 2); // list in slot 2
-        mv.visitVarInsn(ILOAD, 0);  // i = start
-        mv.visitVarInsn(ISTORE, 3); // i in slot 3
-        Label loopStart = new Label();
-        Label loopEnd = new Label();
-        mv.visitLabel(loopStart);
-        mv.visitVarInsn(ILOAD, 3);
-        mv.visitVarInsn(ILOAD, 1); // end
-        mv.visitJumpInsn(IF_ICMPGE, loopEnd);
-        mv.visitVarInsn(ALOAD, 2);
-        mv.visitVarInsn(ILOAD, 3);
-        mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
-        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "add", "(Ljava/lang/Object;)Z", true);
-        mv.visitInsn(POP);
-        mv.visitIincInsn(3, 1); // i++
-        mv.visitJumpInsn(GOTO, loopStart);
-        mv.visitLabel(loopEnd);
-        mv.visitVarInsn(ALOAD, 2);
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, "codeanalysis/SiyoRange", "<init>", "(II)V", false);
         mv.visitInsn(ARETURN);
         mv.visitMaxs(0, 0);
         mv.visitEnd();
@@ -2353,21 +2612,14 @@ public class Emitter {
 
     /**
      * Generates: static void $sort(List list, Object closureObj)
-     * Calls closureDispatch$ with the closure's lambdaId and captured vars for each comparison.
+     * Sorts with the closure as comparator through SiyoRuntime.sortList.
      */
     private void emitSortHelper(ClassWriter cw) {
-        // $sort(List, Object) where Object is Object[]{lambdaId, captured[]}
         MethodVisitor mv = cw.visitMethod(ACC_PRIVATE | ACC_STATIC, "$sort",
                 "(Ljava/util/List;Ljava/lang/Object;)V", null, null);
         mv.visitCode();
-        // list.sort((a, b) -> { Object[] closure = (Object[]) closureObj;
-        //   int id = (Integer) closure[0]; Object[] cap = (Object[]) closure[1];
-        //   return (Integer) closureDispatch$(id, cap, new Object[]{a, b}); })
         mv.visitVarInsn(ALOAD, 0); // list
-        mv.visitVarInsn(ALOAD, 1); // closure obj
-        // Use invokedynamic or inner class approach - simplest: use SiyoRuntime helper
-        // Actually, use lambda metafactory to create Comparator
-        // Simplest correct: call a static helper that does the sorting via reflection
+        mv.visitVarInsn(ALOAD, 1); // closure (SiyoFunction)
         mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoRuntime", "sortList",
                 "(Ljava/util/List;Ljava/lang/Object;)V", false);
         mv.visitInsn(RETURN);
@@ -2375,6 +2627,297 @@ public class Emitter {
         mv.visitEnd();
     }
 
+    // ========== JSON Codecs ==========
+
+    /** Adds the struct, and every struct its fields hold, to the codecs this class needs. */
+    private void addJsonCodec(Map<String, StructSymbol> codecs, StructSymbol type) {
+        if (codecs.putIfAbsent(type.getName(), type) != null) return;
+        for (String field : type.getFieldNames()) {
+            StructSymbol fieldStruct = type.getFieldStruct(field);
+            if (fieldStruct != null) addJsonCodec(codecs, fieldStruct);
+        }
+    }
+
+    /**
+     * Generates: static Map $jsonRead$T(SiyoJsonReader reader, int event)
+     * Reads a T whose first event has been read, straight into the struct's field map: every
+     * field starts at its zero value, members are matched against the field names, and members
+     * T doesn't have are skipped. Returns null for a JSON null.
+     */
+    private void emitJsonReadMethod(ClassWriter cw, StructSymbol type) {
+        MethodVisitor mv = cw.visitMethod(ACC_PRIVATE | ACC_STATIC, "$jsonRead$" + type.getName(),
+                "(Lcodeanalysis/SiyoJsonReader;I)Ljava/util/Map;", null, null);
+        mv.visitCode();
+        // Locals: 0 reader, 1 event, 2 fields, 3 member name, 4 value, 5 array event
+        Label isObject = new Label();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "expectObject", "(I)Z", false);
+        mv.visitJumpInsn(IFNE, isObject);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(isObject);
+
+        mv.visitTypeInsn(NEW, "java/util/LinkedHashMap");
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/util/LinkedHashMap", "<init>", "()V", false);
+        mv.visitVarInsn(ASTORE, 2);
+        for (String field : type.getFieldNames()) {
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitLdcInsn(field);
+            emitJsonZeroValue(mv, type.getFieldType(field));
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map", "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
+            mv.visitInsn(POP);
+        }
+
+        Label loop = new Label();
+        Label end = new Label();
+        mv.visitLabel(loop);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "next", "()I", false);
+        mv.visitIntInsn(BIPUSH, SiyoJsonReader.NAME);
+        mv.visitJumpInsn(IF_ICMPNE, end);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "stringValue", "()Ljava/lang/String;", false);
+        mv.visitVarInsn(ASTORE, 3);
+        for (String field : type.getFieldNames()) {
+            Label nextField = new Label();
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitLdcInsn(field);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+            mv.visitJumpInsn(IFEQ, nextField);
+            emitJsonReadField(mv, type, field);
+            mv.visitVarInsn(ASTORE, 4);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitLdcInsn(field);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map", "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
+            mv.visitInsn(POP);
+            mv.visitJumpInsn(GOTO, loop);
+            mv.visitLabel(nextField);
+        }
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "skipValue", "()V", false);
+        mv.visitJumpInsn(GOTO, loop);
+
+        mv.visitLabel(end);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Reads one field's value with the reader in local 0, leaving it boxed on the stack. */
+    private void emitJsonReadField(MethodVisitor mv, StructSymbol type, String field) {
+        Class<?> fieldType = type.getFieldType(field);
+        StructSymbol fieldStruct = type.getFieldStruct(field);
+        mv.visitVarInsn(ALOAD, 0);
+        if (fieldType == Integer.class) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "readInt", "()I", false);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
+        } else if (fieldType == Long.class) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "readLong", "()J", false);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Long", "valueOf", "(J)Ljava/lang/Long;", false);
+        } else if (fieldType == Double.class) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "readDouble", "()D", false);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false);
+        } else if (fieldType == Boolean.class) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "readBoolean", "()Z", false);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+        } else if (fieldType == String.class) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "readString", "()Ljava/lang/String;", false);
+        } else if (fieldType == SiyoStruct.class && fieldStruct != null) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "next", "()I", false);
+            mv.visitMethodInsn(INVOKESTATIC, _className, "$jsonRead$" + fieldStruct.getName(),
+                    "(Lcodeanalysis/SiyoJsonReader;I)Ljava/util/Map;", false);
+        } else if (fieldType == SiyoArray.class && fieldStruct != null) {
+            // null, or a SiyoArray with each element read by the element struct's codec
+            Label isArray = new Label();
+            Label loop = new Label();
+            Label done = new Label();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "next", "()I", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "expectArray", "(I)Z", false);
+            mv.visitJumpInsn(IFNE, isArray);
+            mv.visitInsn(ACONST_NULL);
+            mv.visitJumpInsn(GOTO, done);
+            mv.visitLabel(isArray);
+            mv.visitInsn(ICONST_0);
+            mv.visitLdcInsn(org.objectweb.asm.Type.getType(Object.class));
+            mv.visitMethodInsn(INVOKESTATIC, "codeanalysis/SiyoArray", "withCapacity", "(ILjava/lang/Class;)Lcodeanalysis/SiyoArray;", false);
+            mv.visitVarInsn(ASTORE, 4);
+            mv.visitLabel(loop);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "next", "()I", false);
+            mv.visitVarInsn(ISTORE, 5);
+            mv.visitVarInsn(ILOAD, 5);
+            mv.visitInsn(ICONST_0 + SiyoJsonReader.END_ARRAY);
+            Label element = new Label();
+            mv.visitJumpInsn(IF_ICMPNE, element);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitJumpInsn(GOTO, done);
+            mv.visitLabel(element);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, 5);
+            mv.visitMethodInsn(INVOKESTATIC, _className, "$jsonRead$" + fieldStruct.getName(),
+                    "(Lcodeanalysis/SiyoJsonReader;I)Ljava/util/Map;", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoArray", "add", "(Ljava/lang/Object;)Z", false);
+            mv.visitInsn(POP);
+            mv.visitJumpInsn(GOTO, loop);
+            mv.visitLabel(done);
+        } else if (fieldType == SiyoArray.class) {
+            Class<?> elementType = type.getFieldElementType(field);
+            mv.visitLdcInsn(org.objectweb.asm.Type.getType(elementType != null ? elementType : Object.class));
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "readArray", "(Ljava/lang/Class;)Lcodeanalysis/SiyoArray;", false);
+        } else {
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonReader", "readValue", "()Ljava/lang/Object;", false);
+        }
+    }
+
+    private void emitJsonZeroValue(MethodVisitor mv, Class<?> fieldType) {
+        if (fieldType == Integer.class) {
+            mv.visitInsn(ICONST_0);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
+        } else if (fieldType == Long.class) {
+            mv.visitInsn(LCONST_0);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Long", "valueOf", "(J)Ljava/lang/Long;", false);
+        } else if (fieldType == Double.class) {
+            mv.visitInsn(DCONST_0);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false);
+        } else if (fieldType == Boolean.class) {
+            mv.visitInsn(ICONST_0);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+        } else {
+            mv.visitInsn(ACONST_NULL);
+        }
+    }
+
+    /**
+     * Generates: static void $jsonWrite$T(SiyoJsonWriter writer, Object value)
+     * Writes a T's fields in declaration order with the writer's typed value methods.
+     */
+    private void emitJsonWriteMethod(ClassWriter cw, StructSymbol type) {
+        MethodVisitor mv = cw.visitMethod(ACC_PRIVATE | ACC_STATIC, "$jsonWrite$" + type.getName(),
+                "(Lcodeanalysis/SiyoJsonWriter;Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        // Locals: 0 writer, 1 value, 2 fields, 3 array, 4 array index
+        Label notNull = new Label();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitJumpInsn(IFNONNULL, notNull);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonWriter", "nullValue", "()Lcodeanalysis/SiyoJsonWriter;", false);
+        mv.visitInsn(POP);
+        mv.visitInsn(RETURN);
+        mv.visitLabel(notNull);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, "java/util/Map");
+        mv.visitVarInsn(ASTORE, 2);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonWriter", "beginObject", "()Lcodeanalysis/SiyoJsonWriter;", false);
+        mv.visitInsn(POP);
+
+        for (String field : type.getFieldNames()) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitLdcInsn(field);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonWriter", "name", "(Ljava/lang/String;)Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+            emitJsonWriteField(mv, type, field);
+        }
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "codeanalysis/SiyoJsonWriter", "endObject", "()Lcodeanalysis/SiyoJsonWriter;", false);
+        mv.visitInsn(POP);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Writes one field's value from the field map in local 2 with the writer in local 0. */
+    private void emitJsonWriteField(MethodVisitor mv, StructSymbol type, String field) {
+        Class<?> fieldType = type.getFieldType(field);
+        StructSymbol fieldStruct = type.getFieldStruct(field);
+        String writer = "codeanalysis/SiyoJsonWriter";
+        if (fieldType == SiyoArray.class && fieldStruct != null) {
+            // null, or each element written by the element struct's codec
+            Label isArray = new Label();
+            Label loop = new Label();
+            Label end = new Label();
+            Label done = new Label();
+            emitJsonFieldValue(mv, field);
+            mv.visitVarInsn(ASTORE, 3);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitJumpInsn(IFNONNULL, isArray);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "nullValue", "()Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+            mv.visitJumpInsn(GOTO, done);
+            mv.visitLabel(isArray);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "beginArray", "()Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, 4);
+            mv.visitLabel(loop);
+            mv.visitVarInsn(ILOAD, 4);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitTypeInsn(CHECKCAST, "java/util/List");
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "size", "()I", true);
+            mv.visitJumpInsn(IF_ICMPGE, end);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitTypeInsn(CHECKCAST, "java/util/List");
+            mv.visitVarInsn(ILOAD, 4);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "get", "(I)Ljava/lang/Object;", true);
+            mv.visitMethodInsn(INVOKESTATIC, _className, "$jsonWrite$" + fieldStruct.getName(),
+                    "(Lcodeanalysis/SiyoJsonWriter;Ljava/lang/Object;)V", false);
+            mv.visitIincInsn(4, 1);
+            mv.visitJumpInsn(GOTO, loop);
+            mv.visitLabel(end);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "endArray", "()Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+            mv.visitLabel(done);
+            return;
+        }
+
+        mv.visitVarInsn(ALOAD, 0);
+        emitJsonFieldValue(mv, field);
+        if (fieldType == Integer.class || fieldType == Long.class) {
+            mv.visitTypeInsn(CHECKCAST, "java/lang/Number");
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Number", "longValue", "()J", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "value", "(J)Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+        } else if (fieldType == Double.class) {
+            mv.visitTypeInsn(CHECKCAST, "java/lang/Number");
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Number", "doubleValue", "()D", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "value", "(D)Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+        } else if (fieldType == Boolean.class) {
+            mv.visitTypeInsn(CHECKCAST, "java/lang/Boolean");
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "value", "(Z)Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+        } else if (fieldType == String.class) {
+            mv.visitTypeInsn(CHECKCAST, "java/lang/String");
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "value", "(Ljava/lang/String;)Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+        } else if (fieldType == SiyoStruct.class && fieldStruct != null) {
+            mv.visitMethodInsn(INVOKESTATIC, _className, "$jsonWrite$" + fieldStruct.getName(),
+                    "(Lcodeanalysis/SiyoJsonWriter;Ljava/lang/Object;)V", false);
+        } else {
+            mv.visitMethodInsn(INVOKEVIRTUAL, writer, "write", "(Ljava/lang/Object;)Lcodeanalysis/SiyoJsonWriter;", false);
+            mv.visitInsn(POP);
+        }
+    }
+
+    private void emitJsonFieldValue(MethodVisitor mv, String field) {
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitLdcInsn(field);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+    }
+
     private void emitUnboxIfNeeded(Class<?> type) {
         if (type == Integer.class) {
             _mv.visitTypeInsn(CHECKCAST, "java/lang/Integer");
@@ -2412,8 +2955,13 @@ public class Emitter {
             else if (expectedType == SiyoMap.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoMap");
             else if (expectedType == SiyoSet.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoSet");
             else if (expectedType == SiyoChannel.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoChannel");
+            else if (expectedType == SiyoConcurrentMap.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoConcurrentMap");
+            else if (expectedType == SiyoAtomicInt.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoAtomicInt");
+            else if (expectedType == SiyoAtomicLong.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoAtomicLong");
+            else if (expectedType == SiyoCounter.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoCounter");
+            else if (expectedType == SiyoMmap.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoMmap");
             else if (expectedType == SiyoStruct.class) _mv.visitTypeInsn(CHECKCAST, "java/util/LinkedHashMap");
-            else if (expectedType == SiyoClosure.class) _mv.visitTypeInsn(CHECKCAST, "[Ljava/lang/Object;");
+            else if (expectedType == SiyoClosure.class) _mv.visitTypeInsn(CHECKCAST, "codeanalysis/SiyoFunction");
         }
     }
 
@@ -2440,6 +2988,11 @@ public class Emitter {
         if (type == SiyoMap.class) return "Lcodeanalysis/SiyoMap;";
         if (type == SiyoSet.class) return "Lcodeanalysis/SiyoSet;";
         if (type == SiyoChannel.class) return "Lcodeanalysis/SiyoChannel;";
+        if (type == SiyoConcurrentMap.class) return "Lcodeanalysis/SiyoConcurrentMap;";
+        if (type == SiyoAtomicInt.class) return "Lcodeanalysis/SiyoAtomicInt;";
+        if (type == SiyoAtomicLong.class) return "Lcodeanalysis/SiyoAtomicLong;";
+        if (type == SiyoCounter.class) return "Lcodeanalysis/SiyoCounter;";
+        if (type == SiyoMmap.class) return "Lcodeanalysis/SiyoMmap;";
         return "Ljava/lang/Object;";
     }
 }
@@ -0,0 +1,242 @@
+package codeanalysis.lowering;
+
+import codeanalysis.ParameterSymbol;
+import codeanalysis.VariableSymbol;
+import codeanalysis.binding.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Folds constant expressions before the tree is lowered.
+ * <p>
+ * Unary and binary expressions whose operands are literals are replaced by their value, computed
+ * with the same rules the evaluator applies to the bound operator. {@code imut} variables
+ * initialized with a literal are propagated into their uses, and if/while/for statements whose
+ * condition folds to a constant lose the branch that can never run. Anything whose result could
+ * differ between the interpreter and the emitted bytecode (division by zero, double or mixed-type
+ * equality, null operands) is left untouched.
+ */
+public class ConstantFolder extends BoundTreeRewriter {
+    private final Map<VariableSymbol, Object> _constants = new HashMap<>();
+
+    private ConstantFolder() {}
+
+    /**
+     * Folds the constants in the given bound statement.
+     *
+     * @param statement The bound statement to fold.
+     * @return The folded bound statement.
+     */
+    public static BoundStatement fold(BoundStatement statement) {
+        return new ConstantFolder().rewriteStatement(statement);
+    }
+
+    @Override
+    protected BoundStatement rewriteVariableDeclaration(BoundVariableDeclaration node) {
+        BoundStatement result = super.rewriteVariableDeclaration(node);
+        BoundVariableDeclaration declaration = (BoundVariableDeclaration) result;
+        VariableSymbol variable = declaration.getVariable();
+        if (variable.isReadOnly() && !(variable instanceof ParameterSymbol)
+                && declaration.getInitializer() instanceof BoundLiteralExpression literal
+                && isFoldable(literal.getValue())
+                && variable.getType() == literal.getValue().getClass()) {
+            _constants.put(variable, literal.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    protected BoundExpression rewriteVariableExpression(BoundVariableExpression node) {
+        if (_constants.containsKey(node.getVariable())) {
+            return new BoundLiteralExpression(_constants.get(node.getVariable()));
+        }
+        return node;
+    }
+
+    @Override
+    protected BoundExpression rewriteUnaryExpression(BoundUnaryExpression node) {
+        BoundExpression rewritten = super.rewriteUnaryExpression(node);
+        if (!(rewritten instanceof BoundUnaryExpression unary)
+                || !(unary.getOperand() instanceof BoundLiteralExpression literal)) {
+            return rewritten;
+        }
+        Object value = foldUnary(unary.getOperator().getType(), literal.getValue());
+        return value != null && value.getClass() == unary.getClassType() ? new BoundLiteralExpression(value) : rewritten;
+    }
+
+    @Override
+    protected BoundExpression rewriteBinaryExpression(BoundBinaryExpression node) {
+        BoundExpression rewritten = super.rewriteBinaryExpression(node);
+        if (!(rewritten instanceof BoundBinaryExpression binary)) {
+            return rewritten;
+        }
+        BoundBinaryOperatorType op = binary.getOperator().getType();
+        BoundExpression left = binary.getLeft();
+        BoundExpression right = binary.getRight();
+
+        // Short-circuit operators fold on a constant left side without evaluating the right
+        if ((op == BoundBinaryOperatorType.LogicalAnd || op == BoundBinaryOperatorType.LogicalOr)
+                && left instanceof BoundLiteralExpression l && l.getValue() instanceof Boolean b) {
+            boolean shortCircuits = op == BoundBinaryOperatorType.LogicalAnd ? !b : b;
+            return shortCircuits ? new BoundLiteralExpression(b) : right;
+        }
+
+        if (!(left instanceof BoundLiteralExpression l) || !(right instanceof BoundLiteralExpression r)) {
+            return rewritten;
+        }
+        Object value = foldBinary(op, l.getValue(), r.getValue());
+        return value != null && value.getClass() == binary.getClassType() ? new BoundLiteralExpression(value) : rewritten;
+    }
+
+    @Override
+    protected BoundStatement rewriteIfStatement(BoundIfStatement node) {
+        BoundExpression condition = rewriteExpression(node.getCondition());
+        if (condition instanceof BoundLiteralExpression literal && literal.getValue() instanceof Boolean b) {
+            if (b) {
+                return rewriteStatement(node.getThenStatement());
+            }
+            return node.getElseStatement() == null ? emptyBlock() : rewriteStatement(node.getElseStatement());
+        }
+        BoundStatement thenStatement = rewriteStatement(node.getThenStatement());
+        BoundStatement elseStatement = node.getElseStatement() == null ? null : rewriteStatement(node.getElseStatement());
+        if (condition == node.getCondition() && thenStatement == node.getThenStatement() && elseStatement == node.getElseStatement()) {
+            return node;
+        }
+        return new BoundIfStatement(condition, thenStatement, elseStatement);
+    }
+
+    @Override
+    protected BoundStatement rewriteWhileStatement(BoundWhileStatement node) {
+        BoundExpression condition = rewriteExpression(node.getCondition());
+        if (condition instanceof BoundLiteralExpression literal && Boolean.FALSE.equals(literal.getValue())) {
+            return emptyBlock();
+        }
+        BoundStatement body = rewriteStatement(node.getBody());
+        if (condition == node.getCondition() && body == node.getBody()) {
+            return node;
+        }
+        return new BoundWhileStatement(condition, body, node.getBreakLabel(), node.getContinueLabel());
+    }
+
+    @Override
+    protected BoundStatement rewriteForStatement(BoundForStatement node) {
+        BoundStatement initializer = rewriteStatement(node.getInitializer());
+        BoundExpression condition = rewriteExpression(node.getCondition());
+        if (condition instanceof BoundLiteralExpression literal && Boolean.FALSE.equals(literal.getValue())) {
+            return initializer;
+        }
+        BoundExpression iterator = rewriteExpression(node.getIterator());
+        BoundStatement body = rewriteStatement(node.getBody());
+        if (initializer == node.getInitializer() && condition == node.getCondition() && iterator == node.getIterator() && body == node.getBody()) {
+            return node;
+        }
+        return new BoundForStatement(initializer, condition, iterator, body, node.getBreakLabel(), node.getContinueLabel());
+    }
+
+    private static BoundBlockStatement emptyBlock() {
+        return new BoundBlockStatement(new ArrayList<>());
+    }
+
+    private static boolean isFoldable(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Double
+                || value instanceof Boolean || value instanceof String;
+    }
+
+    private static Object foldUnary(BoundUnaryOperatorType op, Object operand) {
+        return switch (op) {
+            case Identity -> operand instanceof Integer || operand instanceof Double ? operand : null;
+            case Negation -> operand instanceof Integer i ? (Object) (-i) : operand instanceof Double d ? (Object) (-d) : null;
+            case LogicalNegation -> operand instanceof Boolean b ? !b : null;
+            case OnesComplement -> operand instanceof Integer i ? ~i : null;
+        };
+    }
+
+    private static Object foldBinary(BoundBinaryOperatorType op, Object left, Object right) {
+        if (!isFoldable(left) || !isFoldable(right)) return null;
+
+        if (op == BoundBinaryOperatorType.Addition && (left instanceof String || right instanceof String)) {
+            return String.valueOf(left) + right;
+        }
+        if (left instanceof String l && right instanceof String r) {
+            return switch (op) {
+                case Equals -> l.equals(r);
+                case NotEquals -> !l.equals(r);
+                case LessThan -> l.compareTo(r) < 0;
+                case LessOrEqualsThan -> l.compareTo(r) <= 0;
+                case GreaterThan -> l.compareTo(r) > 0;
+                case GreaterOrEqualsThen -> l.compareTo(r) >= 0;
+                default -> null;
+            };
+        }
+        if (left instanceof Boolean l && right instanceof Boolean r) {
+            return switch (op) {
+                case LogicalAnd, BitwiseAnd -> l & r;
+                case LogicalOr, BitwiseOr -> l | r;
+                case BitwiseXor -> l ^ r;
+                case Equals -> l.equals(r);
+                case NotEquals -> !l.equals(r);
+                default -> null;
+            };
+        }
+        if (left instanceof Double l && right instanceof Double r) {
+            return switch (op) {
+                case Addition -> l + r;
+                case Subtraction -> l - r;
+                case Multiplication -> l * r;
+                case Division -> l / r;
+                case Modulo -> l % r;
+                case LessThan -> l < r;
+                case LessOrEqualsThan -> l <= r;
+                case GreaterThan -> l > r;
+                case GreaterOrEqualsThen -> l >= r;
+                default -> null;
+            };
+        }
+        if (left instanceof Integer l && right instanceof Integer r) {
+            if ((op == BoundBinaryOperatorType.Division || op == BoundBinaryOperatorType.Modulo) && r == 0) return null;
+            return switch (op) {
+                case Addition -> l + r;
+                case Subtraction -> l - r;
+                case Multiplication -> l * r;
+                case Division -> l / r;
+                case Modulo -> l % r;
+                case BitwiseAnd -> l & r;
+                case BitwiseOr -> l | r;
+                case BitwiseXor -> l ^ r;
+                case LeftShift -> l << r;
+                case RightShift -> l >> r;
+                case Equals -> l.intValue() == r.intValue();
+                case NotEquals -> l.intValue() != r.intValue();
+                case LessThan -> l < r;
+                case LessOrEqualsThan -> l <= r;
+                case GreaterThan -> l > r;
+                case GreaterOrEqualsThen -> l >= r;
+                default -> null;
+            };
+        }
+        // int/long mixes widen to long for arithmetic; equality across the two is left alone
+        if ((left instanceof Long || left instanceof Integer) && (right instanceof Long || right instanceof Integer)) {
+            long l = ((Number) left).longValue();
+            long r = ((Number) right).longValue();
+            boolean sameType = left.getClass() == right.getClass();
+            if ((op == BoundBinaryOperatorType.Division || op == BoundBinaryOperatorType.Modulo) && r == 0) return null;
+            return switch (op) {
+                case Addition -> l + r;
+                case Subtraction -> l - r;
+                case Multiplication -> l * r;
+                case Division -> l / r;
+                case Modulo -> l % r;
+                case Equals -> sameType ? (Object) (l == r) : null;
+                case NotEquals -> sameType ? (Object) (l != r) : null;
+                case LessThan -> l < r;
+                case LessOrEqualsThan -> l <= r;
+                case GreaterThan -> l > r;
+                case GreaterOrEqualsThen -> l >= r;
+                default -> null;
+            };
+        }
+        return null;
+    }
+}
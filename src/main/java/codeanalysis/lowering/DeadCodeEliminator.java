@@ -0,0 +1,221 @@
+package codeanalysis.lowering;
+
+import codeanalysis.LabelSymbol;
+import codeanalysis.binding.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cleans up the control flow of a flattened block after lowering.
+ * <p>
+ * The statement list is treated as a control-flow graph: gotos and conditional gotos are edges to
+ * their labels, returns end a path and everything else falls through. The pass then removes
+ * statements no path reaches, labels no jump targets, gotos to the statement right after them, and
+ * conditional gotos whose condition is a constant. Smaller method bodies emit less bytecode and
+ * stay under HotSpot's inlining thresholds more often.
+ * <p>
+ * Labels referenced from nested bodies (try/catch, match arms, try expressions, scopes) are kept,
+ * and treated as reachable, because a {@code break} or {@code continue} in there jumps back into
+ * this block.
+ */
+public class DeadCodeEliminator {
+    private DeadCodeEliminator() {}
+
+    /**
+     * Removes dead code from the given flattened block.
+     *
+     * @param block The flattened block produced by the lowerer.
+     * @return The block without unreachable statements, unused labels and redundant jumps.
+     */
+    public static BoundBlockStatement eliminate(BoundBlockStatement block) {
+        Set<LabelSymbol> nestedTargets = new HashSet<>();
+        for (BoundStatement statement : block.getStatements()) {
+            collectNestedTargets(statement, nestedTargets, false);
+        }
+
+        List<BoundStatement> statements = new ArrayList<>(block.getStatements());
+        boolean changed = true;
+        while (changed) {
+            int before = statements.size();
+            List<BoundStatement> simplified = simplifyJumps(statements);
+            boolean jumpsChanged = simplified != statements;
+            statements = removeUnreachable(simplified, nestedTargets);
+            statements = removeUnusedLabels(statements, nestedTargets);
+            changed = jumpsChanged || statements.size() != before;
+        }
+
+        if (statements.size() == block.getStatements().size()) {
+            return block;
+        }
+        return new BoundBlockStatement(new ArrayList<>(statements));
+    }
+
+    /**
+     * Drops gotos to the next statement and resolves conditional gotos on constants.
+     * Returns the same list when nothing changed.
+     */
+    private static List<BoundStatement> simplifyJumps(List<BoundStatement> statements) {
+        List<BoundStatement> result = null;
+        for (int i = 0; i < statements.size(); i++) {
+            BoundStatement statement = statements.get(i);
+            BoundStatement replacement = statement;
+
+            if (statement instanceof BoundGotoStatement gs && jumpsToNext(statements, i, gs.getLabel())) {
+                replacement = null;
+            } else if (statement instanceof BoundConditionalGotoStatement cgs) {
+                if (cgs.getCondition() instanceof BoundLiteralExpression literal && literal.getValue() instanceof Boolean b) {
+                    replacement = b == cgs.getJumpIfTrue() ? new BoundGotoStatement(cgs.getLabel()) : null;
+                } else if (jumpsToNext(statements, i, cgs.getLabel()) && isPure(cgs.getCondition())) {
+                    replacement = null;
+                }
+            }
+
+            if (replacement != statement && result == null) {
+                result = new ArrayList<>(statements.subList(0, i));
+            }
+            if (result != null && replacement != null) {
+                result.add(replacement);
+            }
+        }
+        return result == null ? statements : result;
+    }
+
+    private static boolean jumpsToNext(List<BoundStatement> statements, int index, LabelSymbol label) {
+        for (int j = index + 1; j < statements.size(); j++) {
+            if (!(statements.get(j) instanceof BoundLabelStatement ls)) return false;
+            if (ls.getLabel() == label) return true;
+        }
+        return false;
+    }
+
+    private static boolean isPure(BoundExpression expression) {
+        return expression instanceof BoundLiteralExpression || expression instanceof BoundVariableExpression;
+    }
+
+    private static List<BoundStatement> removeUnreachable(List<BoundStatement> statements, Set<LabelSymbol> nestedTargets) {
+        Map<LabelSymbol, Integer> labelToIndex = new HashMap<>();
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i) instanceof BoundLabelStatement ls) {
+                labelToIndex.put(ls.getLabel(), i);
+            }
+        }
+
+        boolean[] reachable = new boolean[statements.size()];
+        ArrayDeque<Integer> worklist = new ArrayDeque<>();
+        worklist.push(0);
+        for (LabelSymbol label : nestedTargets) {
+            Integer target = labelToIndex.get(label);
+            if (target != null) worklist.push(target);
+        }
+
+        while (!worklist.isEmpty()) {
+            int index = worklist.pop();
+            if (index >= statements.size() || reachable[index]) continue;
+            reachable[index] = true;
+
+            BoundStatement statement = statements.get(index);
+            if (statement instanceof BoundGotoStatement gs) {
+                // Jumps out of this block (a break from a lowered try body) have no successor here
+                Integer target = labelToIndex.get(gs.getLabel());
+                if (target != null) worklist.push(target);
+            } else if (statement instanceof BoundConditionalGotoStatement cgs) {
+                Integer target = labelToIndex.get(cgs.getLabel());
+                if (target != null) worklist.push(target);
+                worklist.push(index + 1);
+            } else if (!(statement instanceof BoundReturnStatement)) {
+                worklist.push(index + 1);
+            }
+        }
+
+        List<BoundStatement> result = new ArrayList<>(statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            if (reachable[i]) result.add(statements.get(i));
+        }
+        return result.size() == statements.size() ? statements : result;
+    }
+
+    private static List<BoundStatement> removeUnusedLabels(List<BoundStatement> statements, Set<LabelSymbol> nestedTargets) {
+        Set<LabelSymbol> used = new HashSet<>(nestedTargets);
+        for (BoundStatement statement : statements) {
+            if (statement instanceof BoundGotoStatement gs) used.add(gs.getLabel());
+            else if (statement instanceof BoundConditionalGotoStatement cgs) used.add(cgs.getLabel());
+        }
+
+        List<BoundStatement> result = new ArrayList<>(statements.size());
+        for (BoundStatement statement : statements) {
+            if (statement instanceof BoundLabelStatement ls && !used.contains(ls.getLabel())) continue;
+            result.add(statement);
+        }
+        return result.size() == statements.size() ? statements : result;
+    }
+
+    // ========== Nested jump targets ==========
+
+    private static void collectNestedTargets(BoundNode node, Set<LabelSymbol> targets, boolean nested) {
+        if (node == null) return;
+        switch (node) {
+            case BoundGotoStatement gs -> { if (nested) targets.add(gs.getLabel()); }
+            case BoundConditionalGotoStatement cgs -> {
+                if (nested) targets.add(cgs.getLabel());
+                collectNestedTargets(cgs.getCondition(), targets, nested);
+            }
+            case BoundBreakStatement bs -> targets.add(bs.getBreakLabel());
+            case BoundContinueStatement cs -> targets.add(cs.getContinueLabel());
+            case BoundTryCatchStatement tc -> {
+                collectNestedTargets(tc.getTryBody(), targets, true);
+                collectNestedTargets(tc.getCatchBody(), targets, true);
+            }
+            case BoundTryExpression te -> {
+                collectNestedTargets(te.getTryBody(), targets, true);
+                collectNestedTargets(te.getCatchBody(), targets, true);
+            }
+            case BoundScopeExpression se -> collectNestedTargets(se.getBody(), targets, true);
+            case BoundMatchExpression me -> {
+                collectNestedTargets(me.getTarget(), targets, nested);
+                for (BoundMatchExpression.BoundMatchArm arm : me.getArms()) {
+                    for (BoundStatement s : arm.preStatements()) collectNestedTargets(s, targets, true);
+                    collectNestedTargets(arm.pattern(), targets, nested);
+                    collectNestedTargets(arm.body(), targets, nested);
+                }
+            }
+            // Lambdas and spawns compile to their own methods; their jumps never leave them
+            case BoundLambdaExpression ignored -> { }
+            case BoundSpawnExpression ignored -> { }
+            case BoundArrayLiteralExpression al -> al.getElements().forEach(e -> collectNestedTargets(e, targets, nested));
+            case BoundIndexExpression ie -> {
+                collectNestedTargets(ie.getTarget(), targets, nested);
+                collectNestedTargets(ie.getIndex(), targets, nested);
+            }
+            case BoundIndexAssignmentExpression ia -> {
+                collectNestedTargets(ia.getTarget(), targets, nested);
+                collectNestedTargets(ia.getIndex(), targets, nested);
+                collectNestedTargets(ia.getValue(), targets, nested);
+            }
+            case BoundMemberAccessExpression ma -> collectNestedTargets(ma.getTarget(), targets, nested);
+            case BoundMemberAssignmentExpression ma -> {
+                collectNestedTargets(ma.getTarget(), targets, nested);
+                collectNestedTargets(ma.getValue(), targets, nested);
+            }
+            case BoundStructLiteralExpression sl -> sl.getFieldValues().values().forEach(e -> collectNestedTargets(e, targets, nested));
+            case BoundClosureCallExpression cc -> {
+                collectNestedTargets(cc.getClosure(), targets, nested);
+                cc.getArguments().forEach(e -> collectNestedTargets(e, targets, nested));
+            }
+            case BoundJavaMethodCallExpression jc -> {
+                collectNestedTargets(jc.getTarget(), targets, nested);
+                jc.getArguments().forEach(e -> collectNestedTargets(e, targets, nested));
+            }
+            case BoundCastExpression ce -> collectNestedTargets(ce.getExpression(), targets, nested);
+            default -> {
+                var children = node.getChildren();
+                while (children.hasNext()) collectNestedTargets(children.next(), targets, nested);
+            }
+        }
+    }
+}
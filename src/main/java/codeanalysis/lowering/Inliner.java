@@ -0,0 +1,441 @@
+package codeanalysis.lowering;
+
+import codeanalysis.BuiltinFunctions;
+import codeanalysis.FunctionSymbol;
+import codeanalysis.LabelSymbol;
+import codeanalysis.ParameterSymbol;
+import codeanalysis.VariableSymbol;
+import codeanalysis.binding.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inlines small, non-recursive functions into their callers after lowering.
+ * <p>
+ * A function is a candidate when its lowered body only uses gotos, labels, declarations, expression
+ * statements and returns, stays within the size limit, touches nothing but its own parameters and
+ * locals, and cannot reach itself through the call graph. Lambdas, spawns, try/catch, match and scope
+ * bodies are never inlined: they capture variables or lower their bodies lazily. Module functions and
+ * methods are left alone, since they are emitted into other classes or dispatched through actors.
+ * <p>
+ * Calls are inlined where they are a whole statement: {@code f(x)}, {@code var v = f(x)},
+ * {@code v = f(x)} and {@code return f(x)}. The arguments are stored in fresh locals in call order,
+ * the callee's locals and labels are renamed, and every return becomes a store of the result and a
+ * jump past the inlined body. The last statement of a block is never inlined, because it may be the
+ * implicit return value of the caller.
+ */
+public class Inliner {
+    /**
+     * The default maximum number of bound nodes in an inlined function body.
+     */
+    public static final int DEFAULT_SIZE_LIMIT = 32;
+
+    private final int _sizeLimit;
+    private final List<String> _report = new ArrayList<>();
+    private final Map<FunctionSymbol, Integer> _candidates = new HashMap<>();
+    private Map<FunctionSymbol, BoundBlockStatement> _functions;
+    private int _siteCounter = 0;
+
+    /**
+     * Creates an inliner with the default size limit.
+     */
+    public Inliner() {
+        this(DEFAULT_SIZE_LIMIT);
+    }
+
+    /**
+     * Creates an inliner.
+     *
+     * @param sizeLimit The maximum number of bound nodes in an inlined function body.
+     */
+    public Inliner(int sizeLimit) {
+        _sizeLimit = sizeLimit;
+    }
+
+    /**
+     * Inlines calls to small functions in the given lowered function bodies.
+     * Bodies without inlined calls are returned as the same instance.
+     *
+     * @param functions The lowered function bodies.
+     * @return The function bodies with small calls inlined.
+     */
+    public Map<FunctionSymbol, BoundBlockStatement> inline(Map<FunctionSymbol, BoundBlockStatement> functions) {
+        _functions = functions;
+        findCandidates();
+
+        Map<FunctionSymbol, BoundBlockStatement> result = new HashMap<>(functions);
+        if (_candidates.isEmpty()) {
+            return result;
+        }
+        for (Map.Entry<FunctionSymbol, BoundBlockStatement> entry : functions.entrySet()) {
+            FunctionSymbol caller = entry.getKey();
+            if (caller.getModuleName() != null || BuiltinFunctions.isBuiltin(caller)) continue;
+            result.put(caller, inlineCalls(caller, entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets one line per inlined call site, in the form {@code callee -> caller (n nodes)}.
+     *
+     * @return The inlining report.
+     */
+    public List<String> getReport() {
+        return _report;
+    }
+
+    // ========== Candidates ==========
+
+    private void findCandidates() {
+        Map<FunctionSymbol, Set<FunctionSymbol>> callGraph = new HashMap<>();
+        for (Map.Entry<FunctionSymbol, BoundBlockStatement> entry : _functions.entrySet()) {
+            Set<FunctionSymbol> callees = new HashSet<>();
+            collectCalls(entry.getValue(), callees);
+            callGraph.put(entry.getKey(), callees);
+        }
+
+        for (Map.Entry<FunctionSymbol, BoundBlockStatement> entry : _functions.entrySet()) {
+            FunctionSymbol function = entry.getKey();
+            if (function.getModuleName() != null || function.getName().contains(".")
+                    || BuiltinFunctions.isBuiltin(function)) {
+                continue;
+            }
+            int size = measure(function, entry.getValue());
+            if (size >= 0 && size <= _sizeLimit && !isRecursive(function, callGraph)) {
+                _candidates.put(function, size);
+            }
+        }
+    }
+
+    private static boolean isRecursive(FunctionSymbol function, Map<FunctionSymbol, Set<FunctionSymbol>> callGraph) {
+        Set<FunctionSymbol> visited = new HashSet<>();
+        List<FunctionSymbol> worklist = new ArrayList<>(callGraph.get(function));
+        while (!worklist.isEmpty()) {
+            FunctionSymbol current = worklist.remove(worklist.size() - 1);
+            if (current == function) return true;
+            if (!visited.add(current)) continue;
+            Set<FunctionSymbol> callees = callGraph.get(current);
+            if (callees != null) worklist.addAll(callees);
+        }
+        return false;
+    }
+
+    /**
+     * Measures the body of an inlining candidate.
+     *
+     * @return The number of bound nodes, or -1 if the body cannot be inlined.
+     */
+    private int measure(FunctionSymbol function, BoundBlockStatement body) {
+        List<BoundStatement> statements = body.getStatements();
+        Class<?> returnType = function.getReturnType();
+        if (returnType != null && (statements.isEmpty() || !(statements.get(statements.size() - 1) instanceof BoundReturnStatement
+                || statements.get(statements.size() - 1) instanceof BoundExpressionStatement))) {
+            return -1;
+        }
+
+        Set<VariableSymbol> locals = new HashSet<>(function.getParameters());
+        for (BoundStatement statement : statements) {
+            if (statement instanceof BoundVariableDeclaration declaration) {
+                locals.add(declaration.getVariable());
+            }
+        }
+
+        int size = 0;
+        for (int i = 0; i < statements.size(); i++) {
+            BoundStatement statement = statements.get(i);
+            int nodes = switch (statement) {
+                case BoundVariableDeclaration d -> measure(d.getInitializer(), locals);
+                case BoundConditionalGotoStatement cgs -> measure(cgs.getCondition(), locals);
+                case BoundGotoStatement ignored -> 0;
+                case BoundLabelStatement ignored -> 0;
+                case BoundExpressionStatement es -> {
+                    boolean implicitReturn = returnType != null && i == statements.size() - 1;
+                    yield implicitReturn && es.getExpression().getClassType() != returnType ? -1 : measure(es.getExpression(), locals);
+                }
+                case BoundReturnStatement rs -> {
+                    if (rs.getExpression() == null) yield returnType == null ? 0 : -1;
+                    yield rs.getExpression().getClassType() != returnType ? -1 : measure(rs.getExpression(), locals);
+                }
+                default -> -1;
+            };
+            if (nodes < 0) return -1;
+            size += nodes + 1;
+        }
+        return size;
+    }
+
+    private int measure(BoundExpression expression, Set<VariableSymbol> locals) {
+        int children = switch (expression) {
+            case BoundLiteralExpression ignored -> 0;
+            case BoundVariableExpression v -> locals.contains(v.getVariable()) ? 0 : -1;
+            case BoundAssignmentExpression a -> locals.contains(a.getVariable()) ? measure(a.getExpression(), locals) : -1;
+            case BoundUnaryExpression u -> measure(u.getOperand(), locals);
+            case BoundBinaryExpression b -> sum(measure(b.getLeft(), locals), measure(b.getRight(), locals));
+            case BoundIndexExpression ie -> sum(measure(ie.getTarget(), locals), measure(ie.getIndex(), locals));
+            case BoundMemberAccessExpression ma -> measure(ma.getTarget(), locals);
+            case BoundCallExpression c -> {
+                int total = 0;
+                for (BoundExpression argument : c.getArguments()) {
+                    total = sum(total, measure(argument, locals));
+                }
+                yield total;
+            }
+            default -> -1;
+        };
+        return children < 0 ? -1 : children + 1;
+    }
+
+    private static int sum(int a, int b) {
+        return a < 0 || b < 0 ? -1 : a + b;
+    }
+
+    // ========== Call sites ==========
+
+    private BoundBlockStatement inlineCalls(FunctionSymbol caller, BoundBlockStatement body) {
+        List<BoundStatement> statements = body.getStatements();
+        ArrayList<BoundStatement> result = null;
+        for (int i = 0; i < statements.size(); i++) {
+            BoundStatement statement = statements.get(i);
+            List<BoundStatement> inlined = i < statements.size() - 1 || !(statement instanceof BoundExpressionStatement)
+                    ? inlineSite(caller, statement)
+                    : null;
+
+            if (inlined != null && result == null) {
+                result = new ArrayList<>(statements.subList(0, i));
+            }
+            if (result != null) {
+                if (inlined != null) result.addAll(inlined);
+                else result.add(statement);
+            }
+        }
+        return result == null ? body : DeadCodeEliminator.eliminate(new BoundBlockStatement(result));
+    }
+
+    /**
+     * Inlines the call in the given statement.
+     *
+     * @return The statements replacing it, or null if it is not an inlinable call site.
+     */
+    private List<BoundStatement> inlineSite(FunctionSymbol caller, BoundStatement statement) {
+        BoundCallExpression call;
+        VariableSymbol target = null;
+        boolean declares = false;
+        boolean returns = false;
+
+        switch (statement) {
+            case BoundExpressionStatement es when es.getExpression() instanceof BoundCallExpression c -> call = c;
+            case BoundExpressionStatement es when es.getExpression() instanceof BoundAssignmentExpression a
+                    && a.getExpression() instanceof BoundCallExpression c -> {
+                call = c;
+                target = a.getVariable();
+            }
+            case BoundVariableDeclaration d when d.getInitializer() instanceof BoundCallExpression c -> {
+                call = c;
+                target = d.getVariable();
+                declares = true;
+            }
+            case BoundReturnStatement rs when rs.getExpression() instanceof BoundCallExpression c -> {
+                call = c;
+                returns = true;
+            }
+            default -> {
+                return null;
+            }
+        }
+
+        FunctionSymbol callee = call.getFunction();
+        if (callee == caller || !_candidates.containsKey(callee)) return null;
+        if (target != null && target.getType() != callee.getReturnType()) return null;
+        if (returns && caller.getReturnType() != callee.getReturnType()) return null;
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            if (call.getArguments().get(i).getClassType() != callee.getParameters().get(i).getType()) return null;
+        }
+
+        BoundBlockStatement body = _functions.get(callee);
+        int exits = callee.getReturnType() != null
+                && body.getStatements().get(body.getStatements().size() - 1) instanceof BoundExpressionStatement ? 1 : 0;
+        for (BoundStatement s : body.getStatements()) {
+            if (s instanceof BoundReturnStatement) exits++;
+        }
+        // A single exit is the last statement, so it can initialize the declared variable directly
+        boolean directDeclaration = declares && exits == 1;
+        Object defaultValue = defaultValue(callee.getReturnType());
+        if (declares && !directDeclaration && defaultValue == null) return null;
+
+        int site = ++_siteCounter;
+        Map<VariableSymbol, VariableSymbol> variables = new IdentityHashMap<>();
+        Map<LabelSymbol, LabelSymbol> labels = new IdentityHashMap<>();
+        LabelSymbol end = new LabelSymbol(callee.getName() + "$end" + site);
+        List<BoundStatement> inlined = new ArrayList<>();
+
+        if (declares && !directDeclaration) {
+            inlined.add(new BoundVariableDeclaration(target, new BoundLiteralExpression(defaultValue)));
+        }
+        for (int i = 0; i < callee.getParameters().size(); i++) {
+            ParameterSymbol parameter = callee.getParameters().get(i);
+            VariableSymbol local = rename(parameter, variables, site);
+            inlined.add(new BoundVariableDeclaration(local, call.getArguments().get(i)));
+        }
+
+        List<BoundStatement> statements = body.getStatements();
+        for (int i = 0; i < statements.size(); i++) {
+            BoundStatement s = statements.get(i);
+            BoundExpression result;
+            if (s instanceof BoundReturnStatement rs) {
+                result = rs.getExpression();
+            } else if (callee.getReturnType() != null && i == statements.size() - 1) {
+                result = ((BoundExpressionStatement) s).getExpression();
+            } else {
+                inlined.add(copy(s, variables, labels, site));
+                continue;
+            }
+
+            BoundExpression value = result == null ? null : copy(result, variables, site);
+            if (returns) {
+                inlined.add(new BoundReturnStatement(value));
+                continue;
+            }
+            if (directDeclaration) {
+                inlined.add(new BoundVariableDeclaration(target, value));
+            } else if (target != null) {
+                inlined.add(new BoundExpressionStatement(new BoundAssignmentExpression(target, value)));
+            } else if (value != null) {
+                inlined.add(new BoundExpressionStatement(value));
+            }
+            inlined.add(new BoundGotoStatement(end));
+        }
+        if (!returns) {
+            inlined.add(new BoundLabelStatement(end));
+        }
+
+        _report.add(callee.getName() + " -> " + caller.getName() + " (" + _candidates.get(callee) + " nodes)");
+        return inlined;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == Integer.class) return 0;
+        if (type == Long.class) return 0L;
+        if (type == Double.class) return 0.0;
+        if (type == Boolean.class) return false;
+        if (type == String.class) return "";
+        return null;
+    }
+
+    // ========== Copying ==========
+
+    private static VariableSymbol rename(VariableSymbol variable, Map<VariableSymbol, VariableSymbol> variables, int site) {
+        // Fresh names keep the emitter's name-based local and global lookups from matching caller variables
+        return variables.computeIfAbsent(variable,
+                v -> new VariableSymbol(v.getName() + "$inline" + site, v.isReadOnly(), v.getType()));
+    }
+
+    private static LabelSymbol rename(LabelSymbol label, Map<LabelSymbol, LabelSymbol> labels, int site) {
+        return labels.computeIfAbsent(label, l -> new LabelSymbol(l.getName() + "$inline" + site));
+    }
+
+    private static BoundStatement copy(BoundStatement statement, Map<VariableSymbol, VariableSymbol> variables,
+                                       Map<LabelSymbol, LabelSymbol> labels, int site) {
+        return switch (statement) {
+            case BoundVariableDeclaration d -> {
+                BoundExpression initializer = copy(d.getInitializer(), variables, site);
+                yield new BoundVariableDeclaration(rename(d.getVariable(), variables, site), initializer);
+            }
+            case BoundExpressionStatement es -> new BoundExpressionStatement(copy(es.getExpression(), variables, site));
+            case BoundLabelStatement ls -> new BoundLabelStatement(rename(ls.getLabel(), labels, site));
+            case BoundGotoStatement gs -> new BoundGotoStatement(rename(gs.getLabel(), labels, site));
+            case BoundConditionalGotoStatement cgs -> new BoundConditionalGotoStatement(
+                    rename(cgs.getLabel(), labels, site), copy(cgs.getCondition(), variables, site), cgs.getJumpIfTrue());
+            default -> throw new IllegalStateException("Cannot inline statement: " + statement.getType());
+        };
+    }
+
+    private static BoundExpression copy(BoundExpression expression, Map<VariableSymbol, VariableSymbol> variables, int site) {
+        return switch (expression) {
+            case BoundLiteralExpression l -> l;
+            case BoundVariableExpression v -> new BoundVariableExpression(rename(v.getVariable(), variables, site));
+            case BoundAssignmentExpression a -> new BoundAssignmentExpression(
+                    rename(a.getVariable(), variables, site), copy(a.getExpression(), variables, site));
+            case BoundUnaryExpression u -> new BoundUnaryExpression(u.getOperator(), copy(u.getOperand(), variables, site));
+            case BoundBinaryExpression b -> new BoundBinaryExpression(
+                    copy(b.getLeft(), variables, site), b.getOperator(), copy(b.getRight(), variables, site));
+            case BoundIndexExpression ie -> new BoundIndexExpression(
+                    copy(ie.getTarget(), variables, site), copy(ie.getIndex(), variables, site), ie.getClassType());
+            case BoundMemberAccessExpression ma -> new BoundMemberAccessExpression(
+                    copy(ma.getTarget(), variables, site), ma.getMemberName(), ma.getClassType());
+            case BoundCallExpression c -> {
+                List<BoundExpression> arguments = new ArrayList<>();
+                for (BoundExpression argument : c.getArguments()) {
+                    arguments.add(copy(argument, variables, site));
+                }
+                yield new BoundCallExpression(c.getFunction(), arguments);
+            }
+            default -> throw new IllegalStateException("Cannot inline expression: " + expression.getType());
+        };
+    }
+
+    // ========== Call graph ==========
+
+    private static void collectCalls(BoundNode node, Set<FunctionSymbol> calls) {
+        if (node == null) return;
+        switch (node) {
+            case BoundCallExpression c -> {
+                if (!BuiltinFunctions.isBuiltin(c.getFunction())) calls.add(c.getFunction());
+                c.getArguments().forEach(e -> collectCalls(e, calls));
+            }
+            case BoundTryCatchStatement tc -> {
+                collectCalls(tc.getTryBody(), calls);
+                collectCalls(tc.getCatchBody(), calls);
+            }
+            case BoundTryExpression te -> {
+                collectCalls(te.getTryBody(), calls);
+                collectCalls(te.getCatchBody(), calls);
+            }
+            case BoundScopeExpression se -> collectCalls(se.getBody(), calls);
+            case BoundMatchExpression me -> {
+                collectCalls(me.getTarget(), calls);
+                for (BoundMatchExpression.BoundMatchArm arm : me.getArms()) {
+                    for (BoundStatement s : arm.preStatements()) collectCalls(s, calls);
+                    collectCalls(arm.pattern(), calls);
+                    collectCalls(arm.body(), calls);
+                }
+            }
+            case BoundLambdaExpression le -> collectCalls(le.getBody(), calls);
+            case BoundSpawnExpression se -> collectCalls(se.getBody(), calls);
+            case BoundArrayLiteralExpression al -> al.getElements().forEach(e -> collectCalls(e, calls));
+            case BoundIndexExpression ie -> {
+                collectCalls(ie.getTarget(), calls);
+                collectCalls(ie.getIndex(), calls);
+            }
+            case BoundIndexAssignmentExpression ia -> {
+                collectCalls(ia.getTarget(), calls);
+                collectCalls(ia.getIndex(), calls);
+                collectCalls(ia.getValue(), calls);
+            }
+            case BoundMemberAccessExpression ma -> collectCalls(ma.getTarget(), calls);
+            case BoundMemberAssignmentExpression ma -> {
+                collectCalls(ma.getTarget(), calls);
+                collectCalls(ma.getValue(), calls);
+            }
+            case BoundStructLiteralExpression sl -> sl.getFieldValues().values().forEach(e -> collectCalls(e, calls));
+            case BoundClosureCallExpression cc -> {
+                collectCalls(cc.getClosure(), calls);
+                cc.getArguments().forEach(e -> collectCalls(e, calls));
+            }
+            case BoundJavaMethodCallExpression jc -> {
+                collectCalls(jc.getTarget(), calls);
+                jc.getArguments().forEach(e -> collectCalls(e, calls));
+            }
+            case BoundCastExpression ce -> collectCalls(ce.getExpression(), calls);
+            default -> {
+                var children = node.getChildren();
+                while (children.hasNext()) collectCalls(children.next(), calls);
+            }
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package codeanalysis.lowering;
 
+import codeanalysis.FunctionSymbol;
 import codeanalysis.LabelSymbol;
+import codeanalysis.ParameterSymbol;
+import codeanalysis.VariableSymbol;
 import codeanalysis.binding.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
 /**
@@ -33,14 +39,135 @@ public class Lowerer extends BoundTreeRewriter {
      * Lowers the given bound statement.
      * This method is a static method.
      * This method is used to lower the given bound statement.
+     * Constants are folded first, so branches on constant conditions are never lowered,
+     * and dead code is removed from the flattened result.
      *
      * @param statement The bound statement to be lowered.
      * @return The lowered bound statement.
      */
     public static BoundBlockStatement lower(BoundStatement statement) {
         Lowerer lowerer = new Lowerer();
-        BoundStatement result = lowerer.rewriteStatement(statement);
-        return flatten(result);
+        BoundStatement result = lowerer.rewriteStatement(ConstantFolder.fold(statement));
+        return DeadCodeEliminator.eliminate(flatten(result));
+    }
+
+    /**
+     * Lowers the body of the given function.
+     * Besides the regular lowering, calls of the function to itself in tail position are
+     * rewritten into a jump back to the start of the body, after the arguments have been
+     * assigned to the parameters. Deep tail recursion then runs in constant stack space.
+     *
+     * @param function The function whose body is lowered.
+     * @param body     The bound body of the function.
+     * @return The lowered bound body.
+     */
+    public static BoundBlockStatement lower(FunctionSymbol function, BoundStatement body) {
+        return eliminateTailCalls(function, lower(body));
+    }
+
+    /**
+     * Rewrites self tail calls in a flattened function body into loops.
+     * A call is in tail position when its value is returned directly, when it is the last statement
+     * of a function with an implicit return, or when a void function does nothing after it.
+     * Methods are left alone, since a call on {@code self} may go through an actor. Lambdas copy
+     * the values they capture, so reassigning the parameters does not affect them.
+     *
+     * @param function The function the body belongs to.
+     * @param body     The flattened body.
+     * @return The body with tail calls turned into jumps, or the same body if there are none.
+     */
+    private static BoundBlockStatement eliminateTailCalls(FunctionSymbol function, BoundBlockStatement body) {
+        List<ParameterSymbol> parameters = function.getParameters();
+        if (!parameters.isEmpty() && parameters.get(0).getName().equals("self")) {
+            return body;
+        }
+
+        List<BoundStatement> statements = body.getStatements();
+        ArrayList<BoundStatement> result = null;
+        LabelSymbol start = new LabelSymbol("TailCallStart");
+        int temporaries = 0;
+
+        for (int i = 0; i < statements.size(); i++) {
+            BoundStatement statement = statements.get(i);
+            BoundCallExpression call = getTailCall(function, statements, i);
+            if (call == null) {
+                if (result != null) result.add(statement);
+                continue;
+            }
+
+            if (result == null) {
+                result = new ArrayList<>();
+                result.add(new BoundLabelStatement(start));
+                result.addAll(statements.subList(0, i));
+            }
+            // Evaluate every argument before assigning any parameter: f(b, a % b) reads the old values
+            List<VariableSymbol> values = new ArrayList<>();
+            for (int p = 0; p < parameters.size(); p++) {
+                VariableSymbol value = new VariableSymbol(parameters.get(p).getName() + "$tail" + temporaries++, true, parameters.get(p).getType());
+                result.add(new BoundVariableDeclaration(value, call.getArguments().get(p)));
+                values.add(value);
+            }
+            for (int p = 0; p < parameters.size(); p++) {
+                BoundExpression value = new BoundVariableExpression(values.get(p));
+                result.add(new BoundExpressionStatement(new BoundAssignmentExpression(parameters.get(p), value)));
+            }
+            result.add(new BoundGotoStatement(start));
+        }
+
+        return result == null ? body : DeadCodeEliminator.eliminate(new BoundBlockStatement(result));
+    }
+
+    private static BoundCallExpression getTailCall(FunctionSymbol function, List<BoundStatement> statements, int index) {
+        BoundStatement statement = statements.get(index);
+        BoundExpression expression;
+        if (statement instanceof BoundReturnStatement rs) {
+            expression = rs.getExpression();
+        } else if (statement instanceof BoundExpressionStatement es
+                && (function.getReturnType() != null ? index == statements.size() - 1 : returnsAfter(statements, index))) {
+            expression = es.getExpression();
+        } else {
+            return null;
+        }
+
+        if (!(expression instanceof BoundCallExpression call) || !function.equals(call.getFunction())) {
+            return null;
+        }
+        for (int p = 0; p < call.getArguments().size(); p++) {
+            Class<?> argumentType = call.getArguments().get(p).getClassType();
+            Class<?> parameterType = function.getParameters().get(p).getType();
+            // The temporaries are typed like the parameters; only unboxing coercions are emitted for them
+            if (argumentType != parameterType && !(argumentType == Object.class && parameterType != Object.class)) {
+                return null;
+            }
+        }
+        return call;
+    }
+
+    /**
+     * Checks whether a void function returns right after the given statement,
+     * following labels and unconditional gotos.
+     */
+    private static boolean returnsAfter(List<BoundStatement> statements, int index) {
+        Map<LabelSymbol, Integer> labelToIndex = new HashMap<>();
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i) instanceof BoundLabelStatement ls) {
+                labelToIndex.put(ls.getLabel(), i);
+            }
+        }
+
+        int next = index + 1;
+        for (int steps = 0; steps < statements.size(); steps++) {
+            if (next >= statements.size()) return true;
+            BoundStatement statement = statements.get(next);
+            if (statement instanceof BoundLabelStatement) {
+                next++;
+            } else if (statement instanceof BoundGotoStatement gs && labelToIndex.containsKey(gs.getLabel())) {
+                next = labelToIndex.get(gs.getLabel());
+            } else {
+                return statement instanceof BoundReturnStatement rs && rs.getExpression() == null;
+            }
+        }
+        return false;
     }
 
     /**
@@ -1,12 +1,13 @@
 package codeanalysis.syntax;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
+import java.util.List;
 
 /**
  * Represents a function call expression in the syntax tree.
- * A call expression consists of an identifier and a list of arguments.
- * Example: "add(1, 2)"
+ * A call expression consists of an identifier, an optional struct type argument, and a list of arguments.
+ * Example: "add(1, 2)", "jsonDecode<Todo>(body)"
  *
  * @see <a href="https://github.com/urunsiyabend">GitHub Profile</a>
  * @author Siyabend Urun
@@ -14,6 +15,9 @@ import java.util.NoSuchElementException;
  */
 public class CallExpressionSyntax extends ExpressionSyntax {
     private final SyntaxToken _identifier;
+    private final SyntaxToken _lessToken;
+    private final SyntaxToken _typeArgument;
+    private final SyntaxToken _greaterToken;
     private final SyntaxToken _openParenthesisToken;
     private final SeparatedSyntaxList<ExpressionSyntax> _arguments;
     private final SyntaxToken _closeParenthesisToken;
@@ -30,7 +34,31 @@ public class CallExpressionSyntax extends ExpressionSyntax {
                                 SyntaxToken openParenthesisToken,
                                 SeparatedSyntaxList<ExpressionSyntax> arguments,
                                 SyntaxToken closeParenthesisToken) {
+        this(identifier, null, null, null, openParenthesisToken, arguments, closeParenthesisToken);
+    }
+
+    /**
+     * Creates a new instance of the CallExpressionSyntax class with a type argument.
+     *
+     * @param identifier            The function name identifier token.
+     * @param lessToken             The '<' token, or null without a type argument.
+     * @param typeArgument          The type argument's identifier token, or null.
+     * @param greaterToken          The '>' token, or null.
+     * @param openParenthesisToken  The open parenthesis token.
+     * @param arguments             The list of arguments.
+     * @param closeParenthesisToken The close parenthesis token.
+     */
+    public CallExpressionSyntax(SyntaxToken identifier,
+                                SyntaxToken lessToken,
+                                SyntaxToken typeArgument,
+                                SyntaxToken greaterToken,
+                                SyntaxToken openParenthesisToken,
+                                SeparatedSyntaxList<ExpressionSyntax> arguments,
+                                SyntaxToken closeParenthesisToken) {
         _identifier = identifier;
+        _lessToken = lessToken;
+        _typeArgument = typeArgument;
+        _greaterToken = greaterToken;
         _openParenthesisToken = openParenthesisToken;
         _arguments = arguments;
         _closeParenthesisToken = closeParenthesisToken;
@@ -45,6 +73,15 @@ public class CallExpressionSyntax extends ExpressionSyntax {
         return _identifier;
     }
 
+    /**
+     * Gets the type argument's identifier token.
+     *
+     * @return The type argument token, or null if the call has none.
+     */
+    public SyntaxToken getTypeArgument() {
+        return _typeArgument;
+    }
+
     /**
      * Gets the open parenthesis token.
      *
@@ -89,60 +126,16 @@ public class CallExpressionSyntax extends ExpressionSyntax {
      */
     @Override
     public Iterator<SyntaxNode> getChildren() {
-        return new ChildrenIterator();
-    }
-
-    private class ChildrenIterator implements Iterator<SyntaxNode> {
-        private int index;
-        private int argumentIndex;
-        private boolean inArguments;
-
-        @Override
-        public boolean hasNext() {
-            if (inArguments) {
-                return argumentIndex < _arguments.getNodesAndSeparators().size() || index < 4;
-            }
-            return index < 4;
-        }
-
-        @Override
-        public SyntaxNode next() {
-            if (!hasNext()) {
-                throw new NoSuchElementException();
-            }
-
-            if (inArguments) {
-                if (argumentIndex < _arguments.getNodesAndSeparators().size()) {
-                    return _arguments.getNodesAndSeparators().get(argumentIndex++);
-                }
-                inArguments = false;
-            }
-
-            switch (index) {
-                case 0 -> {
-                    index++;
-                    return _identifier;
-                }
-                case 1 -> {
-                    index++;
-                    return _openParenthesisToken;
-                }
-                case 2 -> {
-                    index++;
-                    inArguments = true;
-                    argumentIndex = 0;
-                    if (_arguments.getNodesAndSeparators().size() > 0) {
-                        return _arguments.getNodesAndSeparators().get(argumentIndex++);
-                    }
-                    inArguments = false;
-                    return next();
-                }
-                case 3 -> {
-                    index++;
-                    return _closeParenthesisToken;
-                }
-                default -> throw new NoSuchElementException();
-            }
+        List<SyntaxNode> children = new ArrayList<>();
+        children.add(_identifier);
+        if (_typeArgument != null) {
+            children.add(_lessToken);
+            children.add(_typeArgument);
+            children.add(_greaterToken);
         }
+        children.add(_openParenthesisToken);
+        children.addAll(_arguments.getNodesAndSeparators());
+        children.add(_closeParenthesisToken);
+        return children.iterator();
     }
 }
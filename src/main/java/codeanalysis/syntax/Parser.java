@@ -842,6 +842,13 @@ public class Parser {
                 if (peek(1).getType() == SyntaxType.OpenParenthesisToken) {
                     yield parseCallExpression();
                 }
+                // Call with a type argument: jsonDecode<Todo>(body)
+                if (peek(1).getType() == SyntaxType.LessToken &&
+                    peek(2).getType() == SyntaxType.IdentifierToken &&
+                    peek(3).getType() == SyntaxType.GreaterToken &&
+                    peek(4).getType() == SyntaxType.OpenParenthesisToken) {
+                    yield parseCallExpression();
+                }
                 if (peek(1).getType() == SyntaxType.OpenBraceToken &&
                     peek(2).getType() == SyntaxType.IdentifierToken &&
                     peek(3).getType() == SyntaxType.ColonToken) {
@@ -1111,12 +1118,22 @@ public class Parser {
 
     /**
      * Parses a call expression.
-     * A call expression consists of an identifier followed by arguments in parentheses.
+     * A call expression consists of an identifier, an optional type argument in angle brackets,
+     * and arguments in parentheses.
      *
      * @return The parsed call expression syntax.
      */
     private ExpressionSyntax parseCallExpression() {
         SyntaxToken identifier = match(SyntaxType.IdentifierToken);
+        if (current().getType() == SyntaxType.LessToken) {
+            SyntaxToken less = match(SyntaxType.LessToken);
+            SyntaxToken typeArgument = match(SyntaxType.IdentifierToken);
+            SyntaxToken greater = match(SyntaxType.GreaterToken);
+            SyntaxToken openParenthesis = match(SyntaxType.OpenParenthesisToken);
+            SeparatedSyntaxList<ExpressionSyntax> arguments = parseArguments();
+            SyntaxToken closeParenthesis = match(SyntaxType.CloseParenthesisToken);
+            return new CallExpressionSyntax(identifier, less, typeArgument, greater, openParenthesis, arguments, closeParenthesis);
+        }
         SyntaxToken openParenthesis = match(SyntaxType.OpenParenthesisToken);
         SeparatedSyntaxList<ExpressionSyntax> arguments = parseArguments();
         SyntaxToken closeParenthesis = match(SyntaxType.CloseParenthesisToken);
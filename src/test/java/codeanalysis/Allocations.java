@@ -0,0 +1,41 @@
+package codeanalysis;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures how many bytes the current thread allocates, for tests that check a runtime type
+ * avoids copies. Skips the calling test on JVMs that can't count allocations per thread.
+ */
+final class Allocations {
+    private static final int ROUNDS = 10;
+
+    // Results are stored here so escape analysis can't remove the allocations being measured
+    private static volatile Object _sink;
+
+    private Allocations() {
+    }
+
+    /**
+     * Bytes allocated per call of the action, averaged over runs calls and taking the least of
+     * several rounds. The early rounds double as warm-up, and taking the least keeps a JIT
+     * recompile or a TLAB refill during one round from failing the test.
+     */
+    static long bytesPerRun(int runs, Supplier<?> action) {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        long threadId = Thread.currentThread().threadId();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < runs; i++) _sink = action.get();
+            long after = threads.getThreadAllocatedBytes(threadId);
+            least = Math.min(least, (after - before) / runs);
+        }
+        return least;
+    }
+}
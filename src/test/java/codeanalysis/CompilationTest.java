@@ -1,6 +1,7 @@
 package codeanalysis;
 
 import codeanalysis.syntax.SyntaxTree;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -27,16 +28,133 @@ class CompilationTest {
                 "Output mismatch for: " + name);
     }
 
+    @ParameterizedTest
+    @MethodSource("compileAndRunTestData")
+    void tieredOutputMatchesInterpreter(String name, String source) throws Exception {
+        // Threshold 1 promotes every eligible function on its first call. Compilation runs in
+        // the background, so a first run promotes them and a second, started once they are
+        // compiled, calls them as bytecode from the start
+        Compilation compilation = new Compilation(SyntaxTree.parse(source));
+        TieredCompiler tier = new TieredCompiler(1, 1);
+        runWithInterpreter(compilation, tier);
+        tier.awaitPending();
+        assertEquals(tier.getPromotedFunctionNames(), tier.getCompiledFunctionNames(),
+                "Promoted functions that failed to compile in: " + name);
+
+        assertEquals(runWithInterpreter(source), runWithInterpreter(compilation, tier),
+                "Tiered output mismatch for: " + name);
+    }
+
+    @Test
+    void tieredRunsTestProgramsAsBytecode() throws Exception {
+        // Most rows have no functions the tier may take; these must run compiled, or the
+        // comparison above says nothing about the second tier
+        java.util.Map<String, String> expected = java.util.Map.of(
+                "Recursion", "fib", "NestedCalls", "mul", "TailCallDeep", "count", "MatchSwitchArms", "cmd");
+        int checked = 0;
+        for (Object[] row : compileAndRunTestData()) {
+            String function = expected.get((String) row[0]);
+            if (function == null) continue;
+            checked++;
+            Compilation compilation = new Compilation(SyntaxTree.parse((String) row[1]));
+            TieredCompiler tier = new TieredCompiler(1, 1);
+            runWithInterpreter(compilation, tier);
+            tier.awaitPending();
+            assertTrue(tier.getCompiledFunctionNames().contains(function), row[0] + ": " + tier.getCompiledFunctionNames());
+        }
+        assertEquals(expected.size(), checked);
+    }
+
+    @Test
+    void tieredPromotesHotFunction() throws Exception {
+        String source = "fn sq(x: int) -> int { x * x }\n"
+                + "fn total(n: int) -> int {\nmut s = 0\nfor mut i = 0 i < n i = i + 1 { s = s + sq(i) }\nreturn s\n}\n"
+                + "mut sum = 0\nfor mut k = 0 k < 200 k = k + 1 { sum = sum + total(10) }\nprintln(toString(sum))";
+        TieredCompiler tier = new TieredCompiler(50, 1000);
+        assertEquals(runWithInterpreter(source), runWithInterpreter(source, tier));
+        tier.awaitPending();
+        assertTrue(tier.getCompiledFunctionNames().contains("total"));
+        assertTrue(tier.getCompiledFunctionNames().contains("sq"));
+    }
+
+    @Test
+    void tieredKeepsGlobalReadersInterpreted() throws Exception {
+        String source = "mut base = 10\nfn addBase(x: int) -> int { x + base }\n"
+                + "mut sum = 0\nfor mut k = 0 k < 100 k = k + 1 { sum = sum + addBase(k) }\nprintln(toString(sum))";
+        TieredCompiler tier = new TieredCompiler(1, 1);
+        assertEquals(runWithInterpreter(source), runWithInterpreter(source, tier));
+        tier.awaitPending();
+        assertFalse(tier.getCompiledFunctionNames().contains("addBase"));
+    }
+
+    @Test
+    void inliningReportsSitesAndCanBeDisabled() throws Exception {
+        String source = "fn sq(x: int) -> int { return x * x }\n"
+                + "fn fact(n: int) -> int {\nif n <= 1 { return 1 }\nreturn n * fact(n - 1)\n}\n"
+                + "fn total(n: int) -> int {\nmut s = 0\nfor mut i = 0 i < n i = i + 1 {\nimut v = sq(i)\ns = s + v + fact(3)\n}\nreturn s\n}\n"
+                + "println(toString(total(10)))";
+
+        Compilation inlined = new Compilation(SyntaxTree.parse(source));
+        assertNotNull(inlined.compile("InlineOn"));
+        assertEquals(java.util.List.of("sq -> total (4 nodes)"), inlined.getInliningReport());
+
+        Compilation plain = new Compilation(SyntaxTree.parse(source));
+        plain.setInlining(false);
+        assertNotNull(plain.compile("InlineOff"));
+        assertTrue(plain.getInliningReport().isEmpty());
+    }
+
+    @Test
+    void constantMatchesCompileToSwitches() {
+        String source = "fn cmd(c: string) -> int {\nreturn match c { \"GET\" => 1 \"SET\" => 2 \"DEL\" => 3 _ => 0 }\n}\n"
+                + "fn code(n: int) -> string {\nreturn match n { 1 => \"a\" 2 => \"b\" 3 => \"c\" _ => \"?\" }\n}\n"
+                + "println(toString(cmd(\"SET\")) + code(3))";
+        byte[] bytecode = new Compilation(SyntaxTree.parse(source)).compile("SwitchMatch");
+        assertNotNull(bytecode);
+
+        java.util.List<String> found = new java.util.ArrayList<>();
+        new org.objectweb.asm.ClassReader(bytecode).accept(new org.objectweb.asm.ClassVisitor(org.objectweb.asm.Opcodes.ASM9) {
+            @Override
+            public org.objectweb.asm.MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new org.objectweb.asm.MethodVisitor(org.objectweb.asm.Opcodes.ASM9) {
+                    @Override
+                    public void visitTableSwitchInsn(int min, int max, org.objectweb.asm.Label dflt, org.objectweb.asm.Label... labels) {
+                        found.add(name + ":tableswitch");
+                    }
+
+                    @Override
+                    public void visitLookupSwitchInsn(org.objectweb.asm.Label dflt, int[] keys, org.objectweb.asm.Label[] labels) {
+                        found.add(name + ":lookupswitch");
+                    }
+
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String method, String desc, boolean itf) {
+                        if (owner.equals("java/util/Objects") && method.equals("equals")) found.add(name + ":Objects.equals");
+                    }
+                };
+            }
+        }, 0);
+        assertTrue(found.contains("cmd:lookupswitch"), found.toString());
+        assertTrue(found.contains("code:tableswitch"), found.toString());
+        assertFalse(found.stream().anyMatch(f -> f.endsWith("Objects.equals")), found.toString());
+    }
+
     private String runWithInterpreter(String source) throws Exception {
+        return runWithInterpreter(source, null);
+    }
+
+    private String runWithInterpreter(String source, TieredCompiler tier) throws Exception {
+        return runWithInterpreter(new Compilation(SyntaxTree.parse(source)), tier);
+    }
+
+    private String runWithInterpreter(Compilation compilation, TieredCompiler tier) throws Exception {
         PrintStream oldOut = System.out;
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         System.setOut(new PrintStream(baos));
 
         try {
-            SyntaxTree tree = SyntaxTree.parse(source);
-            Compilation compilation = new Compilation(tree);
             HashMap<VariableSymbol, Object> variables = new HashMap<>();
-            EvaluationResult result = compilation.evaluate(variables);
+            EvaluationResult result = compilation.evaluate(variables, tier);
 
             if (result._diagnostics.size() > 0) {
                 fail("Interpreter diagnostics: " + result._diagnostics.get(0).getMessage());
@@ -180,6 +298,58 @@ class CompilationTest {
             {"StructIntInterp", "struct S { val: int }\nmut s = S { val: 42 }\nprintln(\"val=${s.val}\")"},
             // for-in map iteration
             {"ForInMap", "mut m = {\"x\": 1}\nfor k in m {\nprintln(k)\n}"},
+            // constant folding and propagation
+            {"FoldArithmetic", "println(toString(60 * 60 * 1000))"},
+            {"FoldConcat", "println(\"prefix\" + \"suffix\" + 42)"},
+            {"FoldImut", "imut hour = 60 * 60\nimut day = hour * 24\nprintln(toString(day))"},
+            {"FoldDeadBranch", "imut debug = false\nif debug { println(\"debug\") } else { println(\"release\") }"},
+            {"FoldDeadLoop", "imut n = 0\nwhile n > 0 { println(\"never\") }\nprintln(\"done\")"},
+            {"FoldInFunction", "fn ms(s: int) -> int {\nimut perSec = 1000\nreturn s * perSec\n}\nprintln(toString(ms(60)))"},
+            {"FoldDivByZeroKept", "imut d = 0\ntry { println(toString(10 / d)) } catch e { println(\"caught\") }"},
+            {"FoldLongMix", "imut big = toLong(2000000000)\nprintln(toString(big + 2000000000))"},
+            {"FoldInterpolation", "imut name = \"Siyo\"\nprintln(\"Hello, ${name}!\")"},
+            {"DeadLoopExit", "mut i = 0\nwhile true {\ni = i + 1\nif i == 5 { break }\n}\nprintln(toString(i))"},
+            {"DeadAfterBreak", "mut s = 0\nfor i in range(0, 10) {\nif i > 3 { break\nprintln(\"never\") }\ns = s + i\n}\nprintln(toString(s))"},
+            {"DeadAfterReturn", "fn f(x: int) -> int {\nif x > 0 { return 1 } else { return 2 }\nreturn 3\n}\nprintln(toString(f(5)) + toString(f(-5)))"},
+            {"InlineDeclaration", "fn sq(x: int) -> int { return x * x }\nfn f() -> int {\nimut a = sq(7)\nreturn a + 1\n}\nprintln(toString(f()))"},
+            {"InlineEarlyReturns", "fn sign(x: int) -> int {\nif x < 0 { return -1 }\nif x == 0 { return 0 }\nreturn 1\n}\nfn f(n: int) -> string {\nimut s = sign(n)\nreturn toString(s)\n}\nprintln(f(-4) + f(0) + f(9))"},
+            {"InlineVoid", "fn shout(s: string) {\nif s == \"\" { return }\nprintln(s + \"!\")\n}\nfn f() {\nshout(\"\")\nshout(\"hey\")\nprintln(\"end\")\n}\nf()"},
+            {"InlineAssignment", "fn twice(x: int) -> int { return x + x }\nfn f() -> int {\nmut t = 1\nfor mut i = 0 i < 5 i = i + 1 {\nt = twice(t)\n}\nreturn t\n}\nprintln(toString(f()))"},
+            {"InlineReturnSite", "fn inc(x: int) -> int { x + 1 }\nfn f(n: int) -> int {\nreturn inc(n)\n}\nprintln(toString(f(41)))"},
+            {"InlineMutParam", "fn countdown(mut n: int) -> int {\nmut steps = 0\nwhile n > 0 {\nn = n - 1\nsteps = steps + 1\n}\nreturn steps\n}\nfn f() -> int {\nimut n = 3\nimut s = countdown(n)\nreturn s * 10 + n\n}\nprintln(toString(f()))"},
+            {"InlineNameClash", "mut x = 100\nfn dbl(x: int) -> int { return x * 2 }\nfn f() -> int {\nimut y = dbl(5)\nreturn x + y\n}\nprintln(toString(f()))"},
+            {"InlineStringHelper", "fn method(line: string) -> string {\nimut i = indexOf(line, \" \")\nif i < 0 { return line }\nreturn substring(line, 0, i)\n}\nfn f() {\nimut m = method(\"GET /index.html\")\nprintln(m)\nprintln(\"done\")\n}\nf()"},
+            {"TailCallDeep", "fn count(n: int, acc: int) -> int {\nif n == 0 { return acc }\nreturn count(n - 1, acc + 1)\n}\nprintln(toString(count(200000, 0)))"},
+            {"TailCallSwapArgs", "fn gcd(a: int, b: int) -> int {\nif b == 0 { return a }\nreturn gcd(b, a % b)\n}\nprintln(toString(gcd(1071, 462)))"},
+            {"TailCallImplicit", "fn sumTo(n: int, acc: long) -> long {\nif n == 0 { return acc }\nsumTo(n - 1, acc + toLong(n))\n}\nprintln(toString(sumTo(100000, toLong(0))))"},
+            {"TailCallVoid", "fn countdown(n: int) {\nif n < 0 { return }\nif n % 50000 == 0 { println(toString(n)) }\ncountdown(n - 1)\n}\ncountdown(150000)"},
+            {"TailCallNotInTail", "fn fact(n: int) -> int {\nif n <= 1 { return 1 }\nreturn n * fact(n - 1)\n}\nprintln(toString(fact(10)))"},
+            {"TailCallWithLocals", "fn collatz(n: int, steps: int) -> int {\nif n == 1 { return steps }\nmut next = n / 2\nif n % 2 == 1 { next = 3 * n + 1 }\nreturn collatz(next, steps + 1)\n}\nprintln(toString(collatz(27, 0)))"},
+            {"RangeLoopSum", "mut s = 0\nfor i in range(0, 1000000) { s = s + i % 7 }\nprintln(toString(s))"},
+            {"RangeLoopItemCopy", "for i in range(0, 3) {\ni = i * 10\nprintln(toString(i))\n}"},
+            {"RangeLoopBoundsOnce", "mut n = 3\nfor i in range(0, n) {\nn = n + 1\nprintln(toString(i))\n}\nprintln(toString(n))"},
+            {"RangeLoopEmpty", "for i in range(5, 2) { println(\"never\") }\nprintln(\"done\")"},
+            {"RangeLoopBreakContinue", "for i in range(-3, 10) {\nif i < 0 { continue }\nif i == 4 { break }\nprintln(toString(i))\n}"},
+            {"RangeValue", "imut r = range(2, 6)\nprintln(toString(len(r)))\nprintln(toString(r[0] + r[3]))\nprintln(toString(r))"},
+            {"RangeValueMutated", "mut r = range(0, 3)\npush(r, 10)\nr[0] = 7\nprintln(toString(r))\nfor x in r { println(toString(x)) }"},
+            {"ForInMapModified", "mut m = {\"a\": 1, \"b\": 2, \"c\": 3}\nfor k in m {\nif k == \"a\" { m.remove(\"b\") }\nm.set(k + \"x\", 0)\nprintln(k)\n}\nprintln(toString(m.size()))"},
+            {"ForInSet", "mut s = set()\ns.add(3)\ns.add(1)\ns.add(3)\nfor x in s {\ns.add(x + 10)\nprintln(toString(x))\n}\nprintln(toString(s.size()))"},
+            {"MapKeysValuesViews", "mut m = {\"a\": 1, \"b\": 2}\nmut ks = m.keys()\nmut vs = m.values()\nm.set(\"c\", 3)\npush(ks, \"z\")\nprintln(toString(ks))\nprintln(toString(vs))\nprintln(toString(len(m.keys())))"},
+            {"IntArrayAccess", "mut a = [5, 3, 9]\na[0] = a[1] + a[2]\npush(a, 1)\nmut s = 0\nfor x in a { s = s + x }\nprintln(toString(a))\nprintln(toString(s))"},
+            {"TypedEmptyArray", "mut b: int[] = []\npush(b, 4)\npush(b, 2)\nb[1] = b[0] * 10\nprintln(toString(b))\nprintln(toString(pop(b)))"},
+            {"LongAndFloatArrays", "mut l = [toLong(1), toLong(2)]\nl[0] = l[1] + toLong(40)\nmut f = [1.5, 2.5]\nf[1] = f[0] * 2.0\nprintln(toString(l))\nprintln(toString(f))"},
+            {"IntArrayToJava", "import java \"java.util.Arrays\"\nmut a = [7, 3, 9, 1]\nArrays.sort(a)\nprintln(toString(a))\nprintln(Arrays.toString(a))"},
+            {"ConcurrentMapSharedBySpawn", "mut hits = concurrentMap()\nmut done = channel(4)\nfor i in range(0, 4) {\nspawn {\nfor j in range(0, 500) {\nhits.increment(j % 2)\n}\ndone.send(1)\n}\n}\nfor i in range(0, 4) { done.receive() }\nprintln(toString(hits.get(0)))\nprintln(toString(hits.getOrSet(\"k\", \"a\")))\nprintln(toString(hits.getOrSet(\"k\", \"b\")))\nprintln(toString(hits.compareAndSet(\"k\", \"a\", \"c\")))\nprintln(toString(hits.compareAndSet(\"k\", \"a\", \"d\")))\nprintln(hits.getStr(\"k\"))\nprintln(toString(hits.size()))"},
+            {"AtomicsSharedBySpawn", "mut n = atomicInt()\nmut big = atomicLong()\nmut hits = counter()\nmut done = channel(4)\nfor i in range(0, 4) {\nspawn {\nfor j in range(0, 500) {\nn.increment()\nbig.add(3)\nhits.increment()\n}\ndone.send(1)\n}\n}\nfor i in range(0, 4) { done.receive() }\nprintln(toString(n.get()))\nprintln(toString(big.get()))\nprintln(toString(hits.get()))\nprintln(toString(n.cas(2000, 7)))\nprintln(toString(n.cas(2000, 8)))\nprintln(toString(n.add(3)))\nprintln(toString(hits.reset()))\nprintln(toString(hits))"},
+            {"ConcatChainTypes", "mut i = 7\nmut l = toLong(3) * toLong(1000000000)\nmut d = 2.5\nmut b = false\nmut n = null\nprintln(\"i=$i l=$l d=$d b=$b n=$n sum=${i + 1}\")\nprintln(1 + 2 + \"x\" + 1 + 2)\nprintln(\"a\" + (\"b\" + i) + d + l)\nmut acc = \"\"\nfor k in range(0, 3) { acc = acc + k + \",\" }\nprintln(acc)"},
+            {"MatchSwitchArms", "enum Color { Red, Green, Blue }\nfn cmd(c: string) -> string {\nreturn match c { \"GET\" => \"get\" \"Aa\" => \"aa\" \"BB\" => \"bb\" \"DEL\" => { mut x = \"d\"\nx + \"el\" } \"GET\" => \"dup\" _ => \"unknown\" }\n}\nfn sparse(n: int) -> string {\nreturn match n { -1000 => \"neg\" 7 => \"seven\" 100000 => \"big\" _ => \"other\" }\n}\nfor s in [\"GET\", \"Aa\", \"BB\", \"DEL\", \"x\"] { println(cmd(s)) }\nfor i in range(0, 4) { println(match i { 1 => \"one\" 2 => \"two\" _ => \"many\" }) }\nprintln(sparse(-1000) + sparse(7) + sparse(100000) + sparse(8))\nmut c = Color.Green\nprintln(match c { Color.Red => \"r\" Color.Green => \"g\" Color.Blue => \"b\" })\nmut o = null\nprintln(match o { \"a\" => \"A\" _ => \"none\" })"},
+            {"LambdaArities", "fn apply(f: fn, x: int) -> int { return f(x) }\nimut base = 10\nimut add = fn(x: int) -> int { x + base }\nprintln(toString(apply(add, 1)))\nimut greet = fn() { println(\"hi\") }\ngreet()\nimut four = fn(a: int, b: int, c: int, d: int) -> int { a + b + c + d }\nprintln(toString(four(1, 2, 3, 4)))\nimut mixed = fn(a: float, b: long, c: bool) -> string { \"$a $b $c\" }\nprintln(mixed(1.5, toLong(7), true))\nimut total = fn(xs: int[]) -> int {\nmut t = 0\nfor x in xs { t = t + x }\nt\n}\nprintln(toString(total([1, 2, 3])))"},
+            {"DynamicCallsOnMixedTypes", "import java \"java.util.ArrayList\"\nimport java \"java.lang.StringBuilder\"\nmut l = ArrayList.new()\nl.add(\"abc\")\nl.add(StringBuilder.new(\"hello\"))\nl.add(\"wxyz\")\nfor i in range(0, 3) {\nprintln(toString(l.get(i).length()))\n}\nprintln(l.get(1).indexOf(\"l\"))\nprintln(l.get(2).indexOf(\"y\", 1))"},
+            {"SortVariants", "mut a = [5, 3, 9, 1, 3]\nsort(a)\nprintln(toString(a))\nmut s = [\"pear\", \"apple\", \"fig\"]\nsort(s)\nprintln(toString(s))\nsortBy(s, fn(x: string) -> int { len(x) })\nprintln(toString(s))\nmut r = range(0, 5)\nsortBy(r, fn(i: int) -> int { (i * 3) % 5 })\nprintln(toString(r))\nsort(a, fn(x: int, y: int) -> int { y - x })\nprintln(toString(a))"},
+            {"JsonStructCodec", "struct Tag { name: string, weight: float }\nstruct Todo { id: int, title: string, done: bool, big: long, scores: int[], tags: Tag[], main: Tag }\nfn load(s: string) -> Todo { jsonDecode<Todo>(s) }\nmut t = load(\"{\\\"id\\\": 7, \\\"skip\\\": [1, {}], \\\"title\\\": \\\"buy\\\", \\\"done\\\": true, \\\"big\\\": 3000000000, \\\"scores\\\": [1, 2], \\\"tags\\\": [{\\\"name\\\": \\\"a\\\", \\\"weight\\\": 2}], \\\"main\\\": null}\")\nprintln(toString(t.id + t.scores[1]))\nprintln(t.tags[0].name)\nprintln(jsonEncode(t))\nprintln(jsonEncode<Tag>(Tag { name: \"x\", weight: 0.5 }))\nprintln(jsonEncode(load(\"{}\")))\nprintln(toString(jsonDecode(\"[1, 2]\")))"},
+            {"JsonDecodeRejectsMismatches", "struct P { id: int, big: long, names: string[], flags: bool[], ids: int[] }\nfn load(s: string) {\ntry { imut p = jsonDecode<P>(s)\nprintln(toString(p.id) + \" \" + toString(p.big)) } catch e { println(e) }\n}\nload(\"{\\\"id\\\": 99999999999}\")\nload(\"{\\\"id\\\": 1.5}\")\nload(\"{\\\"big\\\": 2.5}\")\nload(\"{\\\"names\\\": [1, {}]}\")\nload(\"{\\\"flags\\\": [\\\"yes\\\"]}\")\nload(\"{\\\"ids\\\": [1, 2.5]}\")\nload(\"{\\\"id\\\": 1e3, \\\"big\\\": 3000000000, \\\"names\\\": [\\\"a\\\", null], \\\"flags\\\": [true]}\")"},
+            {"MmapTypedAccess", "mut m = mmap(\"" + System.getProperty("java.io.tmpdir").replace("\\", "/") + "/siyo_mmap_test.bin\", \"rw\")\nm.resize(32)\nfor i in range(0, 4) { m.putInt(i * 4, i * 7) }\nm.putLong(16, toLong(1) - toLong(2))\nm.putBytes(24, [104, 105, 10, 255])\nm.force()\nfn total(m: mmap) -> int { m.getInt(4) + m.getInt(12) }\nprintln(toString(total(m)))\nprintln(toString(m.getLong(16)))\nprintln(toString(m.getBytes(24, 4)))\nprintln(m.getString(24, 2))\nmut s = m.slice(24, 8)\nprintln(toString(s.indexOf(10, 0)) + \" \" + toString(s.getByte(3)) + \" \" + toString(s.size()))\nm.close()"},
+            {"ClosureCapturesMethodTargets", "mut routes = map()\nfn count(m: map) -> int { len(m.keys()) }\nfn run() {\nroutes.set(\"/a\", 1)\nmut hits = atomicInt()\nmut tags = set()\ntags.add(\"x\")\nmut f = fn(n: int) -> int {\nreturn hits.add(n) + count(routes) + len(tags.values())\n}\nprintln(toString(f(1)))\nprintln(toString(f(2)))\nprintln(toString(hits.get()))\n}\nrun()"},
         };
     }
 }
@@ -463,6 +463,16 @@ class EvaluatorTest {
                 {"\"pi = \" + 3.14", "pi = 3.14"},
                 {"\"flag = \" + true", "flag = true"},
                 {"42 + \" is the answer\"", "42 is the answer"},
+
+                // Constant folding and propagation
+                {"60 * 60 * 1000", 3600000},
+                {"\"prefix\" + \"suffix\"", "prefixsuffix"},
+                {"{ imut hour = 60 * 60\n imut day = hour * 24\n day }", 86400},
+                {"{ imut debug = false\n mut x = 1\n if debug { x = 2 } else { x = 3 }\n x }", 3},
+                {"{ imut n = 3\n mut sum = 0\n while n > 5 { sum = sum + 1 }\n sum }", 0},
+                {"{ mut x = 7\n false && x == 7 }", false},
+                {"{ mut x = 7\n true && x == 7 }", true},
+                {"{ mut x = 0\n imut d = 0\n try { x = 10 / d } catch e { x = -1 }\n x }", -1},
         };
     }
 
@@ -546,6 +556,11 @@ class EvaluatorTest {
                     [ax] = 10
                 }
                 """, "Name 'ax' does not exist"},
+                {"""
+                {
+                    imut todo = jsonDecode<[Todo]>("{}")
+                }
+                """, "Type 'Todo' does not exist"},
         };
     }
 
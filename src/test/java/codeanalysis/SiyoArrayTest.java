@@ -0,0 +1,131 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the lists behind SiyoArray: ownership, primitive backings and allocation.
+ * The allocation checks measure bytes allocated by the current thread, so they compare the
+ * factories against the copying constructor rather than against fixed numbers.
+ */
+class SiyoArrayTest {
+
+    private static final int SIZE = 10_000;
+    private static final int RUNS = 200;
+
+    @Test
+    void wrapKeepsTheGivenList() {
+        List<Object> list = new ArrayList<>(List.of(1, 2, 3));
+        SiyoArray array = SiyoArray.wrap(list, Integer.class);
+        assertSame(list, array.getElements());
+        array.add(4);
+        assertEquals(List.of(1, 2, 3, 4), list);
+    }
+
+    @Test
+    void copyingConstructorStillCopies() {
+        List<Object> list = new ArrayList<>(List.of(1, 2, 3));
+        SiyoArray array = new SiyoArray(list, Integer.class);
+        list.add(4);
+        assertEquals(3, array.size());
+    }
+
+    @Test
+    void ofAndWithCapacityAreGrowable() {
+        SiyoArray parts = SiyoArray.of(new String[]{"a", "b"}, String.class);
+        parts.add("c");
+        assertEquals("[a, b, c]", parts.toString());
+
+        SiyoArray empty = SiyoArray.withCapacity(0, Object.class);
+        empty.add(1);
+        assertEquals(1, empty.size());
+    }
+
+    @Test
+    void primitiveArraysStayUnboxedUntilGivenAnotherType() {
+        SiyoArray ints = SiyoArray.withCapacity(2, Integer.class);
+        ints.addInt(1);
+        ints.add(2);
+        ints.add(1, 5);
+        assertInstanceOf(SiyoIntArray.class, ints.getElements());
+        assertEquals(5, ints.getInt(1));
+        assertEquals(3, ints.toIntArray().length);
+        assertSame(ints.toIntArray(), ints.toIntArray());
+
+        ints.set(0, "x");
+        assertEquals("[x, 5, 2]", ints.toString());
+        assertEquals(5, ints.setInt(1, 6));
+        assertEquals(6, ints.getInt(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> ints.getInt(3));
+    }
+
+    @Test
+    void sortByKeepsEqualKeysInOrder() {
+        SiyoArray words = SiyoArray.of(new String[]{"bb", "a", "cc", "d", "eee"}, String.class);
+        words.sortBy(new Object[]{2, 1, 2, 1, 3});
+        assertEquals("[a, d, bb, cc, eee]", words.toString());
+
+        words.sortBy(new Object[]{"z", "y", "z", "x", "y"});
+        assertEquals("[cc, d, eee, a, bb]", words.toString());
+        assertThrows(IllegalArgumentException.class, () -> words.sortBy(new Object[]{1}));
+    }
+
+    @Test
+    void naturalSortComparesNumbersByValue() {
+        SiyoArray mixed = SiyoArray.of(new Object[]{3, 1.5, 2L, -1}, Object.class);
+        mixed.sort();
+        assertEquals("[-1, 1.5, 2, 3]", mixed.toString());
+
+        SiyoArray ints = SiyoArray.fromJavaArray(new int[]{4, -2, 9});
+        ints.sort();
+        assertArrayEquals(new int[]{-2, 4, 9}, ints.toIntArray());
+        assertThrows(IllegalArgumentException.class, () -> SiyoArray.of(new Object[]{1, "a"}, Object.class).sort());
+    }
+
+    @Test
+    void byteBuffersReadUnsignedAndShareTheirArray() {
+        byte[] raw = {104, 0, (byte) 255};
+        SiyoArray bytes = SiyoArray.fromJavaArray(raw);
+        assertEquals("[104, 0, 255]", bytes.toString());
+        assertSame(raw, bytes.toByteArray());
+
+        bytes.set(1, 300);
+        assertEquals(300, bytes.get(1));
+        assertArrayEquals(new byte[]{104, 44, (byte) 255}, bytes.toByteArray());
+    }
+
+    @Test
+    void ofAllocatesOneBackingArray() {
+        Object[] parts = new Object[SIZE];
+        Arrays.fill(parts, "x");
+
+        long copying = Allocations.bytesPerRun(RUNS, () -> new SiyoArray(Arrays.asList(parts), String.class));
+        long single = Allocations.bytesPerRun(RUNS, () -> SiyoArray.of(parts, String.class));
+
+        // The copying path allocates an intermediate Object[] plus the list's own array, so
+        // about twice as much; the bound leaves room for JIT and GC noise
+        assertTrue(single < copying * 4 / 5, "of: " + single + " bytes, copying: " + copying + " bytes");
+    }
+
+    @Test
+    void presizedArrayAllocatesOneBackingArray() {
+        long copying = Allocations.bytesPerRun(RUNS, () -> {
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < SIZE; i++) list.add("x");
+            return new SiyoArray(list, Object.class);
+        });
+        long presized = Allocations.bytesPerRun(RUNS, () -> {
+            SiyoArray array = SiyoArray.withCapacity(SIZE, Object.class);
+            for (int i = 0; i < SIZE; i++) array.add("x");
+            return array;
+        });
+
+        // Growing by halves and then copying allocates several times the final array
+        assertTrue(presized < copying / 2, "presized: " + presized + " bytes, copying: " + copying + " bytes");
+    }
+}
@@ -0,0 +1,97 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for concurrentMap: null keys and values, which the backing ConcurrentHashMap rejects,
+ * and the atomic update methods.
+ */
+class SiyoConcurrentMapTest {
+
+    @Test
+    void nullValuesMeanAbsent() {
+        SiyoConcurrentMap map = new SiyoConcurrentMap();
+        map.set("a", 1);
+        map.set("a", null);
+        assertFalse(map.has("a"));
+
+        assertNull(map.getOrSet("b", null));
+        assertFalse(map.has("b"));
+        map.set("b", 2);
+        assertEquals(2, map.getOrSet("b", null));
+
+        // Expected null matches only an absent key; a null new value removes the key
+        assertTrue(map.compareAndSet("c", null, null));
+        assertFalse(map.compareAndSet("b", null, null));
+        assertFalse(map.compareAndSet("b", 3, null));
+        assertTrue(map.compareAndSet("b", 2, null));
+        assertFalse(map.has("b"));
+        assertTrue(map.compareAndSet("b", null, 4));
+        assertEquals(4, map.get("b"));
+    }
+
+    @Test
+    void nullKeysAreNeverPresent() {
+        SiyoConcurrentMap map = new SiyoConcurrentMap();
+        assertNull(map.get(null));
+        assertFalse(map.has(null));
+        map.remove(null);
+        map.set(null, null);
+        assertNull(map.getOrSet(null, null));
+        assertFalse(map.compareAndSet(null, 1, 2));
+        assertFalse(map.compareAndSet(null, 1, null));
+        assertEquals(0, map.getInt(null));
+
+        for (Runnable write : List.<Runnable>of(
+                () -> map.set(null, 1),
+                () -> map.increment(null),
+                () -> map.getOrSet(null, 1),
+                () -> map.compareAndSet(null, null, 1))) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, write::run);
+            assertEquals("concurrentMap key cannot be null", e.getMessage());
+        }
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void incrementFailsOnNonIntValues() {
+        SiyoConcurrentMap map = new SiyoConcurrentMap();
+        assertEquals(1, map.increment("hits"));
+        assertEquals(2, map.increment("hits"));
+
+        map.set("name", "home");
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> map.increment("name"));
+        assertEquals("concurrentMap.increment: value of key name is not an int: home", e.getMessage());
+        assertEquals("home", map.get("name"));
+    }
+
+    @Test
+    void incrementsFromManyThreadsAreNotLost() throws InterruptedException {
+        SiyoConcurrentMap map = new SiyoConcurrentMap();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    map.increment("hits");
+                    map.getOrSet("first", Thread.currentThread().threadId());
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        assertEquals(80_000, map.getInt("hits"));
+        assertEquals(2, map.size());
+    }
+}
@@ -0,0 +1,158 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HTTP server, talking to it over raw sockets so the exact bytes on the wire
+ * (framing, pipelining, keep-alive) are what gets checked.
+ */
+class SiyoHttpServerTest {
+    private static SiyoHttpServer server;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = SiyoHttpServer.start(0, request -> switch ((String) request.get("path")) {
+            case "/echo" -> request.get("method") + " " + request.get("query") + ":" + request.get("body");
+            case "/stream" -> {
+                SiyoMap response = new SiyoMap();
+                response.set("body", new ByteArrayInputStream("streamed".getBytes(StandardCharsets.UTF_8)));
+                yield response;
+            }
+            case "/created" -> {
+                SiyoMap headers = new SiyoMap();
+                headers.set("Content-Type", "application/json");
+                headers.set("X-Id", 7);
+                SiyoMap response = new SiyoMap();
+                response.set("status", 201);
+                response.set("headers", headers);
+                response.set("body", "{}");
+                yield response;
+            }
+            case "/redirect" -> {
+                // A header value taken from the request, as a naive redirect would
+                SiyoMap headers = new SiyoMap();
+                headers.set("Location", request.get("query"));
+                SiyoMap response = new SiyoMap();
+                response.set("status", 302);
+                response.set("headers", headers);
+                yield response;
+            }
+            case "/wide" -> {
+                SiyoMap headers = new SiyoMap();
+                headers.set("X-Name", "caf\u00e9 \u20ac");
+                SiyoMap response = new SiyoMap();
+                response.set("headers", headers);
+                yield response;
+            }
+            case "/empty" -> null;
+            default -> throw new IllegalStateException("no route");
+        });
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrderOnOneConnection() throws IOException {
+        String responses = exchange(
+                "GET /echo?a=1 HTTP/1.1\r\nHost: x\r\n\r\n"
+                + "POST /echo HTTP/1.1\r\nHost: x\r\nContent-Length: 5\r\n\r\nhello"
+                + "GET /echo?last HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n");
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: 8\r\n\r\nGET a=1:"
+                + "HTTP/1.1 200 OK\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: 11\r\n\r\nPOST :hello"
+                + "HTTP/1.1 200 OK\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: 9\r\nConnection: close\r\n\r\nGET last:",
+                responses);
+    }
+
+    @Test
+    void decodesChunkedRequestBodies() throws IOException {
+        String response = exchange("PUT /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"
+                + "3\r\nabc\r\n4;ext=1\r\ndefg\r\n0\r\nTrailer: x\r\n\r\n");
+        assertTrue(response.endsWith("\r\n\r\nPUT :abcdefg"), response);
+    }
+
+    @Test
+    void streamsBodiesChunked() throws IOException {
+        String response = exchange("GET /stream HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertTrue(response.contains("Transfer-Encoding: chunked\r\n"), response);
+        assertTrue(response.endsWith("\r\n\r\n8\r\nstreamed\r\n0\r\n\r\n"), response);
+
+        // HTTP/1.0 has no chunked encoding: the body runs to the end of the connection
+        String old = exchange("GET /stream HTTP/1.0\r\n\r\n");
+        assertTrue(old.endsWith("Connection: close\r\n\r\nstreamed"), old);
+    }
+
+    @Test
+    void mapResponsesSetStatusAndHeaders() throws IOException {
+        String created = exchange("GET /created HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertTrue(created.startsWith("HTTP/1.1 201 Created\r\n"), created);
+        assertTrue(created.contains("Content-Type: application/json\r\n"), created);
+        assertTrue(created.contains("X-Id: 7\r\n"), created);
+        assertFalse(created.contains("text/plain"), created);
+
+        String head = exchange("HEAD /created HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertTrue(head.endsWith("Content-Length: 2\r\nConnection: close\r\n\r\n"), head);
+
+        String empty = exchange("GET /empty HTTP/1.0\r\nConnection: keep-alive\r\n\r\nGET /empty HTTP/1.0\r\n\r\n");
+        assertEquals("HTTP/1.1 204 No Content\r\nConnection: keep-alive\r\n\r\nHTTP/1.1 204 No Content\r\nConnection: close\r\n\r\n", empty);
+    }
+
+    @Test
+    void reportsErrors() throws IOException {
+        assertTrue(exchange("GET /missing HTTP/1.1\r\nConnection: close\r\n\r\n")
+                .startsWith("HTTP/1.1 500 Internal Server Error\r\n"));
+        assertTrue(exchange("garbage\r\n\r\n").startsWith("HTTP/1.1 400 Bad Request\r\n"));
+        assertTrue(exchange("POST /echo HTTP/1.1\r\nContent-Length: 999999999\r\n\r\n")
+                .startsWith("HTTP/1.1 413 "));
+        String longHeader = "X: " + "a".repeat(20_000) + "\r\n";
+        assertTrue(exchange("GET /echo HTTP/1.1\r\n" + longHeader + "\r\n").startsWith("HTTP/1.1 431 "));
+    }
+
+    @Test
+    void refusesRequestsFramedBothWays() throws IOException {
+        String response = exchange("POST /echo HTTP/1.1\r\nContent-Length: 5\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "0\r\n\r\nGET /echo?smuggled HTTP/1.1\r\nHost: x\r\n\r\n");
+        assertTrue(response.startsWith("HTTP/1.1 400 Bad Request\r\n"), response);
+        assertTrue(response.contains("Connection: close\r\n"), response);
+        assertFalse(response.contains("smuggled"), response);
+    }
+
+    @Test
+    void refusesHeadersThatWouldSplitTheResponse() throws IOException {
+        String plain = exchange("GET /redirect?/home HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertTrue(plain.startsWith("HTTP/1.1 302 Found\r\nLocation: /home\r\n"), plain);
+
+        String injected = exchange("GET /redirect?/x\rSet-Cookie:%20a=b HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertTrue(injected.startsWith("HTTP/1.1 500 "), injected);
+        assertFalse(injected.contains("Set-Cookie"), injected);
+
+        // Latin-1 has no euro sign; the value is refused rather than sent with it cut off
+        String wide = exchange("GET /wide HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertTrue(wide.startsWith("HTTP/1.1 500 "), wide);
+    }
+
+    /** Sends the bytes at once and reads everything until the server closes the connection. */
+    private static String exchange(String request) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package codeanalysis;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HTTP client against a local server that echoes the method and body back.
+ */
+class SiyoHttpTest {
+    private static HttpServer server;
+    private static String base;
+    private static final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            byte[] method = (exchange.getRequestMethod() + ":").getBytes(StandardCharsets.UTF_8);
+            int status = exchange.getRequestURI().getQuery() != null ? 404 : 200;
+            exchange.sendResponseHeaders(status, method.length + body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(method);
+                out.write(body);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void bodiesAreByteExact() throws Exception {
+        String body = "line one\r\nline two é\n\n";
+        assertEquals("POST:" + body, SiyoHttp.post(base + "/echo", body));
+        assertEquals("GET:", SiyoHttp.get(base + "/echo"));
+
+        byte[] raw = {0, (byte) 0xFF, 13, 10, 0x7F};
+        SiyoArray echoed = SiyoHttp.requestBytes("PUT", base + "/echo", SiyoArray.fromJavaArray(raw));
+        assertArrayEquals(new byte[]{'P', 'U', 'T', ':', 0, (byte) 0xFF, 13, 10, 0x7F}, echoed.toByteArray());
+    }
+
+    @Test
+    void sendsRealMethodsAndKeepsErrorBodies() throws Exception {
+        assertEquals("DELETE:", SiyoHttp.request("DELETE", base + "/echo", null));
+        assertEquals("PATCH:x", SiyoHttp.request("PATCH", base + "/echo?missing", "x"));
+    }
+
+    @Test
+    void reusesConnections() throws Exception {
+        SiyoHttp.get(base + "/echo");
+        Set<Integer> before = Set.copyOf(clientPorts);
+        for (int i = 0; i < 20; i++) SiyoHttp.get(base + "/echo");
+        assertEquals(before, clientPorts, "no new connections");
+    }
+
+    @Test
+    void onlyANewConnectTimeoutReplacesTheClient() throws Exception {
+        HttpClient client = SiyoHttp.client();
+        SiyoHttp.setTimeouts(5_000, 7_000);
+        assertSame(client, SiyoHttp.client());
+
+        SiyoHttp.setTimeouts(6_000, 5_000);
+        try {
+            assertNotSame(client, SiyoHttp.client());
+            assertTrue(client.awaitTermination(Duration.ofSeconds(5)), "old client shut down");
+            assertEquals("GET:", SiyoHttp.get(base + "/echo"));
+        } finally {
+            SiyoHttp.setTimeouts(5_000, 5_000);
+        }
+    }
+
+    @Test
+    void asyncRequestsCompleteWithTheBody() {
+        CompletableFuture<String> first = SiyoHttp.getAsync(base + "/echo");
+        CompletableFuture<String> second = SiyoHttp.postAsync(base + "/echo", "two");
+        assertEquals("GET:", first.join());
+        assertEquals("POST:two", second.join());
+    }
+}
@@ -0,0 +1,136 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the JSON pull parser. Stream inputs are read one byte at a time so every token
+ * also gets split across buffer refills.
+ */
+class SiyoJsonReaderTest {
+
+    @Test
+    void buildsSiyoValues() {
+        Object value = SiyoJsonReader.parse("{\"a\": [1, -2, 3000000000, 1.5, 2e3], \"b\": {\"c\": null}, \"d\": true, \"e\": \"x\"}");
+        SiyoMap map = assertInstanceOf(SiyoMap.class, value);
+        assertEquals("[1, -2, 3000000000, 1.5, 2000.0]", map.get("a").toString());
+        assertEquals(Integer.class, ((SiyoArray) map.get("a")).get(0).getClass());
+        assertEquals(Long.class, ((SiyoArray) map.get("a")).get(2).getClass());
+        assertEquals("{c: null}", map.get("b").toString());
+        assertEquals(true, map.get("d"));
+        assertEquals("x", map.get("e"));
+    }
+
+    @Test
+    void acceptsAnyTopLevelValue() {
+        assertEquals("[1, 2]", SiyoJsonReader.parse(" [1,2] ").toString());
+        assertEquals("hi", SiyoJsonReader.parse("\"hi\""));
+        assertEquals(42, SiyoJsonReader.parse("42"));
+        assertNull(SiyoJsonReader.parse("null"));
+    }
+
+    @Test
+    void decodesEscapes() {
+        assertEquals("a\"b\\c/\n\t\u00e9\uD83D\uDE00", SiyoJsonReader.parse("\"a\\\"b\\\\c\\/\\n\\t\\u00e9\\ud83d\\ude00\""));
+    }
+
+    @Test
+    void largeNumbersBecomeLongsOrFloats() {
+        assertEquals(Long.MAX_VALUE, SiyoJsonReader.parse("9223372036854775807"));
+        assertEquals(Long.MIN_VALUE, SiyoJsonReader.parse("-9223372036854775808"));
+        assertEquals(1e20, SiyoJsonReader.parse("100000000000000000000"));
+        assertEquals(-0.25, SiyoJsonReader.parse("-25E-2"));
+        assertEquals("[0, 0, 0.5, 10]", SiyoJsonReader.parse("[0, -0, 0.5, 10]").toString());
+    }
+
+    @Test
+    void streamsMatchStrings() {
+        String json = "{\"name\": \"caf\u00e9 \\u0041\", \"list\": [true, false, null, {\"k\": 12.5e1}], \"n\": -17}";
+        Object fromString = SiyoJsonReader.parse(json);
+        Object fromStream = SiyoJsonReader.parse(oneByteAtATime(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(fromString.toString(), fromStream.toString());
+        assertEquals("{name: caf\u00e9 A, list: [true, false, null, {k: 125.0}], n: -17}", fromString.toString());
+    }
+
+    @Test
+    void pullEventsWalkTheDocument() {
+        SiyoJsonReader reader = new SiyoJsonReader("{\"skip\": {\"x\": [1, [2]]}, \"ids\": [7, 8]}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(SiyoJsonReader.BEGIN_OBJECT, reader.next());
+        assertEquals(SiyoJsonReader.NAME, reader.next());
+        assertEquals("skip", reader.stringValue());
+        reader.skipValue();
+        assertEquals(SiyoJsonReader.NAME, reader.next());
+        assertEquals("ids", reader.stringValue());
+        assertEquals(SiyoJsonReader.BEGIN_ARRAY, reader.next());
+        List<Integer> ids = new ArrayList<>();
+        while (reader.next() == SiyoJsonReader.NUMBER) ids.add(reader.intValue());
+        assertEquals(List.of(7, 8), ids);
+        assertEquals(SiyoJsonReader.END_OBJECT, reader.next());
+        assertEquals(SiyoJsonReader.END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    void memberNamesAreShared() {
+        SiyoMap first = (SiyoMap) SiyoJsonReader.parse("{\"shared_key\": 1}");
+        SiyoMap second = (SiyoMap) SiyoJsonReader.parse("{\"shared_key\": 2}");
+        assertSame(first.keys().get(0), second.keys().get(0));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        for (String json : List.of("", "{", "{\"a\" 1}", "[1,]", "[1 2]", "{\"a\": tru}", "\"open", "-", "1.", "{} x", "\"\\q\"",
+                "01", "[01]", "-01", "00.5", "\"line\nbreak\"", "{\"a\tb\": 1}", "\"\u0001\"")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SiyoJsonReader.parse(json), json);
+            assertTrue(e.getMessage().startsWith("Invalid JSON at offset "), e.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class, () -> SiyoJsonReader.parse("[".repeat(10_000)));
+    }
+
+    @Test
+    void typedReadsRejectNumbersThatDontFit() {
+        assertEquals(1000, new SiyoJsonReader("1e3").readInt());
+        assertEquals(3_000_000_000L, new SiyoJsonReader("3000000000").readLong());
+        assertEquals(Long.MIN_VALUE, new SiyoJsonReader("-9223372036854775808").readLong());
+        assertEquals(0, new SiyoJsonReader("null").readInt());
+
+        for (String json : List.of("99999999999", "-2147483649", "1.5", "1e-1")) {
+            assertThrows(IllegalArgumentException.class, () -> new SiyoJsonReader(json).readInt(), json);
+        }
+        for (String json : List.of("2.5", "9223372036854775808", "1e30")) {
+            assertThrows(IllegalArgumentException.class, () -> new SiyoJsonReader(json).readLong(), json);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SiyoJsonReader("[1, 2.5]").readArray(Integer.class));
+        assertThrows(IllegalArgumentException.class, () -> new SiyoJsonReader("[1, 1e19]").readArray(Long.class));
+    }
+
+    @Test
+    void typedArraysCheckStringAndBoolElements() {
+        assertEquals("[a, null]", new SiyoJsonReader("[\"a\", null]").readArray(String.class).toString());
+        assertEquals("[true, false]", new SiyoJsonReader("[true, null]").readArray(Boolean.class).toString());
+        assertThrows(IllegalArgumentException.class, () -> new SiyoJsonReader("[1, {\"x\": 2}]").readArray(String.class));
+        assertThrows(IllegalArgumentException.class, () -> new SiyoJsonReader("[\"yes\"]").readArray(Boolean.class));
+    }
+
+    @Test
+    void jsonParseKeepsReturningAMap() {
+        assertEquals("{a: 1}", SiyoRuntime.jsonParse("{\"a\": 1}").toString());
+        assertEquals(0, SiyoRuntime.jsonParse("[1]").size());
+        assertEquals(0, SiyoRuntime.jsonParse("{\"a\": ").size());
+    }
+
+    private static InputStream oneByteAtATime(byte[] bytes) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the JSON writer. Documents are read back with SiyoJsonReader where the exact
+ * text doesn't matter.
+ */
+class SiyoJsonWriterTest {
+
+    @Test
+    void quotesByRuntimeType() {
+        SiyoMap map = new SiyoMap();
+        map.set("n", 42);
+        map.set("s", "42");
+        map.set("big", Long.MIN_VALUE);
+        map.set("f", 1.5);
+        map.set("b", false);
+        map.set("none", null);
+        map.set(7, SiyoArray.of(new Object[]{1, "two", Double.NaN}, Object.class));
+        assertEquals("{\"n\":42,\"s\":\"42\",\"big\":-9223372036854775808,\"f\":1.5,\"b\":false,\"none\":null,\"7\":[1,\"two\",null]}",
+                SiyoJsonWriter.toJson(map));
+    }
+
+    @Test
+    void escapesAndEncodesText() {
+        String text = "q\" b\\ n\n t\t c\u0001 é € 😀";
+        String json = SiyoJsonWriter.toJson(text);
+        assertEquals("\"q\\\" b\\\\ n\\n t\\t c\\u0001 é € 😀\"", json);
+        assertEquals(text, SiyoJsonReader.parse(json));
+    }
+
+    @Test
+    void writesStructsAndJavaCollections() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", 1);
+        fields.put("tags", List.of("a", "b"));
+        assertEquals("{\"id\":1,\"tags\":[\"a\",\"b\"]}", SiyoJsonWriter.toJson(fields));
+        assertEquals("{\"id\":1,\"tags\":[\"a\",\"b\"]}", SiyoJsonWriter.toJson(new SiyoStruct(new LinkedHashMap<>(fields))));
+    }
+
+    @Test
+    void streamsLargeDocumentsThroughTheBuffer() {
+        SiyoArray items = SiyoArray.withCapacity(0, Object.class);
+        for (int i = 0; i < 5_000; i++) {
+            SiyoMap item = new SiyoMap();
+            item.set("id", i);
+            item.set("name", "item é " + i);
+            items.add(item);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SiyoJsonWriter.writeTo(out, items);
+        String streamed = out.toString(StandardCharsets.UTF_8);
+        assertEquals(SiyoJsonWriter.toJson(items), streamed);
+        assertEquals(items.toString(), SiyoJsonReader.parse(streamed).toString());
+    }
+
+    @Test
+    void tokenMethodsInsertSeparators() {
+        SiyoJsonWriter writer = new SiyoJsonWriter();
+        writer.beginObject().name("a").beginArray().value(1).value("x").nullValue().endArray()
+                .name("b").beginObject().endObject().endObject();
+        assertEquals("{\"a\":[1,\"x\",null],\"b\":{}}", writer.toString());
+
+        writer.reset();
+        writer.value(true);
+        assertEquals("true", writer.toString());
+        assertThrows(IllegalStateException.class, () -> writer.value(1));
+        assertThrows(IllegalStateException.class, () -> new SiyoJsonWriter().beginObject().value(1));
+        assertThrows(IllegalStateException.class, () -> new SiyoJsonWriter().beginArray().endObject());
+    }
+}
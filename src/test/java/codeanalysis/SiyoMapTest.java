@@ -0,0 +1,147 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SiyoMap's open-addressing storage. The randomized checks replay the same operations
+ * on a LinkedHashMap, which has the insertion-order semantics the map promises.
+ */
+class SiyoMapTest {
+
+    @Test
+    void matchesLinkedHashMapForEachKeyKind() {
+        for (int kind = 0; kind < 4; kind++) {
+            Random random = new Random(kind);
+            SiyoMap map = new SiyoMap();
+            Map<Object, Object> expected = new LinkedHashMap<>();
+            for (int step = 0; step < 20_000; step++) {
+                Object key = key(random, kind);
+                switch (random.nextInt(4)) {
+                    case 0, 1 -> {
+                        map.set(key, step);
+                        expected.put(key, step);
+                    }
+                    case 2 -> {
+                        map.remove(key);
+                        expected.remove(key);
+                    }
+                    default -> {
+                        assertEquals(expected.get(key), map.get(key));
+                        assertEquals(expected.containsKey(key), map.has(key));
+                    }
+                }
+            }
+            assertMatches(expected, map);
+        }
+    }
+
+    @Test
+    void switchesToObjectKeysOnAnotherKind() {
+        SiyoMap map = new SiyoMap();
+        map.set(1, "int");
+        map.set(2, "two");
+        map.set(1L, "long");
+        map.set("1", "string");
+        assertEquals("int", map.get(1));
+        assertEquals("long", map.get(1L));
+        assertEquals("string", map.get("1"));
+        assertEquals("{1: int, 2: two, 1: long, 1: string}", map.toString());
+
+        map.remove(2);
+        assertEquals(3, map.size());
+        assertNull(map.get(2));
+        assertNull(map.get(2L));
+    }
+
+    @Test
+    void keyKindsDoNotMatchEachOther() {
+        SiyoMap map = new SiyoMap();
+        map.set(7, "int");
+        assertNull(map.get(7L));
+        assertNull(map.get("7"));
+        assertFalse(map.has(7L));
+    }
+
+    @Test
+    void emptiedMapStartsOver() {
+        SiyoMap map = new SiyoMap();
+        for (int i = 0; i < 100; i++) map.set(i, i);
+        for (int i = 0; i < 100; i++) map.remove(i);
+        assertEquals(0, map.size());
+        map.set("a", 1);
+        assertEquals("{a: 1}", map.toString());
+    }
+
+    @Test
+    void viewsKeepTheEntriesTheyWereTakenFrom() {
+        SiyoMap map = new SiyoMap();
+        map.set("a", 1);
+        map.set("b", 2);
+        SiyoArray keys = map.keys();
+        SiyoArray values = map.values();
+        map.remove("a");
+        map.set("c", 3);
+        map.set("b", 20);
+        assertEquals("[a, b]", keys.toString());
+        assertEquals("[1, 2]", values.toString());
+        assertEquals("{b: 20, c: 3}", map.toString());
+    }
+
+    @Test
+    void lookupsAndOverwritesDoNotAllocate() {
+        SiyoMap map = new SiyoMap();
+        Object[] keys = new Object[1_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 31;
+            map.set(keys[i], keys[i]);
+        }
+        long bytes = Allocations.bytesPerRun(100, () -> {
+            for (Object key : keys) {
+                map.set(key, map.get(key));
+            }
+            return map;
+        });
+        // Boxing or an entry object per operation would cost 16 bytes or more each
+        assertTrue(bytes < 4 * keys.length, bytes + " bytes");
+    }
+
+    @Test
+    void keysViewDoesNotCopy() {
+        SiyoMap map = new SiyoMap();
+        for (int i = 0; i < 10_000; i++) map.set(i, i);
+        long bytes = Allocations.bytesPerRun(100, map::keys);
+        assertTrue(bytes < 1_000, bytes + " bytes");
+        assertEquals(10_000, map.keys().size());
+    }
+
+    private static Object key(Random random, int kind) {
+        int value = random.nextInt(2_000);
+        return switch (kind) {
+            case 0 -> value;
+            case 1 -> (long) value << 20;
+            case 2 -> "k" + value;
+            default -> switch (value % 3) {
+                case 0 -> value;
+                case 1 -> (long) value;
+                default -> List.of(value);
+            };
+        };
+    }
+
+    private static void assertMatches(Map<Object, Object> expected, SiyoMap map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keys()));
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        for (Map.Entry<Object, Object> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
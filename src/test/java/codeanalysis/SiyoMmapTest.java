@@ -0,0 +1,71 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for memory-mapped files: typed access, persistence through the file, slices and modes.
+ */
+class SiyoMmapTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void typedValuesPersistThroughTheFile() throws Exception {
+        String path = dir.resolve("data.bin").toString();
+        try (SiyoMmap m = SiyoMmap.open(path, "rw")) {
+            assertEquals(0, m.size());
+            m.resize(40);
+            m.putInt(0, -7);
+            m.putLong(4, Long.MIN_VALUE);
+            m.putDouble(12, 2.5);
+            m.putByte(20, 200);
+            m.putBytes(21, new byte[]{'o', 'k', '\n'});
+            m.force();
+        }
+        assertEquals(40, Files.size(Path.of(path)));
+
+        try (SiyoMmap m = SiyoMmap.open(path, "r")) {
+            assertEquals(-7, m.getInt(0));
+            assertEquals(Long.MIN_VALUE, m.getLong(4));
+            assertEquals(2.5, m.getDouble(12));
+            assertEquals(200, m.getByte(20));
+            assertEquals("ok", m.getString(21, 2));
+            assertEquals(23, m.indexOf('\n', 0));
+            assertEquals(-1, m.indexOf('\n', 24));
+            assertArrayEquals(new byte[]{0, 0}, m.getBytes(38, 2));
+        }
+    }
+
+    @Test
+    void slicesShareTheMappingWithTheirOwnOffsets() throws Exception {
+        try (SiyoMmap m = SiyoMmap.open(dir.resolve("s.bin").toString(), "rw")) {
+            m.resize(16);
+            SiyoMmap tail = m.slice(8, 8);
+            tail.putInt(0, 42);
+            assertEquals(42, m.getInt(8));
+            assertEquals(8, tail.size());
+            assertEquals(4, tail.slice(4, 4).size());
+            assertThrows(IndexOutOfBoundsException.class, () -> tail.getLong(4));
+            assertThrows(IndexOutOfBoundsException.class, () -> m.slice(12, 8));
+            assertThrows(IllegalStateException.class, () -> tail.resize(4));
+        }
+    }
+
+    @Test
+    void readOnlyMappingsRejectWrites() throws Exception {
+        Path file = dir.resolve("r.bin");
+        Files.write(file, new byte[8]);
+        try (SiyoMmap m = SiyoMmap.open(file.toString(), "r")) {
+            assertThrows(IllegalStateException.class, () -> m.putInt(0, 1));
+            assertThrows(IllegalStateException.class, () -> m.resize(16));
+            assertThrows(IndexOutOfBoundsException.class, () -> m.getInt(-1));
+        }
+        assertThrows(IllegalArgumentException.class, () -> SiyoMmap.open(file.toString(), "w"));
+    }
+}
@@ -0,0 +1,99 @@
+package codeanalysis;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for static file responses, served through SiyoHttpServer so large files take the
+ * transferTo path.
+ */
+class SiyoStaticFilesTest {
+    @TempDir
+    static Path dir;
+    private static SiyoHttpServer server;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = SiyoHttpServer.start(0, request -> SiyoStaticFiles.send(request, dir + (String) request.get("path")));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void sendsSmallAndLargeFilesByteExact() throws IOException {
+        Files.writeString(dir.resolve("index.html"), "<h1>hi é</h1>");
+        byte[] large = new byte[300_000];
+        for (int i = 0; i < large.length; i++) large[i] = (byte) (i * 31);
+        Files.write(dir.resolve("data.bin"), large);
+
+        String small = new String(get("/index.html"), StandardCharsets.UTF_8);
+        assertTrue(small.contains("Content-Type: text/html; charset=utf-8\r\n"), small);
+        assertTrue(small.endsWith("\r\n\r\n<h1>hi é</h1>"), small);
+
+        byte[] response = get("/data.bin");
+        assertTrue(new String(response, StandardCharsets.ISO_8859_1).contains("Content-Length: 300000\r\n"));
+        assertArrayEquals(large, Arrays.copyOfRange(response, response.length - large.length, response.length));
+    }
+
+    @Test
+    void answersConditionalRequestsWithNotModified() throws IOException {
+        Path file = dir.resolve("style.css");
+        Files.writeString(file, "body {}");
+        SiyoMap first = SiyoStaticFiles.send(request(null, null), file.toString());
+        SiyoMap headers = (SiyoMap) first.get("headers");
+        String etag = (String) headers.get("ETag");
+
+        assertEquals(304, SiyoStaticFiles.send(request("if-none-match", "\"x\", " + etag), file.toString()).get("status"));
+        assertEquals(304, SiyoStaticFiles.send(request("if-modified-since", headers.get("Last-Modified")), file.toString()).get("status"));
+        assertEquals(200, SiyoStaticFiles.send(request("if-none-match", "\"x\""), file.toString()).get("status"));
+
+        // A changed file gets a new tag and new contents, not the cached ones
+        Files.writeString(file, "body { margin: 0 }");
+        SiyoMap changed = SiyoStaticFiles.send(request("if-none-match", etag), file.toString());
+        assertEquals(200, changed.get("status"));
+        assertEquals("body { margin: 0 }", new String((byte[]) changed.get("body"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void missingFilesAndDirectoriesAreNotFound() throws IOException {
+        assertEquals(404, SiyoStaticFiles.send(request(null, null), dir.resolve("missing.txt").toString()).get("status"));
+        assertEquals(404, SiyoStaticFiles.send(request(null, null), dir.toString()).get("status"));
+        assertTrue(new String(get("/missing.txt"), StandardCharsets.UTF_8).startsWith("HTTP/1.1 404 Not Found\r\n"));
+    }
+
+    private static SiyoMap request(String header, Object value) {
+        SiyoMap headers = new SiyoMap();
+        if (header != null) headers.set(header, value);
+        SiyoMap request = new SiyoMap();
+        request.set("headers", headers);
+        return request;
+    }
+
+    private static byte[] get(String path) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(("GET " + path + " HTTP/1.1\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -152,6 +152,10 @@ class StdLibTest {
             {"IoFileExists", "import \"std/io\"\nio.writeFile(\"" + testFile + "\", \"x\")\nprintln(toString(io.exists(\"" + testFile + "\")))"},
             {"IoReadLines", "import \"std/io\"\nio.writeFile(\"" + testFile + "\", \"a\\nb\\nc\")\nmut ls = io.readLines(\"" + testFile + "\")\nprintln(toString(len(ls)))"},
             {"IoAppend", "import \"std/io\"\nio.writeFile(\"" + testFile + "\", \"first\")\nio.appendFile(\"" + testFile + "\", \"second\")\nprintln(io.readFile(\"" + testFile + "\"))"},
+            {"IoBytesRoundTrip", "import \"std/io\"\nio.writeBytes(\"" + testFile + "\", [104, 105, 0, 255])\nmut b = io.readBytes(\"" + testFile + "\")\nprintln(toString(b))\nprintln(io.readFile(\"" + testFile + "\").substring(0, 2))"},
+            {"IoReadFileExact", "import \"std/io\"\nio.writeFile(\"" + testFile + "\", \"a\\r\\nb\\n\")\nprintln(toString(len(io.readFile(\"" + testFile + "\"))))"},
+            {"IoLinesForIn", "import \"std/io\"\nio.writeFile(\"" + testFile + "\", \"a\\nbb\\r\\nccc\\n\")\nmut total = 0\nfor line in lines(\"" + testFile + "\") {\n    total = total + len(line)\n    println(line)\n}\nprintln(toString(total))"},
+            {"IoWriterStaysOpen", "import \"std/io\"\nmut w = io.openWriter(\"" + testFile + "\")\nfor i in range(0, 3) {\n    io.writeLine(w, \"row \" + toString(i))\n}\nio.close(w)\nmut a = io.openAppender(\"" + testFile + "\")\nio.write(a, \"end\")\nio.close(a)\nprintln(io.readFile(\"" + testFile + "\"))"},
 
             // std/os
             {"OsCwd", "import \"std/os\"\nprintln(toString(len(os.cwd()) > 0))"},
@@ -164,6 +168,8 @@ class StdLibTest {
             {"JsonParse", "import \"std/json\"\nmut ob = chr(123)\nmut cb = chr(125)\nmut q = chr(34)\nmut input = ob + q + \"name\" + q + \": \" + q + \"Siyo\" + q + cb\nmut obj = json.parse(input)\nprintln(toString(obj.get(\"name\")))"},
             {"JsonStringify", "import \"std/json\"\nmut m = map()\nm.set(\"a\", 1)\nprintln(json.stringify(m))"},
             {"JsonRoundTrip", "import \"std/json\"\nmut ob = chr(123)\nmut cb = chr(125)\nmut q = chr(34)\nmut input = ob + q + \"x\" + q + \": 42\" + cb\nmut s = json.stringify(json.parse(input))\nprintln(contains(s, \"42\"))"},
+            {"JsonParseValue", "import \"std/json\"\nmut v = json.parseValue(\"[1, 2.5, \\\"a\\\"]\")\nprintln(toString(v))"},
+            {"JsonWriteTo", "import \"std/json\"\nimport java \"java.io.ByteArrayOutputStream\"\nmut out = ByteArrayOutputStream.new()\nmut m = map()\nm.set(\"id\", \"7\")\nm.set(\"n\", 7)\njson.writeTo(out, m)\nprintln(out.toString())\nprintln(json.stringify(\"42\"))"},
 
             // std/testing
             {"TestAssert", "import \"std/testing\"\ntesting.assert(true, \"ok\")\nprintln(\"passed\")"},